@@ -0,0 +1,70 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package benchmark;
+
+import model.WaitForGraph;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Detección de ciclos sobre un grafo fijo: el recorrido completo de
+ * hasCycle/findCycle, la consulta en O(1) del orden topológico y la pasada
+ * de Tarjan que encuentra todos los deadlocks.
+ *
+ * @author calbe
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class CycleBenchmark {
+    @Param({"CHAIN", "STAR", "RANDOM", "DENSE_CYCLE"})
+    public GraphShape shape;
+    
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+    
+    private WaitForGraph graph;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        graph = shape.build(size);
+        graph.isDeadlocked();
+    }
+    
+    @Benchmark
+    public boolean hasCycle() {
+        return graph.hasCycle();
+    }
+    
+    @Benchmark
+    public List<String> findCycle() {
+        return graph.findCycle();
+    }
+    
+    @Benchmark
+    public boolean isDeadlocked() {
+        return graph.isDeadlocked();
+    }
+    
+    @Benchmark
+    public List<List<String>> findDeadlockedComponents() {
+        return graph.findDeadlockedComponents();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package benchmark;
+
+import model.Transaction;
+import model.WaitForGraph;
+import uni.aed.tda.graphTDA.IntGraph;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mantenimiento del grafo de espera en estado estable: agregar y quitar
+ * una arista, y sacar una transacción con todas sus aristas. Cada medición
+ * incluye la consulta isDeadlocked que hace el controlador después de cada
+ * operación, porque ahí se pagan los reintentos de las aristas cíclicas.
+ *
+ * Sacar una transacción destruye el estado, así que esa medición es por
+ * lotes: cada iteración saca BATCH transacciones distintas y el puntaje es
+ * el tiempo del lote completo.
+ *
+ * @author calbe
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class EdgeBenchmark {
+    private static final int SAMPLES = 1024;
+    // Transacciones que saca cada iteración de removeTransaction
+    private static final int BATCH = 64;
+    
+    /** Grafo de la forma pedida, armado una vez por corrida. */
+    @State(Scope.Thread)
+    public static class GraphState {
+        @Param({"CHAIN", "STAR", "RANDOM", "DENSE_CYCLE"})
+        public GraphShape shape;
+        
+        WaitForGraph graph;
+        Random random;
+        
+        void buildGraph(int size) {
+            graph = shape.build(size);
+            graph.isDeadlocked();
+            random = new Random(GraphShape.SEED);
+        }
+    }
+    
+    /** Pares de vértices sin arista entre ellos. */
+    public static class Edges extends GraphState {
+        @Param({"10", "1000", "100000", "1000000"})
+        public int size;
+        
+        String[] from;
+        String[] to;
+        int next;
+        
+        @Setup(Level.Trial)
+        public void setUp() {
+            buildGraph(size);
+            IntGraph<String> intGraph = graph.getIntGraph();
+            from = new String[SAMPLES];
+            to = new String[SAMPLES];
+            for (int i = 0; i < SAMPLES; i++) {
+                int u, v;
+                do {
+                    u = random.nextInt(size);
+                    v = random.nextInt(size);
+                } while (u == v || intGraph.hasEdge(intGraph.indexOf(GraphShape.id(u)),
+                                                     intGraph.indexOf(GraphShape.id(v))));
+                from[i] = GraphShape.id(u);
+                to[i] = GraphShape.id(v);
+            }
+        }
+    }
+    
+    /**
+     * Al empezar cada iteración elige BATCH transacciones distintas y anota
+     * sus aristas; al terminarla las repone. Ninguna de las dos cosas entra
+     * en la medición, y el lote es chico frente al grafo para que su forma
+     * casi no cambie mientras se mide. Con 10 vértices el lote lo vaciaría.
+     */
+    public static class Removal extends GraphState {
+        @Param({"1000", "100000", "1000000"})
+        public int size;
+        
+        final String[] victims = new String[BATCH];
+        final String[][] victimOut = new String[BATCH][];
+        final String[][] victimIn = new String[BATCH][];
+        int next;
+        
+        @Setup(Level.Trial)
+        public void setUp() {
+            buildGraph(size);
+        }
+        
+        @Setup(Level.Iteration)
+        public void chooseVictims() {
+            IntGraph<String> intGraph = graph.getIntGraph();
+            Set<Integer> chosen = new HashSet<>();
+            for (int i = 0; i < BATCH; i++) {
+                int u;
+                do {
+                    u = random.nextInt(size);
+                } while (!chosen.add(u));
+                victims[i] = GraphShape.id(u);
+                int v = intGraph.indexOf(victims[i]);
+                victimOut[i] = new String[intGraph.outDegree(v)];
+                for (int k = 0; k < victimOut[i].length; k++) {
+                    victimOut[i][k] = intGraph.valueOf(intGraph.neighbor(v, k));
+                }
+                victimIn[i] = new String[intGraph.inDegree(v)];
+                for (int k = 0; k < victimIn[i].length; k++) {
+                    victimIn[i][k] = intGraph.valueOf(intGraph.predecessor(v, k));
+                }
+            }
+            next = 0;
+        }
+        
+        // Primero todos los vértices: puede haber aristas entre dos víctimas
+        @TearDown(Level.Iteration)
+        public void restoreVictims() {
+            for (String victim : victims) {
+                graph.addTransaction(new Transaction(victim));
+            }
+            for (int i = 0; i < BATCH; i++) {
+                for (String target : victimOut[i]) {
+                    graph.addEdge(victims[i], target);
+                }
+                for (String source : victimIn[i]) {
+                    graph.addEdge(source, victims[i]);
+                }
+            }
+            graph.isDeadlocked();
+        }
+    }
+    
+    @Benchmark
+    public boolean addRemoveEdge(Edges state) {
+        int i = state.next = (state.next + 1) & (SAMPLES - 1);
+        List<String> cycle = state.graph.addEdge(state.from[i], state.to[i]);
+        state.graph.removeEdge(state.from[i], state.to[i]);
+        return state.graph.isDeadlocked() || cycle != null;
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 10, batchSize = BATCH)
+    @Measurement(iterations = 50, batchSize = BATCH)
+    public boolean removeTransaction(Removal state) {
+        state.graph.removeTransaction(state.victims[state.next++]);
+        return state.graph.isDeadlocked();
+    }
+}
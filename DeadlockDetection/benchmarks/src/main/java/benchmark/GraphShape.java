@@ -0,0 +1,69 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package benchmark;
+
+import model.Transaction;
+import model.WaitForGraph;
+import java.util.Random;
+
+/**
+ * Formas de grafo de espera usadas por los benchmarks. Los vértices se
+ * llaman T0..Tn-1 y se crean en orden, así las aristas hacia adelante no
+ * obligan a reordenar el orden topológico.
+ *
+ * @author calbe
+ */
+public enum GraphShape {
+    /** T0 -> T1 -> ... -> Tn-1, sin ciclo: el recorrido más profundo. */
+    CHAIN,
+    /** T0 espera a todos los demás: un solo vértice de grado n-1. */
+    STAR,
+    /** Dos aristas hacia adelante por vértice a destinos al azar, sin ciclo. */
+    RANDOM,
+    /** Anillo con cuerdas a los cuatro siguientes: casi todo está en algún ciclo. */
+    DENSE_CYCLE;
+    
+    public static final long SEED = 42;
+    
+    public WaitForGraph build(int size) {
+        WaitForGraph graph = new WaitForGraph();
+        for (int i = 0; i < size; i++) {
+            graph.addTransaction(new Transaction(id(i)));
+        }
+        Random random = new Random(SEED);
+        switch (this) {
+            case CHAIN:
+                for (int i = 0; i + 1 < size; i++) {
+                    graph.addEdge(id(i), id(i + 1));
+                }
+                break;
+            case STAR:
+                for (int i = 1; i < size; i++) {
+                    graph.addEdge(id(0), id(i));
+                }
+                break;
+            case RANDOM:
+                for (int i = 0; i + 1 < size; i++) {
+                    for (int k = 0; k < 2; k++) {
+                        int to = i + 1 + random.nextInt(size - i - 1);
+                        graph.addEdge(id(i), id(to));
+                    }
+                }
+                break;
+            case DENSE_CYCLE:
+                for (int i = 0; i < size; i++) {
+                    for (int k = 1; k <= 4 && k < size; k++) {
+                        graph.addEdge(id(i), id((i + k) % size));
+                    }
+                }
+                break;
+        }
+        return graph;
+    }
+    
+    public static String id(int i) {
+        return "T" + i;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package benchmark;
+
+import model.LockManager;
+import model.Record;
+import model.Transaction;
+import model.WaitForGraph;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Ciclo de vida de una transacción corta en el LockManager: alta en el
+ * grafo, uno o varios pedidos de lock y la liberación. Con un solo pedido
+ * el lock dura nanosegundos y casi nunca hay choques aunque corran varios
+ * hilos; con varios, cada transacción retiene lo que ya obtuvo mientras
+ * pide lo siguiente, y con pocos registros los pedidos de los otros hilos
+ * pasan por las colas de espera y las aristas. Si un pedido queda en
+ * espera, la transacción se libera ahí (como una víctima) para que el hilo
+ * no se quede bloqueado. Los contadores granted y waited muestran cuánto
+ * choque hubo realmente.
+ *
+ * @author calbe
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LockBenchmark {
+    
+    /** Tabla de locks compartida por todos los hilos. */
+    @State(Scope.Benchmark)
+    public static class Table {
+        // Cantidad de registros: con pocos, la mayoría de los pedidos tiene que esperar
+        @Param({"8", "1024"})
+        public int records;
+        
+        // Porcentaje de pedidos exclusivos
+        @Param({"50"})
+        public int writePercent;
+        
+        // Locks que pide cada transacción antes de liberarlos todos juntos
+        @Param({"1", "4"})
+        public int locksPerTransaction;
+        
+        WaitForGraph graph;
+        LockManager lockManager;
+        String[] recordIds;
+        
+        @Setup(Level.Trial)
+        public void setUp() {
+            graph = new WaitForGraph();
+            lockManager = new LockManager(graph);
+            recordIds = new String[records];
+            for (int i = 0; i < records; i++) {
+                recordIds[i] = "R" + i;
+                graph.getOrCreateRecord(recordIds[i]);
+            }
+        }
+    }
+    
+    /** Secuencia de pedidos de cada hilo. */
+    @State(Scope.Thread)
+    public static class Client {
+        private static int clients;
+        
+        String prefix;
+        Random random;
+        long next;
+        
+        @Setup(Level.Trial)
+        public void setUp() {
+            synchronized (Client.class) {
+                prefix = "C" + (clients++) + "_";
+            }
+            random = new Random(GraphShape.SEED + prefix.hashCode());
+        }
+    }
+    
+    /** Pedidos concedidos y pedidos que quedaron en espera, por hilo. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcome {
+        public long granted;
+        public long waited;
+    }
+    
+    @Benchmark
+    @Threads(1)
+    public LockManager.Status acquireRelease(Table table, Client client, Outcome outcome) {
+        return run(table, client, outcome);
+    }
+    
+    @Benchmark
+    @Threads(4)
+    public LockManager.Status acquireReleaseContended(Table table, Client client, Outcome outcome) {
+        return run(table, client, outcome);
+    }
+    
+    private static LockManager.Status run(Table table, Client client, Outcome outcome) {
+        Transaction transaction = new Transaction(client.prefix + (client.next++));
+        table.graph.addTransaction(transaction);
+        LockManager.Status status = null;
+        for (int i = 0; i < table.locksPerTransaction; i++) {
+            String recordId = table.recordIds[client.random.nextInt(table.records)];
+            Record.LockMode mode = client.random.nextInt(100) < table.writePercent
+                    ? Record.LockMode.EXCLUSIVE : Record.LockMode.SHARED;
+            status = table.lockManager.acquire(transaction, recordId, mode).getStatus();
+            if (status == LockManager.Status.WAITING) {
+                outcome.waited++;
+                break;
+            }
+            outcome.granted++;
+        }
+        table.lockManager.release(transaction.getId());
+        return status;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package benchmark;
+
+import controller.WriteAheadLog;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Costo de registrar una operación en el WriteAheadLog. Con group commit
+ * el force se reparte entre todos los registros del lote; awaitEach espera
+ * el disco en cada registro, que es lo que costaría sin agruparlos.
+ *
+ * @author calbe
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogBenchmark {
+    @Param({"1", "10"})
+    public long groupCommitMs;
+    
+    private Path file;
+    private WriteAheadLog log;
+    private String[] operations;
+    private int next;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("wal", ".log");
+        Files.delete(file);
+        log = WriteAheadLog.open(file, groupCommitMs, null);
+        operations = new String[1024];
+        for (int i = 0; i < operations.length; i++) {
+            operations[i] = (i % 2 == 0 ? "read(T" : "write(T") + i + ",R" + (i * 31 % 97) + ")";
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        log.close();
+        Files.deleteIfExists(file);
+    }
+    
+    @Benchmark
+    public long append() throws IOException {
+        next = (next + 1) & (operations.length - 1);
+        log.append(WriteAheadLog.RecordType.OPERATION_ADDED, operations[next]);
+        return log.append(WriteAheadLog.RecordType.OPERATION_PROCESSED);
+    }
+    
+    @Benchmark
+    public long awaitEach() throws IOException {
+        next = (next + 1) & (operations.length - 1);
+        long position = log.append(WriteAheadLog.RecordType.OPERATION_ADDED, operations[next]);
+        log.awaitDurable(position);
+        return position;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package benchmark;
+
+import controller.DeadlockController;
+import model.Operation;
+import model.OperationParser;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Costo de convertir texto en operaciones: una operación suelta con
+ * Operation.parseOperation o con un OperationParser propio (con y sin
+ * pool), y un lote completo con addMultipleOperations, que además separa
+ * por comas y encola.
+ *
+ * @author calbe
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParsingBenchmark {
+    private String[] operations;
+    private int next;
+    private OperationParser parser;
+    private OperationParser pooledParser;
+    
+    /** Lote de operaciones separado por comas, como lo escribe la interfaz. */
+    @State(Scope.Thread)
+    public static class Batch {
+        @Param({"10", "1000", "100000"})
+        public int batchSize;
+        
+        // Con el registro activo cada operación agrega además una entrada al log
+        @Param({"false", "true"})
+        public boolean logEnabled;
+        
+        String input;
+        DeadlockController controller;
+        
+        @Setup(Level.Trial)
+        public void setUp() {
+            StringBuilder builder = new StringBuilder();
+            for (String op : randomOperations(batchSize)) {
+                builder.append(builder.length() == 0 ? "" : ", ").append(op);
+            }
+            input = builder.toString();
+            controller = new DeadlockController();
+            controller.setLogEnabled(logEnabled);
+        }
+        
+        // La cola crecería sin límite entre invocaciones; el registro se vacía
+        // para que cada invocación parta del mismo estado
+        @Setup(Level.Invocation)
+        public void clearQueue() {
+            controller.getOperationQueue().clear();
+            controller.getEventLog().clear();
+        }
+    }
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        operations = randomOperations(1024);
+        parser = new OperationParser();
+        pooledParser = new OperationParser(true);
+    }
+    
+    static String[] randomOperations(int count) {
+        Random random = new Random(GraphShape.SEED);
+        String[] operations = new String[count];
+        for (int i = 0; i < count; i++) {
+            switch (random.nextInt(3)) {
+                case 0: operations[i] = "read(T" + random.nextInt(100) + ",R" + random.nextInt(1000) + ")"; break;
+                case 1: operations[i] = "write(T" + random.nextInt(100) + ",R" + random.nextInt(1000) + ")"; break;
+                default: operations[i] = "end(T" + random.nextInt(100) + ")"; break;
+            }
+        }
+        return operations;
+    }
+    
+    @Benchmark
+    public Operation parseOperation() {
+        next = (next + 1) & (operations.length - 1);
+        return Operation.parseOperation(operations[next]);
+    }
+    
+    @Benchmark
+    public Operation parser() {
+        next = (next + 1) & (operations.length - 1);
+        return parser.parse(operations[next]);
+    }
+    
+    @Benchmark
+    public Operation pooledParser() {
+        next = (next + 1) & (operations.length - 1);
+        return pooledParser.parse(operations[next]);
+    }
+    
+    @Benchmark
+    public int addMultipleOperations(Batch batch) {
+        batch.controller.addMultipleOperations(batch.input);
+        return batch.controller.getOperationQueue().size();
+    }
+}
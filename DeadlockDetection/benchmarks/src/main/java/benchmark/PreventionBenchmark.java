@@ -0,0 +1,125 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package benchmark;
+
+import controller.DeadlockController;
+import model.PreventionPolicy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Un schedule completo procesado por el DeadlockController con detección
+ * (grafo de espera y víctimas) o con prevención por antigüedad. Los tres
+ * modos reciben exactamente las mismas operaciones; además del tiempo se
+ * reportan commits y abortos, sumados en cada iteración: su cociente es la
+ * tasa de abortos por commit del modo.
+ *
+ * @author calbe
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PreventionBenchmark {
+    
+    // DETECTION usa el grafo; los otros dos nombran una PreventionPolicy
+    @Param({"DETECTION", "WAIT_DIE", "WOUND_WAIT"})
+    public String mode;
+    
+    // Con pocos registros casi todas las transacciones se cruzan
+    @Param({"64", "1024"})
+    public int records;
+    
+    @Param({"1000"})
+    public int transactions;
+    
+    // Transacciones abiertas a la vez mientras se intercalan sus operaciones
+    @Param({"16"})
+    public int concurrency;
+    
+    private String[] schedule;
+    private DeadlockController controller;
+    
+    /** Resultado de cada corrida; JMH lo informa junto al tiempo. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcome {
+        public long commits;
+        public long aborts;
+    }
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        schedule = interleavedSchedule(transactions, concurrency, records, 4, 50);
+        controller = new DeadlockController();
+        controller.setLogEnabled(false);
+    }
+    
+    @Setup(Level.Invocation)
+    public void load() {
+        controller.reset();
+        controller.setLogEnabled(false);
+        controller.setPreventionPolicy(mode.equals("DETECTION") ? null : PreventionPolicy.valueOf(mode));
+        for (String operation : schedule) {
+            controller.addOperation(operation);
+        }
+    }
+    
+    /**
+     * Intercala transacciones de operationsPerTransaction accesos: en cada paso
+     * avanza una de las abiertas al azar y, al completarse, emite su end y abre
+     * la siguiente.
+     */
+    static String[] interleavedSchedule(int transactionCount, int concurrency, int recordCount,
+                                        int operationsPerTransaction, int writePercent) {
+        Random random = new Random(GraphShape.SEED);
+        List<String> schedule = new ArrayList<>();
+        List<int[]> open = new ArrayList<>();
+        int started = 0;
+        while (started < transactionCount || !open.isEmpty()) {
+            while (open.size() < concurrency && started < transactionCount) {
+                open.add(new int[] { ++started, 0 });
+            }
+            int pick = random.nextInt(open.size());
+            int[] transaction = open.get(pick);
+            String id = "T" + transaction[0];
+            if (transaction[1]++ < operationsPerTransaction) {
+                String type = random.nextInt(100) < writePercent ? "write" : "read";
+                schedule.add(type + "(" + id + ",R" + random.nextInt(recordCount) + ")");
+            } else {
+                schedule.add("end(" + id + ")");
+                open.remove(pick);
+            }
+        }
+        return schedule.toArray(new String[0]);
+    }
+    
+    @Benchmark
+    public long processSchedule(Outcome outcome) {
+        while (controller.hasOperations()) {
+            controller.processNextOperation();
+        }
+        outcome.commits += controller.getCommitCount();
+        outcome.aborts += controller.getAbortCount();
+        return controller.getCommitCount();
+    }
+}
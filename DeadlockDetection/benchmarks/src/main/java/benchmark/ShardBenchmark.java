@@ -0,0 +1,70 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package benchmark;
+
+import engine.ConcurrentDriver;
+import engine.ConcurrentReport;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * La misma carga concurrente repartida en 1 a 8 particiones, cada una con su
+ * grafo, su LockManager y su detector. Con muchos registros casi no hay
+ * ciclos y se mide cuánto se gana al no compartir el monitor del grafo; con
+ * pocos, cuánto cuestan las sondas entre particiones. Cada corrida crea sus
+ * propios hilos, así que la escala depende de los núcleos de la máquina.
+ *
+ * @author calbe
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ShardBenchmark {
+    @Param({"1", "2", "4", "8"})
+    public int shards;
+    
+    @Param({"1000", "100000"})
+    public int records;
+    
+    @Param({"20000"})
+    public int transactions;
+    
+    /** Resultado de cada corrida; JMH lo informa junto al tiempo. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcome {
+        public long commits;
+        public long aborts;
+        public long deadlocks;
+        public long probes;
+    }
+    
+    // El driver se arma en la medición: run() lo consume y generar la carga es
+    // despreciable frente a lanzar un hilo por transacción
+    @Benchmark
+    public long run(Outcome outcome) throws InterruptedException {
+        ConcurrentDriver driver = new ConcurrentDriver(shards);
+        driver.generate(transactions, records, 4, 50, GraphShape.SEED);
+        ConcurrentReport report = driver.run();
+        outcome.commits += report.getCommits();
+        outcome.aborts += report.getAborts();
+        outcome.deadlocks += report.getDeadlocks();
+        outcome.probes += report.getProbes();
+        return report.getCommits();
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package benchmark;
+
+import controller.DeadlockController;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Costo de escribir y de cargar el snapshot binario del controlador. Cada
+ * transacción toma un registro compartido con otra y espera o tiene uno
+ * propio pendiente, así que el snapshot lleva grafo, locks y esperas.
+ *
+ * @author calbe
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class SnapshotBenchmark {
+    @Param({"100000", "1000000"})
+    public int transactions;
+    
+    private DeadlockController controller;
+    private Path file;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        controller = new DeadlockController();
+        controller.setLogEnabled(false);
+        for (int t = 0; t < transactions; t++) {
+            controller.addOperation("write(T" + t + ",R" + (t % (transactions / 2)) + ")");
+            controller.addOperation("read(T" + t + ",Q" + t + ")");
+        }
+        while (controller.hasOperations()) {
+            controller.processNextOperation();
+        }
+        file = Files.createTempFile("state", ".snap");
+        controller.checkpoint(file);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+    
+    @Benchmark
+    public long checkpoint() throws IOException {
+        controller.checkpoint(file);
+        return Files.size(file);
+    }
+    
+    @Benchmark
+    public int restore() throws IOException {
+        DeadlockController restored = new DeadlockController();
+        restored.setLogEnabled(false);
+        return restored.restore(file);
+    }
+}
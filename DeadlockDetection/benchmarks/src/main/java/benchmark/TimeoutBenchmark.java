@@ -0,0 +1,85 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package benchmark;
+
+import model.TimingWheel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Programar y cancelar el plazo de una espera en la TimingWheel con
+ * distinta cantidad de plazos ya pendientes: el costo no debería crecer
+ * con ellos. También avanzar un tick, que es lo que paga el detector.
+ *
+ * @author calbe
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeoutBenchmark {
+    private static final long TICK = TimeUnit.MILLISECONDS.toNanos(1);
+    
+    @Param({"1000", "1000000"})
+    public int pending;
+    
+    private TimingWheel<Integer> wheel;
+    private long[] delays;
+    private long now;
+    private int next;
+    private List<Integer> expired;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(GraphShape.SEED);
+        wheel = new TimingWheel<>(TICK, 0);
+        // Plazos entre 1 ms y 1 min, como los de esperas de distinto timeout
+        delays = new long[1024];
+        for (int i = 0; i < delays.length; i++) {
+            delays[i] = TICK + (long) (random.nextDouble() * TimeUnit.MINUTES.toNanos(1));
+        }
+        for (int i = 0; i < pending; i++) {
+            wheel.schedule(i, delays[i & (delays.length - 1)]);
+        }
+        now = 0;
+        expired = new ArrayList<>();
+    }
+    
+    @Benchmark
+    public TimingWheel.Timeout<Integer> scheduleCancel() {
+        next = (next + 1) & (delays.length - 1);
+        TimingWheel.Timeout<Integer> timeout = wheel.schedule(next, now + delays[next]);
+        wheel.cancel(timeout);
+        return timeout;
+    }
+    
+    // Cada tick vence en promedio pending / 60000 plazos; se reprograman para no vaciar la rueda
+    @Benchmark
+    public int advanceTick() {
+        now += TICK;
+        expired.clear();
+        wheel.advance(now, expired);
+        for (Integer value : expired) {
+            wheel.schedule(value, now + delays[value & (delays.length - 1)]);
+        }
+        return expired.size();
+    }
+}
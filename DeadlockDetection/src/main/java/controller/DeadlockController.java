@@ -5,50 +5,151 @@
 package controller;
 
 import model.Record;
+import model.LockManager;
 import model.Operation;
+import model.OperationParser;
+import model.PreventionPolicy;
 import model.WaitForGraph;
+import model.ScheduleReader;
 import model.Transaction;
+import model.VictimSelector;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  *
  * @author calbe
  */
 public class DeadlockController {
+    /**
+     * SINGLE_CYCLE resuelve un ciclo por operación; ALL_COMPONENTS calcula
+     * todas las componentes fuertemente conexas y las resuelve en una pasada.
+     * TIMEOUT_ONLY no registra aristas de espera: un deadlock solo se corta
+     * cuando vence el timeout de alguna de sus esperas (setWaitTimeoutMs).
+     */
+    public enum DetectionMode { SINGLE_CYCLE, ALL_COMPONENTS, TIMEOUT_ONLY }
+    
     private WaitForGraph graph;
+    private LockManager lockManager;
     private Queue<Operation> operationQueue;
-    private List<String> log;
-    private boolean processing;
+    private final EventLog eventLog;
+    private final AtomicBoolean processing;
+    // Ciclo reportado por la última arista agregada, si cerró uno
+    private List<String> detectedCycle;
+    private DetectionMode detectionMode;
+    private List<DeadlockListener> deadlockListeners;
+    // Protege el grafo y la cola frente al detector en segundo plano
+    private final Object stateLock;
+    private volatile DeadlockDetector detector;
+    // Transacciones reanudadas cuyas operaciones diferidas faltan ejecutar
+    private final Deque<Transaction> resumedTransactions;
+    private boolean resuming;
+    // Secuencia de inicio de las víctimas que se van a reiniciar
+    private final Map<String, Long> restartSequences;
+    // WAIT_DIE: operaciones de las que murieron, retenidas hasta que termine la más
+    // vieja que las hizo morir; si volvieran enseguida a la cola chocarían otra vez
+    private final Map<String, List<Operation>> dyingOperations;
+    private final Map<String, List<String>> diedFor;
+    private long abortCount;
+    private long commitCount;
+    private long wastedOperations;
+    private long timeoutCount;
+    // Schedule que se lee de a lotes a medida que la cola se vacía
+    private volatile ScheduleReader scheduleSource;
+    private int streamBatchSize;
+    // Internado de identificadores y operaciones repetidas; se usa bajo su propio monitor
+    private final OperationParser parser;
+    // Registro durable de lo que cambia el estado; null si no se registra
+    private volatile WriteAheadLog writeAheadLog;
+    // Final del último registro agregado al log; se usa bajo stateLock
+    private long logPosition;
+    // Generación del snapshot o del log del que viene el estado; se usa bajo stateLock
+    private long generation;
+    // Un checkpoint a la vez, y ninguna recuperación mientras escribe fuera del stateLock
+    private final Object checkpointLock;
+    private final DeadlockMetrics metrics;
     
     public DeadlockController() {
         this.graph = new WaitForGraph();
-        this.operationQueue = new LinkedList<>();
-        this.log = new ArrayList<>();
-        this.processing = false;
+        this.lockManager = new LockManager(graph);
+        this.operationQueue = new ConcurrentLinkedQueue<>();
+        this.eventLog = new EventLog();
+        this.processing = new AtomicBoolean(false);
+        this.detectionMode = DetectionMode.SINGLE_CYCLE;
+        this.deadlockListeners = new CopyOnWriteArrayList<>();
+        this.stateLock = new Object();
+        this.checkpointLock = new Object();
+        this.detector = null;
+        this.resumedTransactions = new ArrayDeque<>();
+        this.resuming = false;
+        this.restartSequences = new HashMap<>();
+        this.dyingOperations = new HashMap<>();
+        this.diedFor = new HashMap<>();
+        this.abortCount = 0;
+        this.commitCount = 0;
+        this.wastedOperations = 0;
+        this.timeoutCount = 0;
+        this.scheduleSource = null;
+        this.streamBatchSize = 0;
+        this.parser = new OperationParser(true);
+        this.writeAheadLog = null;
+        this.metrics = new DeadlockMetrics(graph, lockManager.getMetrics(), operationQueue);
     }
     
     public void addOperation(String operationString) {
+        addOperation((CharSequence) operationString);
+    }
+    
+    /**
+     * Igual que addOperation(String), pero sin copiar el texto: el lector
+     * de schedules pasa una vista que reutiliza entre operaciones.
+     */
+    public void addOperation(CharSequence operationString) {
+        if (isBlank(operationString)) {
+            eventLog.log(EventLog.Type.EMPTY_INPUT);
+            return;
+        }
+        Operation operation;
         try {
-            // Limpiar y validar la entrada
-            String cleanInput = operationString.trim();
-            if (cleanInput.isEmpty()) {
-                log.add("Error: Empty input");
-                return;
+            synchronized (parser) {
+                operation = parser.parse(operationString);
             }
-            
-            Operation operation = Operation.parseOperation(cleanInput);
-            operationQueue.add(operation);
-            log.add("Added operation: " + cleanInput);
         } catch (IllegalArgumentException e) {
-            log.add("Error: Invalid operation format - " + operationString);
-        } catch (StringIndexOutOfBoundsException e) {
-            log.add("Error: Malformed operation - " + operationString);
+            // La vista del lector se reutiliza: el detalle necesita su propia copia
+            if (eventLog.isEnabled(EventLog.Type.INVALID_OPERATION)) {
+                eventLog.log(EventLog.Type.INVALID_OPERATION, null, null, operationString.toString().trim());
+            }
+            return;
+        }
+        if (writeAheadLog != null) {
+            // La cola tiene que quedar en el mismo orden que el registro
+            synchronized (stateLock) {
+                appendToLog(WriteAheadLog.RecordType.OPERATION_ADDED, operationString);
+                operationQueue.add(operation);
+            }
+        } else {
+            operationQueue.add(operation);
+        }
+        eventLog.log(EventLog.Type.OPERATION_ADDED, operation.getTransactionId(), operation.getRecordId(), operation);
+    }
+    
+    private static boolean isBlank(CharSequence input) {
+        for (int i = 0; i < input.length(); i++) {
+            if (input.charAt(i) > ' ') {
+                return false;
+            }
         }
+        return true;
     }
     
     public void addMultipleOperations(String input) {
         if (input == null || input.trim().isEmpty()) {
-            log.add("Error: Empty input for multiple operations");
+            eventLog.log(EventLog.Type.EMPTY_BATCH);
             return;
         }
         
@@ -91,13 +192,103 @@ public class DeadlockController {
         return operations.toArray(new String[0]);
     }
     
+    /**
+     * Toma las operaciones de un schedule en streaming: en lugar de cargarlo
+     * completo, se leen hasta batchSize operaciones cada vez que la cola se
+     * vacía, así la memoria no depende del tamaño del archivo y la lectura
+     * nunca se adelanta al procesamiento.
+     */
+    public void streamOperations(ScheduleReader source, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+        }
+        synchronized (stateLock) {
+            closeScheduleSource();
+            this.streamBatchSize = batchSize;
+            this.scheduleSource = source;
+        }
+    }
+    
+    // Llamado por el hilo que procesa cuando la cola se vació
+    private void refillFromSource() {
+        ScheduleReader source = scheduleSource;
+        if (source == null) {
+            return;
+        }
+        try {
+            CharSequence operation;
+            for (int i = 0; i < streamBatchSize && (operation = source.nextSequence()) != null; i++) {
+                addOperation(operation);
+            }
+            if (source.isFinished()) {
+                closeScheduleSource();
+            }
+        } catch (IOException e) {
+            eventLog.log(EventLog.Type.READ_ERROR, null, null, e.getMessage());
+            closeScheduleSource();
+        }
+    }
+    
+    private void closeScheduleSource() {
+        ScheduleReader source = scheduleSource;
+        scheduleSource = null;
+        if (source != null) {
+            try {
+                source.close();
+            } catch (IOException e) {
+                eventLog.log(EventLog.Type.CLOSE_ERROR, null, null, e.getMessage());
+            }
+        }
+    }
+    
     public void processNextOperation() {
-        if (operationQueue.isEmpty() || processing) {
+        // Solo un hilo procesa la cola a la vez
+        if (!hasOperations() || !processing.compareAndSet(false, true)) {
+            return;
+        }
+        
+        try {
+            // Se toma bajo el lock: un aborto del detector entre medio reordenaría la cola
+            // respecto del registro
+            synchronized (stateLock) {
+                if (operationQueue.isEmpty()) {
+                    refillFromSource();
+                }
+                Operation operation = operationQueue.poll();
+                if (operation == null) {
+                    return;
+                }
+                appendToLog(WriteAheadLog.RecordType.OPERATION_PROCESSED, "");
+                processOperation(operation);
+                
+                // Verificar deadlock después de cada operación, salvo que lo haga
+                // el detector en segundo plano
+                if (detector == null) {
+                    checkForDeadlock();
+                }
+                expireTimedOutWaits();
+            }
+        } finally {
+            processing.set(false);
+        }
+    }
+    
+    private void processOperation(Operation operation) {
+        // Una transacción que murió junta sus operaciones hasta poder reiniciarse
+        List<Operation> held = dyingOperations.get(operation.getTransactionId());
+        if (held != null) {
+            held.add(operation);
             return;
         }
         
-        processing = true;
-        Operation operation = operationQueue.poll();
+        // Una transacción suspendida no avanza: sus operaciones esperan a que se reanude
+        Transaction transaction = graph.getTransaction(operation.getTransactionId());
+        if (transaction != null && transaction.isSuspended()) {
+            transaction.deferOperation(operation);
+            eventLog.log(EventLog.Type.OPERATION_DEFERRED, operation.getTransactionId(),
+                         operation.getRecordId(), operation);
+            return;
+        }
         
         switch(operation.getType()) {
             case READ:
@@ -108,10 +299,6 @@ public class DeadlockController {
                 processEndOperation(operation);
                 break;
         }
-        
-        // Verificar deadlock después de cada operación
-        checkForDeadlock();
-        processing = false;
     }
     
     private void processAccessOperation(Operation operation) {
@@ -120,33 +307,68 @@ public class DeadlockController {
         
         Transaction transaction = graph.getTransaction(transactionId);
         if (transaction == null) {
-            transaction = new Transaction(transactionId);
-            graph.addTransaction(transaction);
-            log.add("Created new transaction: " + transactionId);
+            Long restartSequence = restartSequences.get(transactionId);
+            transaction = restartSequence != null
+                    ? new Transaction(transactionId, restartSequence)
+                    : new Transaction(transactionId);
+            // Con prevención o solo timeouts no hay grafo que mantener: solo se registra
+            if (lockManager.tracksWaits()) {
+                graph.addTransaction(transaction);
+            } else {
+                graph.registerTransaction(transaction);
+            }
+            eventLog.log(EventLog.Type.TRANSACTION_CREATED, transactionId);
         }
         
         transaction.addOperation(operation);
         
-        Record record = graph.getOrCreateRecord(recordId);
+        // Las lecturas piden lock compartido; solo los conflictos reales generan aristas
+        Record.LockMode mode = operation.getType() == Operation.Type.READ
+                ? Record.LockMode.SHARED : Record.LockMode.EXCLUSIVE;
+        LockManager.LockResult result = lockManager.acquire(transaction, recordId, mode);
         
-        if (record.isLocked()) {
-            Transaction lockingTransaction = record.getLockedBy();
-            if (!lockingTransaction.getId().equals(transactionId)) {
-                // La transacción debe esperar
-                transaction.suspend();
-                graph.addEdge(transactionId, lockingTransaction.getId());
-                log.add("Transaction " + transactionId + " waits for " + 
-                        lockingTransaction.getId() + " (record: " + recordId + ")");
-                log.add("Added edge: " + transactionId + " -> " + lockingTransaction.getId());
-            } else {
+        switch (result.getStatus()) {
+            case ALREADY_HELD:
                 // La misma transacción ya tiene el lock
                 transaction.resume();
-            }
-        } else {
-            // Obtener el lock
-            record.lock(transaction);
-            transaction.resume();
-            log.add("Transaction " + transactionId + " locked record " + recordId);
+                transaction.markExecuted(operation);
+                break;
+            case UPGRADED:
+                transaction.resume();
+                transaction.markExecuted(operation);
+                eventLog.log(EventLog.Type.LOCK_UPGRADED, transactionId, recordId);
+                break;
+            case GRANTED:
+                transaction.resume();
+                transaction.markExecuted(operation);
+                eventLog.log(mode == Record.LockMode.SHARED ? EventLog.Type.LOCK_SHARED : EventLog.Type.LOCK_GRANTED,
+                             transactionId, recordId);
+                break;
+            case WAITING:
+                // La transacción debe esperar a cada dueño incompatible
+                transaction.suspend();
+                if (result.getCycle() != null) {
+                    detectedCycle = result.getCycle();
+                }
+                boolean edges = lockManager.tracksWaits();
+                for (String blocker : result.getBlockers()) {
+                    eventLog.log(EventLog.Type.WAITS, transactionId, recordId, blocker);
+                    if (edges) {
+                        eventLog.log(EventLog.Type.EDGE_ADDED, transactionId, recordId, blocker);
+                    }
+                }
+                // WOUND_WAIT: al abortar a las más jóvenes el registro le llega por la cola
+                for (String wounded : result.getWounded()) {
+                    eventLog.log(EventLog.Type.TRANSACTION_WOUNDED, wounded, recordId, transactionId);
+                    abortTransaction(wounded);
+                }
+                break;
+            case DENIED:
+                // WAIT_DIE: la más joven no espera; se reinicia con su misma antigüedad
+                String older = result.getBlockers().get(0);
+                eventLog.log(EventLog.Type.TRANSACTION_DIED, transactionId, recordId, older);
+                abortTransaction(transactionId, older);
+                break;
         }
     }
     
@@ -155,56 +377,283 @@ public class DeadlockController {
         Transaction transaction = graph.getTransaction(transactionId);
         
         if (transaction != null) {
+            // El commit se informa y libera sus locks recién con su end en disco
+            awaitLogDurable();
             transaction.finish();
-            graph.removeTransaction(transactionId);
-            log.add("Transaction " + transactionId + " finished and removed from graph");
+            commitCount++;
+            restartSequences.remove(transactionId);
+            List<Record.Waiter> granted = lockManager.release(transactionId);
+            eventLog.log(EventLog.Type.TRANSACTION_FINISHED, transactionId);
             
             // Reanudar transacciones que estaban esperando por esta
-            resumeWaitingTransactions();
+            resumeWaitingTransactions(granted);
+            restartDied(transactionId);
         }
     }
     
-    private void checkForDeadlock() {
-        if (graph.hasCycle()) {
-            log.add("DEADLOCK DETECTED!");
-            
-            List<String> cycle = graph.findCycle();
+    // Retorna true si encontró y resolvió algún deadlock
+    private boolean checkForDeadlock() {
+        long start = System.nanoTime();
+        boolean resolved = resolveDeadlocks();
+        metrics.recordDetection(System.nanoTime() - start);
+        return resolved;
+    }
+    
+    private boolean resolveDeadlocks() {
+        // El orden topológico en línea dice si hay ciclo sin recorrer el grafo; solo
+        // tras eliminaciones reintenta las aristas cíclicas con búsquedas acotadas
+        if (!graph.isDeadlocked()) {
+            return false;
+        }
+        
+        if (detectionMode == DetectionMode.ALL_COMPONENTS) {
+            return resolveAllDeadlocks();
+        }
+        
+        eventLog.log(EventLog.Type.DEADLOCK_DETECTED);
+        
+        // Usar el ciclo que reportó addEdge si sigue en pie; si se rompió desde
+        // entonces, o quedó otro pendiente tras una interrupción anterior, se
+        // recurre a la búsqueda completa. Verificar y abortar bajo el monitor
+        // del grafo impide que la víctima salga de un ciclo que ya no existe
+        List<String> cycle;
+        String victimId = null;
+        boolean aborted = false;
+        synchronized (graph) {
+            cycle = detectedCycle != null && graph.isCycle(detectedCycle) ? detectedCycle : graph.findCycle();
+            detectedCycle = null;
             if (cycle != null) {
-                log.add("Cycle found: " + String.join(" -> ", cycle));
+                eventLog.log(EventLog.Type.CYCLE_FOUND, null, null, cycle);
+                metrics.recordDeadlock(transactionCount(cycle));
                 
-                String youngestTransactionId = graph.getYoungestTransactionInCycle(cycle);
-                if (youngestTransactionId != null) {
-                    log.add("Interrupting youngest transaction: " + youngestTransactionId);
-                    
-                    // Reinsertar operaciones de la transacción interrumpida al final de la cola
-                    Transaction youngestTransaction = graph.getTransaction(youngestTransactionId);
-                    if (youngestTransaction != null) {
-                        List<Operation> operationsToReadd = new ArrayList<>();
-                        for (Operation op : youngestTransaction.getOperations()) {
-                            operationsToReadd.add(op);
-                        }
-                        
-                        // Reinsertar en la cola
-                        for (Operation op : operationsToReadd) {
-                            operationQueue.add(op);
-                        }
-                        
-                        // Remover la transacción del grafo
-                        graph.removeTransaction(youngestTransactionId);
-                        log.add("Transaction " + youngestTransactionId + " interrupted and operations re-queued");
-                    }
+                victimId = graph.chooseVictim(cycle);
+                if (victimId != null) {
+                    eventLog.log(EventLog.Type.VICTIM_CHOSEN, victimId, null, graph.getVictimSelector());
+                    aborted = abortVictim(victimId);
                 }
             }
         }
+        if (aborted) {
+            notifyDeadlocksResolved(Collections.singletonList(cycle),
+                                    Collections.singletonList(victimId));
+        }
+        return aborted;
+    }
+    
+    // Los ciclos de addEdge y findCycle repiten al final la transacción del principio
+    private static int transactionCount(List<String> cycle) {
+        int n = cycle.size();
+        return n > 1 && cycle.get(0).equals(cycle.get(n - 1)) ? n - 1 : n;
+    }
+    
+    // Una sola pasada de Tarjan encuentra todos los deadlocks y se resuelven juntos
+    private boolean resolveAllDeadlocks() {
+        detectedCycle = null;
+        List<List<String>> deadlocks = graph.findDeadlockedComponents();
+        if (deadlocks.isEmpty()) {
+            return false;
+        }
+        
+        List<String> victims = graph.chooseVictims(deadlocks);
+        eventLog.log(EventLog.Type.DEADLOCKS_FOUND, null, null, deadlocks);
+        for (List<String> deadlock : deadlocks) {
+            eventLog.log(EventLog.Type.DEADLOCKED_TRANSACTIONS, null, null, deadlock);
+            metrics.recordDeadlock(deadlock.size());
+        }
+        eventLog.log(EventLog.Type.VICTIMS_CHOSEN, null, null, victims);
+        
+        for (String victim : victims) {
+            abortVictim(victim);
+        }
+        notifyDeadlocksResolved(deadlocks, victims);
+        return true;
+    }
+    
+    /**
+     * Lleva la detección a un hilo propio con intervalo adaptativo entre
+     * minIntervalMs y maxIntervalMs; mientras esté activo, processNextOperation
+     * ya no verifica deadlocks después de cada operación.
+     */
+    public synchronized void startBackgroundDetection(long initialIntervalMs, long minIntervalMs, long maxIntervalMs) {
+        stopBackgroundDetection();
+        detector = new DeadlockDetector(this::runDetectionPass, graph::getEdgeCount,
+                                        initialIntervalMs, minIntervalMs, maxIntervalMs,
+                                        failure -> eventLog.log(EventLog.Type.DETECTION_ERROR, null, null, failure));
+        detector.start();
+        eventLog.log(EventLog.Type.DETECTOR_STARTED, null, null, initialIntervalMs);
+    }
+    
+    public void startBackgroundDetection(long intervalMs) {
+        startBackgroundDetection(intervalMs, Math.max(1, intervalMs / 8), intervalMs * 8);
+    }
+    
+    public synchronized void stopBackgroundDetection() {
+        if (detector != null) {
+            detector.stop();
+            detector = null;
+            eventLog.log(EventLog.Type.DETECTOR_STOPPED);
+        }
+    }
+    
+    // Pasada del detector en segundo plano, excluyente con el procesamiento
+    private boolean runDetectionPass() {
+        synchronized (stateLock) {
+            return expireTimedOutWaits() | checkForDeadlock();
+        }
+    }
+    
+    /**
+     * Aborta las transacciones cuya espera pasó el timeout; sus operaciones
+     * vuelven a la cola como las de una víctima. Lo llaman el procesamiento
+     * después de cada operación y el detector en segundo plano.
+     *
+     * @return true si venció alguna espera
+     */
+    public boolean expireWaits() {
+        synchronized (stateLock) {
+            return expireTimedOutWaits();
+        }
+    }
+    
+    private boolean expireTimedOutWaits() {
+        List<Record.Waiter> expired = lockManager.expireWaits(System.nanoTime());
+        long timeoutMs = lockManager.getWaitTimeoutMs();
+        for (Record.Waiter waiter : expired) {
+            Transaction transaction = waiter.getTransaction();
+            // Puede haber salido ya del grafo al abortar otra de la misma tanda
+            if (graph.getTransaction(transaction.getId()) != transaction) {
+                continue;
+            }
+            timeoutCount++;
+            eventLog.log(EventLog.Type.WAIT_TIMED_OUT, transaction.getId(), waiter.getRecord().getId(), timeoutMs);
+            abortVictim(transaction.getId());
+        }
+        return !expired.isEmpty();
+    }
+    
+    // Aborto que decidió la detección o un timeout: al reejecutar el registro no se repite solo
+    private boolean abortVictim(String transactionId) {
+        if (!abortTransaction(transactionId)) {
+            return false;
+        }
+        appendToLog(WriteAheadLog.RecordType.TRANSACTION_ABORTED, transactionId);
+        metrics.recordVictim();
+        return true;
     }
     
-    private void resumeWaitingTransactions() {
-        // Esta función podría implementar la reanudación de transacciones
-        // que estaban esperando por transacciones que han terminado
+    // Reinserta las operaciones de la víctima al final de la cola y la saca del grafo
+    private boolean abortTransaction(String transactionId) {
+        return abortTransaction(transactionId, null);
+    }
+    
+    /**
+     * Con restartAfter las operaciones no vuelven a la cola sino que quedan
+     * retenidas hasta que esa transacción termine o aborte.
+     */
+    private boolean abortTransaction(String transactionId, String restartAfter) {
+        Transaction transaction = graph.getTransaction(transactionId);
+        if (transaction == null) {
+            return false;
+        }
+        
+        // La instancia abortada no vuelve a usarse (al reiniciarse se crea otra); así
+        // tampoco se siguen ejecutando sus operaciones diferidas si estaba activa
+        transaction.finish();
+        
+        // Métricas de la política: interrupciones y operaciones ya ejecutadas que se pierden
+        abortCount++;
+        wastedOperations += transaction.getCurrentStep();
+        // Al reiniciarse conserva su secuencia de inicio para no quedar siempre como la más joven
+        restartSequences.put(transactionId, transaction.getStartSequence());
+        
+        // Reinsertar en la cola, incluidas las que quedaron diferidas
+        List<Operation> restart = new ArrayList<>(transaction.getOperations());
+        restart.addAll(transaction.getDeferredOperations());
+        if (restartAfter != null) {
+            dyingOperations.put(transactionId, takeQueued(transactionId, restart));
+            diedFor.computeIfAbsent(restartAfter, id -> new ArrayList<>()).add(transactionId);
+        } else {
+            requeue(takeQueued(transactionId, restart));
+        }
+        
+        // Remover la transacción del grafo y entregar sus registros a quienes esperan
+        List<Record.Waiter> granted = lockManager.release(transactionId);
+        eventLog.log(EventLog.Type.TRANSACTION_INTERRUPTED, transactionId);
+        resumeWaitingTransactions(granted);
+        restartDied(transactionId);
+        return true;
+    }
+    
+    // Las operaciones que la transacción aún tiene en la cola van después de las
+    // reinsertadas; si no, su end llegaría antes que la repetición
+    private List<Operation> takeQueued(String transactionId, List<Operation> restart) {
+        for (Iterator<Operation> it = operationQueue.iterator(); it.hasNext();) {
+            Operation op = it.next();
+            if (op.getTransactionId().equals(transactionId)) {
+                restart.add(op);
+                it.remove();
+            }
+        }
+        return restart;
+    }
+    
+    // Devuelve a la cola las transacciones que murieron por la que acaba de terminar o abortar
+    private void restartDied(String transactionId) {
+        List<String> died = diedFor.remove(transactionId);
+        if (died == null) {
+            return;
+        }
+        for (String id : died) {
+            requeue(takeQueued(id, dyingOperations.remove(id)));
+        }
+    }
+    
+    private void requeue(List<Operation> operations) {
+        operationQueue.addAll(operations);
+        metrics.recordRequeued(operations.size());
+    }
+    
+    private void notifyDeadlocksResolved(List<List<String>> deadlocks, List<String> victims) {
+        for (DeadlockListener listener : deadlockListeners) {
+            listener.deadlocksResolved(deadlocks, victims);
+        }
+    }
+    
+    private void resumeWaitingTransactions(List<Record.Waiter> granted) {
+        for (Record.Waiter waiter : granted) {
+            Transaction transaction = waiter.getTransaction();
+            transaction.resume();
+            // La operación que estaba bloqueada ya se ejecutó
+            Operation blocked = transaction.getCurrentOperation();
+            if (blocked != null) {
+                transaction.markExecuted(blocked);
+            }
+            eventLog.log(EventLog.Type.TRANSACTION_RESUMED, transaction.getId(), waiter.getRecord().getId());
+            resumedTransactions.addLast(transaction);
+        }
+        
+        // Las operaciones diferidas pueden terminar otras transacciones y despertar
+        // a más; se procesan con una cola de trabajo en lugar de recursión
+        if (resuming) {
+            return;
+        }
+        resuming = true;
+        try {
+            Transaction transaction;
+            while ((transaction = resumedTransactions.pollFirst()) != null) {
+                Operation op;
+                while (!transaction.isSuspended() && !transaction.isFinished()
+                        && (op = transaction.pollDeferredOperation()) != null) {
+                    processOperation(op);
+                }
+            }
+        } finally {
+            resuming = false;
+        }
     }
     
     public void processAllOperations() {
-        while (!operationQueue.isEmpty()) {
+        while (hasOperations()) {
             processNextOperation();
             try {
                 Thread.sleep(1000); // Pausa para visualización
@@ -215,20 +664,357 @@ public class DeadlockController {
     }
     
     public void reset() {
-        // Limpiar completamente el grafo
-        graph.clearAll();
-        this.operationQueue.clear();
-        this.log.clear();
-        this.processing = false;
+        synchronized (stateLock) {
+            clearState();
+            appendToLog(WriteAheadLog.RecordType.RESET, "");
+        }
         
         // Agregar mensaje inicial
-        log.add("=== System Reset ===");
-        log.add("Ready for new operations.");
+        eventLog.log(EventLog.Type.SYSTEM_RESET);
+        eventLog.log(EventLog.Type.READY);
+    }
+    
+    private void clearState() {
+        synchronized (stateLock) {
+            // Limpiar completamente el grafo
+            graph.clearAll();
+            lockManager.clearWaitTimeouts();
+            this.operationQueue.clear();
+            this.eventLog.clear();
+            this.processing.set(false);
+            this.detectedCycle = null;
+            this.resumedTransactions.clear();
+            this.restartSequences.clear();
+            this.dyingOperations.clear();
+            this.diedFor.clear();
+            this.abortCount = 0;
+            this.commitCount = 0;
+            this.wastedOperations = 0;
+            this.timeoutCount = 0;
+            closeScheduleSource();
+        }
+        synchronized (parser) {
+            parser.clear();
+        }
+    }
+    
+    /**
+     * Empieza a registrar en logFile, con group commit cada groupCommitMs, las
+     * operaciones que se agregan y se procesan y las víctimas que se abortan.
+     * Si el archivo ya tiene registros, antes descarta el estado actual y lo
+     * reconstruye reejecutándolos: el grafo, los registros con sus dueños y
+     * esperas, y la cola quedan como antes de la caída, salvo lo que no llegó
+     * a bajar a disco. La configuración (modo, prevención, selector, timeout)
+     * no se registra y tiene que ser la misma; un schedule en streaming no se
+     * retoma, solo vuelve lo que ya se había leído.
+     *
+     * @return cantidad de registros reejecutados
+     */
+    public long recover(Path logFile, long groupCommitMs) throws IOException {
+        return recover(null, logFile, groupCommitMs);
+    }
+    
+    /**
+     * Igual que recover(logFile, groupCommitMs), pero parte del snapshot que
+     * dejó el último checkpoint, si existe: solo se reejecuta lo que se
+     * registró después de él.
+     */
+    public long recover(Path snapshotFile, Path logFile, long groupCommitMs) throws IOException {
+        synchronized (checkpointLock) {
+            synchronized (stateLock) {
+                closeLog();
+                clearState();
+                long snapshotGeneration = 0;
+                if (snapshotFile != null && Files.exists(snapshotFile)) {
+                    snapshotGeneration = loadSnapshot(snapshotFile).logGeneration;
+                }
+                WriteAheadLog log;
+                try {
+                    log = WriteAheadLog.open(logFile, groupCommitMs, snapshotGeneration, new LogReplay());
+                } catch (RuntimeException e) {
+                    // Otra configuración toma otras decisiones y la cola deja de coincidir
+                    clearState();
+                    throw new IOException("Write-ahead log does not match this controller: " + logFile, e);
+                }
+                // El ciclo que dejó la última arista reejecutada pudo resolverse después
+                detectedCycle = null;
+                writeAheadLog = log;
+                generation = snapshotGeneration;
+                eventLog.log(EventLog.Type.LOG_RECOVERED, null, null, log.getRecoveredRecords());
+                return log.getRecoveredRecords();
+            }
+        }
+    }
+    
+    /**
+     * Guarda el estado completo (grafo, registros, transacciones y cola) en
+     * un snapshot binario. Con el write-ahead log abierto además lo vacía:
+     * para recuperar alcanza con el snapshot y lo que se registre después.
+     * <p>
+     * Bajo el stateLock solo se copia el estado y se rota el log; la
+     * codificación y el force van después, mientras siguen llegando
+     * operaciones. Si el checkpoint anterior no llegó a escribir su
+     * snapshot, este se hace entero bajo el lock.
+     */
+    public void checkpoint(Path snapshotFile) throws IOException {
+        synchronized (checkpointLock) {
+            WriteAheadLog log;
+            StateSnapshot.Copy copy;
+            synchronized (stateLock) {
+                log = writeAheadLog;
+                StateSnapshot snapshot = newSnapshot();
+                snapshot.logGeneration = nextGeneration(log);
+                snapshot.abortCount = abortCount;
+                snapshot.commitCount = commitCount;
+                snapshot.wastedOperations = wastedOperations;
+                snapshot.timeoutCount = timeoutCount;
+                copy = snapshot.capture();
+                generation = snapshot.logGeneration;
+                if (log != null && !log.rotate(snapshot.logGeneration)) {
+                    copy.write(snapshotFile);
+                    // Si se cae antes de vaciarlo, el registro quedó en una generación anterior y se descarta
+                    log.truncate(snapshot.logGeneration);
+                    log.discardPrevious();
+                    eventLog.log(EventLog.Type.CHECKPOINT_WRITTEN, null, null, snapshotFile);
+                    return;
+                }
+            }
+            copy.write(snapshotFile);
+            // Hasta acá una caída recupera con el snapshot anterior y los dos archivos del log
+            if (log != null) {
+                log.discardPrevious();
+            }
+            eventLog.log(EventLog.Type.CHECKPOINT_WRITTEN, null, null, snapshotFile);
+        }
+    }
+    
+    /**
+     * La generación que sigue a la del log. Sin log se toma el reloj: un
+     * snapshot así no tiene registro propio, y un log abierto antes, que
+     * cuenta sus generaciones desde 0, no debe tomarse por el suyo al
+     * recuperar. Con una generación mayor, ese log se descarta.
+     */
+    private long nextGeneration(WriteAheadLog log) {
+        if (log != null) {
+            return log.getGeneration() + 1;
+        }
+        return Math.max(generation + 1, System.currentTimeMillis());
+    }
+    
+    /**
+     * Descarta el estado actual y carga el de un snapshot. Deja de registrar
+     * en el write-ahead log: para seguir registrando, recover con ambos archivos.
+     *
+     * @return cantidad de transacciones cargadas
+     */
+    public int restore(Path snapshotFile) throws IOException {
+        synchronized (checkpointLock) {
+            synchronized (stateLock) {
+                closeLog();
+                clearState();
+                StateSnapshot snapshot = loadSnapshot(snapshotFile);
+                generation = snapshot.logGeneration;
+                return snapshot.transactionCount;
+            }
+        }
+    }
+    
+    private StateSnapshot loadSnapshot(Path snapshotFile) throws IOException {
+        StateSnapshot snapshot = newSnapshot();
+        try {
+            snapshot.read(snapshotFile);
+        } catch (IOException e) {
+            clearState();
+            throw e;
+        }
+        abortCount = snapshot.abortCount;
+        commitCount = snapshot.commitCount;
+        wastedOperations = snapshot.wastedOperations;
+        timeoutCount = snapshot.timeoutCount;
+        eventLog.log(EventLog.Type.SNAPSHOT_RESTORED, null, null, snapshot.transactionCount);
+        return snapshot;
+    }
+    
+    private StateSnapshot newSnapshot() {
+        return new StateSnapshot(graph, lockManager, operationQueue, restartSequences, dyingOperations, diedFor);
+    }
+    
+    /** Deja de registrar; lo pendiente baja a disco antes de cerrar. */
+    public void closeLog() throws IOException {
+        synchronized (stateLock) {
+            WriteAheadLog log = writeAheadLog;
+            writeAheadLog = null;
+            if (log != null) {
+                log.close();
+            }
+        }
     }
     
+    // Espera a que todo lo registrado hasta ahora esté en disco
+    public void syncLog() throws IOException {
+        WriteAheadLog log = writeAheadLog;
+        if (log != null) {
+            log.sync();
+        }
+    }
+    
+    // Llamado bajo stateLock, para que el orden del registro sea el de los cambios
+    private void appendToLog(WriteAheadLog.RecordType type, CharSequence detail) {
+        WriteAheadLog log = writeAheadLog;
+        if (log == null) {
+            return;
+        }
+        try {
+            logPosition = log.append(type, detail);
+        } catch (IOException e) {
+            disableLog(log, e);
+        }
+    }
+    
+    /**
+     * Espera a que lo registrado hasta ahora, incluida la operación en curso,
+     * esté en disco. El group commit sigue juntando el resto de los registros;
+     * cada commit espera al force que cubre el suyo.
+     */
+    private void awaitLogDurable() {
+        WriteAheadLog log = writeAheadLog;
+        if (log == null) {
+            return;
+        }
+        try {
+            log.awaitDurable(logPosition);
+        } catch (IOException e) {
+            disableLog(log, e);
+        }
+    }
+    
+    private void disableLog(WriteAheadLog log, IOException e) {
+        // Sin registro durable se sigue solo en memoria
+        eventLog.log(EventLog.Type.LOG_ERROR, null, null, e.getMessage());
+        writeAheadLog = null;
+        try {
+            log.close();
+        } catch (IOException ignored) {
+            // Ya se reportó la falla original
+        }
+    }
+    
+    // Reejecuta los registros con el mismo código que los produjo, sin volver a registrarlos
+    private class LogReplay implements WriteAheadLog.Visitor {
+        @Override
+        public void operationAdded(String operation) {
+            synchronized (parser) {
+                operationQueue.add(parser.parse(operation));
+            }
+        }
+        
+        @Override
+        public void operationProcessed() {
+            Operation operation = operationQueue.poll();
+            if (operation == null) {
+                throw new IllegalStateException("Write-ahead log processes an operation that was never queued");
+            }
+            processOperation(operation);
+        }
+        
+        @Override
+        public void transactionAborted(String transactionId) {
+            abortTransaction(transactionId);
+        }
+        
+        @Override
+        public void reset() {
+            clearState();
+        }
+    }
+    
+    public void addDeadlockListener(DeadlockListener listener) {
+        deadlockListeners.add(listener);
+    }
+    
+    public void removeDeadlockListener(DeadlockListener listener) {
+        deadlockListeners.remove(listener);
+    }
+    
+    public void setDetectionMode(DetectionMode detectionMode) {
+        synchronized (stateLock) {
+            this.detectionMode = detectionMode;
+            lockManager.setWaitEdgesEnabled(detectionMode != DetectionMode.TIMEOUT_ONLY);
+        }
+    }
+    
+    public DetectionMode getDetectionMode() { return detectionMode; }
+    
+    /**
+     * Previene los deadlocks por antigüedad (WAIT_DIE o WOUND_WAIT) en lugar
+     * de detectarlos; null vuelve a la detección con el grafo de espera.
+     * Conviene elegirla antes de procesar o después de reset().
+     */
+    public void setPreventionPolicy(PreventionPolicy preventionPolicy) {
+        synchronized (stateLock) {
+            lockManager.setPreventionPolicy(preventionPolicy);
+        }
+    }
+    
+    public PreventionPolicy getPreventionPolicy() { return lockManager.getPreventionPolicy(); }
+    
+    public void setVictimSelector(VictimSelector victimSelector) {
+        graph.setVictimSelector(victimSelector);
+    }
+    
+    public VictimSelector getVictimSelector() { return graph.getVictimSelector(); }
+    
+    /**
+     * Plazo máximo de cada espera por un lock, en ms; 0 (por defecto) espera
+     * sin límite. Sirve de respaldo a la detección y a la prevención, o como
+     * único mecanismo con DetectionMode.TIMEOUT_ONLY.
+     */
+    public void setWaitTimeoutMs(long waitTimeoutMs) {
+        lockManager.setWaitTimeoutMs(waitTimeoutMs);
+    }
+    
+    public long getWaitTimeoutMs() { return lockManager.getWaitTimeoutMs(); }
+    public long getAbortCount() { return abortCount; }
+    public long getCommitCount() { return commitCount; }
+    // Abortos por espera vencida (también se cuentan en getAbortCount)
+    public long getTimeoutCount() { return timeoutCount; }
+    // Operaciones ya ejecutadas por las víctimas que hubo que repetir
+    public long getWastedOperations() { return wastedOperations; }
+    
+    public double getAbortRate() {
+        long total = abortCount + commitCount;
+        return total == 0 ? 0.0 : (double) abortCount / total;
+    }
+    public DeadlockDetector getDeadlockDetector() { return detector; }
+    public WriteAheadLog getWriteAheadLog() { return writeAheadLog; }
+    public DeadlockMetrics getMetrics() { return metrics; }
+    
+    // Sin registro de eventos cuando se procesan trazas grandes sin interfaz
+    public void setLogEnabled(boolean logEnabled) {
+        eventLog.setLevel(logEnabled ? EventLog.Level.DEBUG : EventLog.Level.OFF);
+    }
+    
+    public boolean isLogEnabled() { return eventLog.getLevel() != EventLog.Level.OFF; }
+    
+    public void setLogLevel(EventLog.Level level) {
+        eventLog.setLevel(level);
+    }
+    
+    public EventLog.Level getLogLevel() { return eventLog.getLevel(); }
+    
     // Getters para la GUI
     public WaitForGraph getGraph() { return graph; }
+    public LockManager getLockManager() { return lockManager; }
     public Queue<Operation> getOperationQueue() { return operationQueue; }
-    public List<String> getLog() { return log; }
-    public boolean hasOperations() { return !operationQueue.isEmpty(); }
-}
\ No newline at end of file
+    // Solo los últimos eventos que caben en el registro, ya convertidos en texto
+    public List<String> getLog() { return eventLog.format(); }
+    public EventLog getEventLog() { return eventLog; }
+    public boolean hasOperations() { return !operationQueue.isEmpty() || scheduleSource != null; }
+    
+    // Sin operaciones, deadlocks ni esperas con plazo pendientes; excluyente con la pasada del detector
+    public boolean isIdle() {
+        synchronized (stateLock) {
+            return !hasOperations() && !graph.isDeadlocked() && lockManager.getPendingTimeouts() == 0;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package controller;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Ejecuta la detección de deadlocks en un hilo propio, fuera del camino de
+ * cada operación. El intervalo entre pasadas se adapta: se reduce a la mitad
+ * cuando se encuentra un deadlock o crecen las esperas, y se duplica mientras
+ * el grafo siga sin ciclos, siempre dentro de [mínimo, máximo].
+ *
+ * Una pasada que falla se informa y la siguiente se programa igual, aunque
+ * la falla sea un Error.
+ *
+ * @author calbe
+ */
+public class DeadlockDetector {
+    private final BooleanSupplier detectionPass;
+    private final IntSupplier waitCount;
+    private final Consumer<Throwable> onFailure;
+    private final long minIntervalMs;
+    private final long maxIntervalMs;
+    private volatile long currentIntervalMs;
+    private volatile long runs;
+    private volatile long deadlockRuns;
+    private volatile long failedRuns;
+    private int lastWaitCount;
+    private ScheduledExecutorService executor;
+    // Próxima pasada programada (o la que está corriendo); se cambia dentro del monitor
+    private ScheduledFuture<?> next;
+    // Alguien pidió una pasada mientras corría otra: la siguiente sale sin esperar
+    private boolean passRequested;
+    
+    /**
+     * Sin manejador, las fallas se informan como excepciones no capturadas
+     * del hilo del detector.
+     *
+     * @param detectionPass ejecuta una pasada y retorna true si resolvió algún deadlock
+     * @param waitCount     cantidad actual de esperas (aristas del grafo)
+     */
+    public DeadlockDetector(BooleanSupplier detectionPass, IntSupplier waitCount,
+                            long initialIntervalMs, long minIntervalMs, long maxIntervalMs) {
+        this(detectionPass, waitCount, initialIntervalMs, minIntervalMs, maxIntervalMs,
+             failure -> Thread.currentThread().getUncaughtExceptionHandler()
+                     .uncaughtException(Thread.currentThread(), failure));
+    }
+    
+    /**
+     * @param onFailure recibe, en el hilo del detector, lo que lanzó una pasada
+     */
+    public DeadlockDetector(BooleanSupplier detectionPass, IntSupplier waitCount,
+                            long initialIntervalMs, long minIntervalMs, long maxIntervalMs,
+                            Consumer<Throwable> onFailure) {
+        if (minIntervalMs <= 0 || minIntervalMs > maxIntervalMs) {
+            throw new IllegalArgumentException("Invalid detection interval range: "
+                    + minIntervalMs + ".." + maxIntervalMs);
+        }
+        this.detectionPass = detectionPass;
+        this.waitCount = waitCount;
+        this.onFailure = onFailure;
+        this.minIntervalMs = minIntervalMs;
+        this.maxIntervalMs = maxIntervalMs;
+        this.currentIntervalMs = Math.max(minIntervalMs, Math.min(maxIntervalMs, initialIntervalMs));
+    }
+    
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "deadlock-detector");
+            thread.setDaemon(true);
+            return thread;
+        });
+        lastWaitCount = waitCount.getAsInt();
+        next = executor.schedule(this::runPass, currentIntervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+            next = null;
+        }
+    }
+    
+    /**
+     * Adelanta la próxima pasada a ahora, sin tocar el intervalo. Si ya hay
+     * una corriendo, la siguiente sale apenas termine esa en lugar de
+     * esperar el intervalo: lo que motivó el pedido puede haber llegado tarde.
+     */
+    public synchronized void requestPass() {
+        if (next == null) {
+            return;
+        }
+        if (next.getDelay(TimeUnit.NANOSECONDS) > 0 && next.cancel(false)) {
+            next = executor.schedule(this::runPass, 0, TimeUnit.MILLISECONDS);
+        } else {
+            passRequested = true;
+        }
+    }
+    
+    public synchronized boolean isRunning() {
+        return executor != null;
+    }
+    
+    private void runPass() {
+        boolean found = false;
+        try {
+            found = detectionPass.getAsBoolean();
+        } catch (RuntimeException | Error e) {
+            // Una pasada fallida no debe detener al detector, pero tampoco pasar inadvertida
+            failedRuns++;
+            onFailure.accept(e);
+        }
+        runs++;
+        
+        int waits = waitCount.getAsInt();
+        if (found) {
+            deadlockRuns++;
+            currentIntervalMs = Math.max(minIntervalMs, currentIntervalMs / 2);
+        } else if (waits > lastWaitCount) {
+            // Las esperas se acumulan: conviene revisar más seguido
+            currentIntervalMs = Math.max(minIntervalMs, currentIntervalMs / 2);
+        } else {
+            currentIntervalMs = Math.min(maxIntervalMs, currentIntervalMs * 2);
+        }
+        lastWaitCount = waits;
+        
+        synchronized (this) {
+            if (executor != null) {
+                long delay = passRequested ? 0 : currentIntervalMs;
+                passRequested = false;
+                next = executor.schedule(this::runPass, delay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+    
+    // Getters
+    public long getCurrentIntervalMs() { return currentIntervalMs; }
+    public long getMinIntervalMs() { return minIntervalMs; }
+    public long getMaxIntervalMs() { return maxIntervalMs; }
+    public long getRuns() { return runs; }
+    public long getDeadlockRuns() { return deadlockRuns; }
+    public long getFailedRuns() { return failedRuns; }
+}
@@ -0,0 +1,22 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package controller;
+
+import java.util.List;
+
+/**
+ * Recibe los deadlocks resueltos en cada pasada de detección, por ejemplo
+ * para llevar métricas.
+ *
+ * @author calbe
+ */
+public interface DeadlockListener {
+    
+    /**
+     * @param deadlocks transacciones de cada deadlock encontrado en la pasada
+     * @param victims   transacciones interrumpidas para romperlos
+     */
+    void deadlocksResolved(List<List<String>> deadlocks, List<String> victims);
+}
@@ -0,0 +1,167 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package controller;
+
+import model.LockMetrics;
+import model.WaitForGraph;
+import java.lang.management.ManagementFactory;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Junta los contadores del LockManager con los de la detección y los
+ * publica como MBean. Registrar no cuesta memoria: los contadores son
+ * LongAdder y los histogramas tienen intervalos fijos. Los valores del
+ * momento (vértices, aristas, cola) se calculan recién cuando se leen:
+ * vértices y aristas son copias que el grafo mantiene y se leen sin su
+ * monitor; la profundidad de la cola la recorre entera.
+ *
+ * La usan el DeadlockController y cada partición del ConcurrentDriver,
+ * que para ella pasa como cola la de sus sondas pendientes.
+ *
+ * @author calbe
+ */
+public class DeadlockMetrics implements DeadlockMetricsMBean {
+    // 1 µs a 1 s, en pasos 1-2-5
+    private static final long[] LATENCY_BOUNDS_NANOS = {
+        1_000, 2_000, 5_000, 10_000, 20_000, 50_000, 100_000, 200_000, 500_000,
+        1_000_000, 2_000_000, 5_000_000, 10_000_000, 20_000_000, 50_000_000,
+        100_000_000, 200_000_000, 500_000_000, 1_000_000_000
+    };
+    private static final long[] CYCLE_LENGTH_BOUNDS = { 1, 2, 3, 4, 5, 6, 8, 12, 16, 32, 64, 128, 256 };
+    
+    private final WaitForGraph graph;
+    private final LockMetrics lockMetrics;
+    private final Queue<?> queue;
+    private final LongAdder detectionRuns;
+    private final LongAdder deadlocksFound;
+    private final MetricHistogram detectionLatency;
+    private final MetricHistogram cycleLengths;
+    private final LongAdder victimsAborted;
+    private final LongAdder operationsRequeued;
+    private ObjectName objectName;
+    
+    public DeadlockMetrics(WaitForGraph graph, LockMetrics lockMetrics, Queue<?> queue) {
+        this.graph = graph;
+        this.lockMetrics = lockMetrics;
+        this.queue = queue;
+        this.detectionRuns = new LongAdder();
+        this.deadlocksFound = new LongAdder();
+        this.detectionLatency = new MetricHistogram(LATENCY_BOUNDS_NANOS);
+        this.cycleLengths = new MetricHistogram(CYCLE_LENGTH_BOUNDS);
+        this.victimsAborted = new LongAdder();
+        this.operationsRequeued = new LongAdder();
+        this.objectName = null;
+    }
+    
+    /**
+     * Publica las métricas en el MBeanServer de la plataforma como
+     * DeadlockDetection:type=DeadlockMetrics,name=name, para verlas con
+     * jconsole o cualquier cliente JMX.
+     */
+    public synchronized ObjectName register(String name) throws JMException {
+        unregister();
+        ObjectName objectName = new ObjectName("DeadlockDetection:type=DeadlockMetrics,name="
+                + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        this.objectName = objectName;
+        return objectName;
+    }
+    
+    public synchronized void unregister() throws JMException {
+        if (objectName != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            objectName = null;
+        }
+    }
+    
+    // Una pasada de detección, haya encontrado deadlocks o no
+    public void recordDetection(long nanos) {
+        detectionRuns.increment();
+        detectionLatency.record(nanos);
+    }
+    
+    // Un ciclo, o una componente con ALL_COMPONENTS, con su cantidad de transacciones distintas
+    public void recordDeadlock(int transactions) {
+        deadlocksFound.increment();
+        cycleLengths.record(transactions);
+    }
+    
+    public void recordVictim() {
+        victimsAborted.increment();
+    }
+    
+    void recordRequeued(int operations) {
+        operationsRequeued.add(operations);
+    }
+    
+    @Override
+    public long getLockRequests() { return lockMetrics.getRequests(); }
+    @Override
+    public long getImmediateGrants() { return lockMetrics.getImmediateGrants(); }
+    @Override
+    public long getLockWaits() { return lockMetrics.getWaits(); }
+    @Override
+    public long getLockDenials() { return lockMetrics.getDenials(); }
+    @Override
+    public long getGrantsAfterWait() { return lockMetrics.getGrantsAfterWait(); }
+    @Override
+    public long getWaitTimeouts() { return lockMetrics.getTimeouts(); }
+    @Override
+    public int getVertexCount() { return graph.getVertexCount(); }
+    @Override
+    public int getEdgeCount() { return graph.getEdgeCount(); }
+    @Override
+    public int getQueueDepth() { return queue.size(); }
+    @Override
+    public long getDetectionRuns() { return detectionRuns.sum(); }
+    @Override
+    public long getDeadlocksFound() { return deadlocksFound.sum(); }
+    @Override
+    public double getDetectionLatencyMeanMicros() { return detectionLatency.getMean() / 1000.0; }
+    @Override
+    public long getDetectionLatencyP99Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(detectionLatency.percentile(99));
+    }
+    @Override
+    public long getDetectionLatencyMaxMicros() { return TimeUnit.NANOSECONDS.toMicros(detectionLatency.getMax()); }
+    @Override
+    public long[] getDetectionLatencyBoundsNanos() { return detectionLatency.getBounds(); }
+    @Override
+    public long[] getDetectionLatencyCounts() { return detectionLatency.getCounts(); }
+    @Override
+    public double getCycleLengthMean() { return cycleLengths.getMean(); }
+    @Override
+    public long getCycleLengthMax() { return cycleLengths.getMax(); }
+    @Override
+    public long[] getCycleLengthBounds() { return cycleLengths.getBounds(); }
+    @Override
+    public long[] getCycleLengthCounts() { return cycleLengths.getCounts(); }
+    @Override
+    public long getVictimsAborted() { return victimsAborted.sum(); }
+    @Override
+    public long getOperationsRequeued() { return operationsRequeued.sum(); }
+    
+    public MetricHistogram getDetectionLatency() { return detectionLatency; }
+    public MetricHistogram getCycleLengths() { return cycleLengths; }
+    
+    @Override
+    public String toString() {
+        return String.format("locks: %d requests, %d immediate, %d waits, %d denied, %d timeouts%n"
+                + "detection: %d runs, %d deadlocks, mean %.1f us, p99 %d us, max %d us%n"
+                + "cycles: mean length %.1f, max %d; %d victims, %d operations requeued",
+                getLockRequests(), getImmediateGrants(), getLockWaits(), getLockDenials(), getWaitTimeouts(),
+                getDetectionRuns(), getDeadlocksFound(), getDetectionLatencyMeanMicros(),
+                getDetectionLatencyP99Micros(), getDetectionLatencyMaxMicros(),
+                getCycleLengthMean(), getCycleLengthMax(), getVictimsAborted(), getOperationsRequeued());
+    }
+}
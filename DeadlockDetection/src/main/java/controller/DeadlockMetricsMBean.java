@@ -0,0 +1,61 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package controller;
+
+/**
+ * Métricas del DeadlockController publicadas por JMX. Los contadores son
+ * acumulados desde que se creó el controlador; vértices, aristas y
+ * profundidad de la cola son el valor del momento. Los histogramas se
+ * exponen como límites superiores y cantidad por intervalo, con un
+ * intervalo más al final para lo que excede el último límite.
+ *
+ * @author calbe
+ */
+public interface DeadlockMetricsMBean {
+    
+    long getLockRequests();
+    
+    long getImmediateGrants();
+    
+    long getLockWaits();
+    
+    long getLockDenials();
+    
+    long getGrantsAfterWait();
+    
+    long getWaitTimeouts();
+    
+    int getVertexCount();
+    
+    int getEdgeCount();
+    
+    int getQueueDepth();
+    
+    long getDetectionRuns();
+    
+    long getDeadlocksFound();
+    
+    double getDetectionLatencyMeanMicros();
+    
+    long getDetectionLatencyP99Micros();
+    
+    long getDetectionLatencyMaxMicros();
+    
+    long[] getDetectionLatencyBoundsNanos();
+    
+    long[] getDetectionLatencyCounts();
+    
+    double getCycleLengthMean();
+    
+    long getCycleLengthMax();
+    
+    long[] getCycleLengthBounds();
+    
+    long[] getCycleLengthCounts();
+    
+    long getVictimsAborted();
+    
+    long getOperationsRequeued();
+}
@@ -0,0 +1,249 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package controller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registro de eventos de capacidad fija: un buffer circular que guarda cada
+ * evento como campos sueltos (tipo, transacción, registro, instante y un
+ * detalle opcional) y solo arma el texto cuando alguien lo pide. Al llenarse
+ * se pisan los más viejos; con nivel OFF no se registra nada.
+ *
+ * @author calbe
+ */
+public class EventLog {
+    /** Cada nivel incluye a los anteriores; OFF apaga el registro. */
+    public enum Level { OFF, ERROR, INFO, DEBUG }
+    
+    public enum Type {
+        EMPTY_INPUT(Level.ERROR),
+        EMPTY_BATCH(Level.ERROR),
+        INVALID_OPERATION(Level.ERROR),
+        READ_ERROR(Level.ERROR),
+        CLOSE_ERROR(Level.ERROR),
+        LOG_ERROR(Level.ERROR),
+        OPERATION_ADDED(Level.DEBUG),
+        OPERATION_DEFERRED(Level.DEBUG),
+        TRANSACTION_CREATED(Level.DEBUG),
+        LOCK_UPGRADED(Level.DEBUG),
+        LOCK_SHARED(Level.DEBUG),
+        LOCK_GRANTED(Level.DEBUG),
+        WAITS(Level.DEBUG),
+        EDGE_ADDED(Level.DEBUG),
+        TRANSACTION_FINISHED(Level.DEBUG),
+        TRANSACTION_RESUMED(Level.DEBUG),
+        DEADLOCK_DETECTED(Level.INFO),
+        CYCLE_FOUND(Level.INFO),
+        VICTIM_CHOSEN(Level.INFO),
+        DEADLOCKS_FOUND(Level.INFO),
+        DEADLOCKED_TRANSACTIONS(Level.INFO),
+        VICTIMS_CHOSEN(Level.INFO),
+        TRANSACTION_INTERRUPTED(Level.INFO),
+        TRANSACTION_DIED(Level.INFO),
+        TRANSACTION_WOUNDED(Level.INFO),
+        WAIT_TIMED_OUT(Level.INFO),
+        DETECTOR_STARTED(Level.INFO),
+        DETECTOR_STOPPED(Level.INFO),
+        DETECTION_ERROR(Level.ERROR),
+        LOG_RECOVERED(Level.INFO),
+        CHECKPOINT_WRITTEN(Level.INFO),
+        SNAPSHOT_RESTORED(Level.INFO),
+        SYSTEM_RESET(Level.INFO),
+        READY(Level.INFO);
+        
+        private final Level level;
+        
+        Type(Level level) {
+            this.level = level;
+        }
+        
+        public Level getLevel() { return level; }
+    }
+    
+    /** Copia de un evento, creada solo al leer el registro. */
+    public static class Event {
+        private final Type type;
+        private final String transactionId;
+        private final String recordId;
+        private final long timestamp;
+        private final Object detail;
+        
+        private Event(Type type, String transactionId, String recordId, long timestamp, Object detail) {
+            this.type = type;
+            this.transactionId = transactionId;
+            this.recordId = recordId;
+            this.timestamp = timestamp;
+            this.detail = detail;
+        }
+        
+        public Type getType() { return type; }
+        public String getTransactionId() { return transactionId; }
+        public String getRecordId() { return recordId; }
+        // System.nanoTime() al registrarse
+        public long getTimestamp() { return timestamp; }
+        public Object getDetail() { return detail; }
+        
+        @Override
+        public String toString() {
+            return format(type, transactionId, recordId, detail);
+        }
+    }
+    
+    public static final int DEFAULT_CAPACITY = 4096;
+    
+    // Arreglos paralelos indexados por posición en el anillo
+    private final Type[] types;
+    private final String[] transactionIds;
+    private final String[] recordIds;
+    private final long[] timestamps;
+    private final Object[] details;
+    // Total de eventos registrados; written % capacidad es la siguiente posición
+    private long written;
+    private volatile Level level;
+    
+    public EventLog(int capacity, Level level) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.types = new Type[capacity];
+        this.transactionIds = new String[capacity];
+        this.recordIds = new String[capacity];
+        this.timestamps = new long[capacity];
+        this.details = new Object[capacity];
+        this.written = 0;
+        this.level = level;
+    }
+    
+    public EventLog() {
+        this(DEFAULT_CAPACITY, Level.DEBUG);
+    }
+    
+    // OFF es el primer nivel y ningún tipo lo usa, así que siempre queda afuera
+    public boolean isEnabled(Type type) {
+        return type.level.ordinal() <= level.ordinal();
+    }
+    
+    /**
+     * El detalle se guarda tal cual y se convierte en texto al leerlo, así
+     * que no debe modificarse después (una lista de IDs, una operación, un
+     * mensaje de error).
+     */
+    public void log(Type type, String transactionId, String recordId, Object detail) {
+        if (!isEnabled(type)) {
+            return;
+        }
+        long now = System.nanoTime();
+        synchronized (this) {
+            int slot = (int) (written % types.length);
+            types[slot] = type;
+            transactionIds[slot] = transactionId;
+            recordIds[slot] = recordId;
+            timestamps[slot] = now;
+            details[slot] = detail;
+            written++;
+        }
+    }
+    
+    public void log(Type type, String transactionId, String recordId) {
+        log(type, transactionId, recordId, null);
+    }
+    
+    public void log(Type type, String transactionId) {
+        log(type, transactionId, null, null);
+    }
+    
+    public void log(Type type) {
+        log(type, null, null, null);
+    }
+    
+    /** @return los eventos retenidos, del más viejo al más nuevo */
+    public synchronized List<Event> getEvents() {
+        int size = size();
+        List<Event> events = new ArrayList<>(size);
+        for (long i = written - size; i < written; i++) {
+            int slot = (int) (i % types.length);
+            events.add(new Event(types[slot], transactionIds[slot], recordIds[slot],
+                                 timestamps[slot], details[slot]));
+        }
+        return events;
+    }
+    
+    /** @return el texto de los eventos retenidos, del más viejo al más nuevo */
+    public synchronized List<String> format() {
+        int size = size();
+        List<String> lines = new ArrayList<>(size);
+        for (long i = written - size; i < written; i++) {
+            int slot = (int) (i % types.length);
+            lines.add(format(types[slot], transactionIds[slot], recordIds[slot], details[slot]));
+        }
+        return lines;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static String format(Type type, String transactionId, String recordId, Object detail) {
+        switch (type) {
+            case EMPTY_INPUT: return "Error: Empty input";
+            case EMPTY_BATCH: return "Error: Empty input for multiple operations";
+            case INVALID_OPERATION: return "Error: Invalid operation format - " + detail;
+            case READ_ERROR: return "Error: Reading schedule - " + detail;
+            case CLOSE_ERROR: return "Error: Closing schedule - " + detail;
+            case LOG_ERROR: return "Error: Write-ahead log disabled - " + detail;
+            case OPERATION_ADDED: return "Added operation: " + detail;
+            case OPERATION_DEFERRED: return "Operation " + detail + " deferred: " + transactionId + " is waiting";
+            case TRANSACTION_CREATED: return "Created new transaction: " + transactionId;
+            case LOCK_UPGRADED: return "Transaction " + transactionId + " upgraded lock on record " + recordId + " to exclusive";
+            case LOCK_SHARED: return "Transaction " + transactionId + " locked record " + recordId + " (shared)";
+            case LOCK_GRANTED: return "Transaction " + transactionId + " locked record " + recordId;
+            case WAITS: return "Transaction " + transactionId + " waits for " + detail + " (record: " + recordId + ")";
+            case EDGE_ADDED: return "Added edge: " + transactionId + " -> " + detail;
+            case TRANSACTION_FINISHED: return "Transaction " + transactionId + " finished and removed from graph";
+            case TRANSACTION_RESUMED: return "Transaction " + transactionId + " resumed with lock on record " + recordId;
+            case DEADLOCK_DETECTED: return "DEADLOCK DETECTED!";
+            case CYCLE_FOUND: return "Cycle found: " + String.join(" -> ", (List<String>) detail);
+            case VICTIM_CHOSEN: return "Interrupting transaction " + transactionId + " (" + detail + ")";
+            case DEADLOCKS_FOUND: return "DEADLOCK DETECTED! " + ((List<?>) detail).size() + " deadlock(s) found";
+            case DEADLOCKED_TRANSACTIONS: return "Deadlocked transactions: " + String.join(", ", (List<String>) detail);
+            case VICTIMS_CHOSEN: return "Interrupting transactions: " + String.join(", ", (List<String>) detail);
+            case TRANSACTION_INTERRUPTED: return "Transaction " + transactionId + " interrupted and operations re-queued";
+            case TRANSACTION_DIED: return "Transaction " + transactionId + " dies: younger than " + detail + " (record: " + recordId + ")";
+            case TRANSACTION_WOUNDED: return "Transaction " + transactionId + " wounded by " + detail + " (record: " + recordId + ")";
+            case WAIT_TIMED_OUT: return "Transaction " + transactionId + " timed out waiting for " + recordId + " after " + detail + " ms";
+            case DETECTOR_STARTED: return "Background deadlock detection started (" + detail + " ms)";
+            case DETECTOR_STOPPED: return "Background deadlock detection stopped";
+            case DETECTION_ERROR: return "Error: Deadlock detection pass failed - " + detail;
+            case LOG_RECOVERED: return "Recovered state from write-ahead log (" + detail + " records)";
+            case CHECKPOINT_WRITTEN: return "Checkpoint written to " + detail;
+            case SNAPSHOT_RESTORED: return "Restored " + detail + " transactions from snapshot";
+            case SYSTEM_RESET: return "=== System Reset ===";
+            case READY: return "Ready for new operations.";
+            default: return type.toString();
+        }
+    }
+    
+    public synchronized int size() {
+        return (int) Math.min(written, types.length);
+    }
+    
+    // Eventos pisados por otros más nuevos desde el último clear
+    public synchronized long getDroppedCount() {
+        return Math.max(0, written - types.length);
+    }
+    
+    public synchronized void clear() {
+        for (int i = 0; i < types.length; i++) {
+            types[i] = null;
+            transactionIds[i] = null;
+            recordIds[i] = null;
+            details[i] = null;
+        }
+        written = 0;
+    }
+    
+    public int getCapacity() { return types.length; }
+    public Level getLevel() { return level; }
+    public void setLevel(Level level) { this.level = level; }
+}
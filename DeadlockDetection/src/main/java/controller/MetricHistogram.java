@@ -0,0 +1,97 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package controller;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de intervalos fijos que se puede registrar desde varios hilos
+ * sin reservar memoria: cada intervalo es un LongAdder y el valor se ubica
+ * con una búsqueda binaria sobre los límites. El último intervalo junta
+ * todo lo que pasa del límite mayor.
+ *
+ * @author calbe
+ */
+public class MetricHistogram {
+    // Límite superior (inclusive) de cada intervalo, en orden creciente
+    private final long[] bounds;
+    private final LongAdder[] counts;
+    private final LongAdder sum;
+    private final LongAccumulator max;
+    
+    public MetricHistogram(long... bounds) {
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i] <= bounds[i - 1]) {
+                throw new IllegalArgumentException("Histogram bounds must increase: " + Arrays.toString(bounds));
+            }
+        }
+        this.bounds = bounds.clone();
+        this.counts = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+        this.sum = new LongAdder();
+        this.max = new LongAccumulator(Math::max, 0);
+    }
+    
+    public void record(long value) {
+        int bucket = Arrays.binarySearch(bounds, value);
+        counts[bucket >= 0 ? bucket : -bucket - 1].increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+    
+    /**
+     * @return el límite del intervalo donde cae el percentil, o el máximo
+     *         registrado si cae en el último
+     */
+    public long percentile(double percent) {
+        long[] snapshot = getCounts();
+        long total = 0;
+        for (long count : snapshot) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percent / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(bounds[i], getMax());
+            }
+        }
+        return getMax();
+    }
+    
+    // Lectura intervalo por intervalo: con registros en curso el total puede no cuadrar exacto
+    public long[] getCounts() {
+        long[] snapshot = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            snapshot[i] = counts[i].sum();
+        }
+        return snapshot;
+    }
+    
+    public long getCount() {
+        long total = 0;
+        for (LongAdder count : counts) {
+            total += count.sum();
+        }
+        return total;
+    }
+    
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+    
+    public long[] getBounds() { return bounds.clone(); }
+    public long getSum() { return sum.sum(); }
+    public long getMax() { return max.get(); }
+}
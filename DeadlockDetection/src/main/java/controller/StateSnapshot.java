@@ -0,0 +1,556 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package controller;
+
+import model.LockManager;
+import model.Operation;
+import model.Record;
+import model.Transaction;
+import model.WaitForGraph;
+import uni.aed.tda.graphTDA.IntGraph;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Snapshot binario del estado del DeadlockController, para reiniciar sin
+ * reejecutar todo el write-ahead log. Cada identificador se guarda una sola
+ * vez y el resto son arreglos de int que lo referencian por posición; la
+ * lectura recorre el archivo mapeado en memoria.
+ * <p>
+ * Formato, con cada arreglo precedido por su largo:
+ * <pre>
+ * encabezado     MAGIC, VERSION, generación del log, abortos, commits,
+ *                operaciones perdidas, timeouts
+ * ids            cantidad de transacciones T y de registros R, y después sus
+ *                [largo u16][UTF-8]: la transacción i es el id i y el
+ *                registro j el id T + j. Un id que aparece recién más adelante
+ *                se define donde se usa: la referencia igual al próximo índice
+ *                libre va seguida de su texto
+ * transacciones  [secuencia long][suspendida byte][pasos ejecutados]
+ *                [operaciones][diferidas], cada operación como [tipo byte]
+ *                [id del registro, -1 en end]
+ * grafo          vértices int[] en orden topológico (índices de transacción)
+ *                y aristas como origen int[] y destino int[] (índices de vértice)
+ * registros      [dueños int[]][modo byte][esperas int[]][modo de cada espera]
+ * cola           operaciones como [tipo byte][id de la transacción][id del registro]
+ * WAIT_DIE       secuencias de reinicio, operaciones retenidas y por quién
+ * </pre>
+ *
+ * @author calbe
+ */
+final class StateSnapshot {
+    private static final int MAGIC = 0x534E4150;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final Operation.Type[] OPERATION_TYPES = Operation.Type.values();
+    private static final Record.LockMode[] LOCK_MODES = Record.LockMode.values();
+    private static final Operation[] NO_OPERATIONS = new Operation[0];
+    private static final Transaction[] NO_TRANSACTIONS = new Transaction[0];
+    private static final Record.Waiter[] NO_WAITERS = new Record.Waiter[0];
+    
+    private final WaitForGraph graph;
+    private final LockManager lockManager;
+    private final Queue<Operation> queue;
+    private final Map<String, Long> restartSequences;
+    private final Map<String, List<Operation>> dyingOperations;
+    private final Map<String, List<String>> diedFor;
+    // Generación del write-ahead log que sigue a este snapshot
+    long logGeneration;
+    long abortCount;
+    long commitCount;
+    long wastedOperations;
+    long timeoutCount;
+    // Transacciones leídas en la última carga
+    int transactionCount;
+    
+    StateSnapshot(WaitForGraph graph, LockManager lockManager, Queue<Operation> queue,
+                  Map<String, Long> restartSequences, Map<String, List<Operation>> dyingOperations,
+                  Map<String, List<String>> diedFor) {
+        this.graph = graph;
+        this.lockManager = lockManager;
+        this.queue = queue;
+        this.restartSequences = restartSequences;
+        this.dyingOperations = dyingOperations;
+        this.diedFor = diedFor;
+    }
+    
+    /**
+     * Copia lo que el controlador puede cambiar: arreglos con las referencias
+     * y los campos mutables, sin ids ni bytes. Se llama con el estado quieto
+     * (bajo el stateLock del controlador); la codificación y el force quedan
+     * para Copy.write, fuera del lock.
+     */
+    Copy capture() {
+        Copy copy = new Copy();
+        copy.logGeneration = logGeneration;
+        copy.abortCount = abortCount;
+        copy.commitCount = commitCount;
+        copy.wastedOperations = wastedOperations;
+        copy.timeoutCount = timeoutCount;
+        synchronized (graph) {
+            copy.transactions = graph.getTransactions().values().toArray(new Transaction[0]);
+            int count = copy.transactions.length;
+            copy.suspended = new boolean[count];
+            copy.steps = new int[count];
+            copy.operations = new Operation[count][];
+            copy.deferred = new Operation[count][];
+            for (int i = 0; i < count; i++) {
+                Transaction transaction = copy.transactions[i];
+                copy.suspended[i] = transaction.isSuspended();
+                copy.steps[i] = transaction.getCurrentStep();
+                copy.operations[i] = transaction.getOperations().toArray(NO_OPERATIONS);
+                copy.deferred[i] = transaction.getDeferredOperations().toArray(NO_OPERATIONS);
+            }
+            
+            // Aristas de cada vértice en el orden de su lista de adyacencia, como
+            // posiciones en el orden topológico
+            IntGraph<String> intGraph = graph.getIntGraph();
+            List<String> order = graph.getTopologicalOrder();
+            int[] vertices = new int[order.size()];
+            int[] vertexIndex = new int[intGraph.idBound()];
+            for (int i = 0; i < vertices.length; i++) {
+                vertices[i] = intGraph.indexOf(order.get(i));
+                vertexIndex[vertices[i]] = i;
+            }
+            copy.order = order.toArray(new String[0]);
+            copy.edgeFrom = new int[intGraph.edgeCount()];
+            copy.edgeTo = new int[copy.edgeFrom.length];
+            int edge = 0;
+            for (int v : vertices) {
+                for (int i = 0; i < intGraph.outDegree(v); i++) {
+                    copy.edgeFrom[edge] = vertexIndex[v];
+                    copy.edgeTo[edge++] = vertexIndex[intGraph.neighbor(v, i)];
+                }
+            }
+            
+            copy.records = graph.getRecords().values().toArray(new Record[0]);
+            copy.holders = new Transaction[copy.records.length][];
+            copy.modes = new Record.LockMode[copy.records.length];
+            copy.waiters = new Record.Waiter[copy.records.length][];
+            for (int i = 0; i < copy.records.length; i++) {
+                Record record = copy.records[i];
+                // La cola se lee en el monitor del registro, donde el LockManager la modifica
+                synchronized (record) {
+                    copy.holders[i] = record.getHolders().toArray(NO_TRANSACTIONS);
+                    copy.modes[i] = record.getMode();
+                    copy.waiters[i] = record.getWaiters().toArray(NO_WAITERS);
+                }
+            }
+        }
+        copy.queue = queue.toArray(NO_OPERATIONS);
+        copy.restartSequences = new LinkedHashMap<>(restartSequences);
+        copy.dyingOperations = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Operation>> entry : dyingOperations.entrySet()) {
+            copy.dyingOperations.put(entry.getKey(), entry.getValue().toArray(NO_OPERATIONS));
+        }
+        copy.diedFor = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : diedFor.entrySet()) {
+            copy.diedFor.put(entry.getKey(), entry.getValue().toArray(new String[0]));
+        }
+        return copy;
+    }
+    
+    /** Estado copiado por capture, que ya no cambia mientras se escribe. */
+    static final class Copy {
+        private long logGeneration;
+        private long abortCount;
+        private long commitCount;
+        private long wastedOperations;
+        private long timeoutCount;
+        private Transaction[] transactions;
+        private boolean[] suspended;
+        private int[] steps;
+        private Operation[][] operations;
+        private Operation[][] deferred;
+        // Ids de los vértices en orden topológico; las aristas, como posiciones en él
+        private String[] order;
+        private int[] edgeFrom;
+        private int[] edgeTo;
+        private Record[] records;
+        private Transaction[][] holders;
+        private Record.LockMode[] modes;
+        private Record.Waiter[][] waiters;
+        private Operation[] queue;
+        private Map<String, Long> restartSequences;
+        private Map<String, Operation[]> dyingOperations;
+        private Map<String, String[]> diedFor;
+        
+        private Copy() {
+        }
+        
+        /**
+         * Escribe el estado en un archivo temporal y lo renombra sobre path
+         * recién después del force: una caída a mitad de camino deja el
+         * snapshot anterior.
+         */
+        void write(Path path) throws IOException {
+            Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                Output out = new Output(channel);
+                out.putInt(MAGIC);
+                out.putInt(VERSION);
+                out.putLong(logGeneration);
+                out.putLong(abortCount);
+                out.putLong(commitCount);
+                out.putLong(wastedOperations);
+                out.putLong(timeoutCount);
+                
+                // Las transacciones y los registros ya son únicos: su posición es su id
+                Map<String, Integer> ids = new HashMap<>((transactions.length + records.length) * 2);
+                out.putInt(transactions.length);
+                out.putInt(records.length);
+                for (Transaction transaction : transactions) {
+                    ids.put(transaction.getId(), ids.size());
+                    out.putString(transaction.getId());
+                }
+                for (Record record : records) {
+                    ids.put(record.getId(), ids.size());
+                    out.putString(record.getId());
+                }
+                
+                for (int i = 0; i < transactions.length; i++) {
+                    out.putLong(transactions[i].getStartSequence());
+                    out.ensure(5);
+                    out.buffer.put((byte) (suspended[i] ? 1 : 0));
+                    out.buffer.putInt(steps[i]);
+                    out.putOperations(operations[i], ids, false);
+                    out.putOperations(deferred[i], ids, false);
+                }
+                
+                out.putInt(order.length);
+                for (String id : order) {
+                    out.ensure(4);
+                    out.buffer.putInt(ids.get(id));
+                }
+                out.putInts(edgeFrom);
+                out.putInts(edgeTo);
+                
+                for (int i = 0; i < records.length; i++) {
+                    out.putInt(holders[i].length);
+                    for (Transaction holder : holders[i]) {
+                        out.ensure(4);
+                        out.buffer.putInt(ids.get(holder.getId()));
+                    }
+                    out.ensure(5);
+                    out.buffer.put((byte) (modes[i] == null ? -1 : modes[i].ordinal()));
+                    out.buffer.putInt(waiters[i].length);
+                    for (Record.Waiter waiter : waiters[i]) {
+                        out.ensure(5);
+                        out.buffer.putInt(ids.get(waiter.getTransaction().getId()));
+                        out.buffer.put((byte) waiter.getMode().ordinal());
+                    }
+                }
+                
+                out.putOperations(queue, ids, true);
+                out.putInt(restartSequences.size());
+                for (Map.Entry<String, Long> entry : restartSequences.entrySet()) {
+                    out.putId(entry.getKey(), ids);
+                    out.putLong(entry.getValue());
+                }
+                out.putInt(dyingOperations.size());
+                for (Map.Entry<String, Operation[]> entry : dyingOperations.entrySet()) {
+                    out.putId(entry.getKey(), ids);
+                    out.putOperations(entry.getValue(), ids, false);
+                }
+                out.putInt(diedFor.size());
+                for (Map.Entry<String, String[]> entry : diedFor.entrySet()) {
+                    out.putId(entry.getKey(), ids);
+                    out.putInt(entry.getValue().length);
+                    for (String id : entry.getValue()) {
+                        out.putId(id, ids);
+                    }
+                }
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+    
+    /**
+     * Carga el snapshot sobre un estado vacío (el controlador lo limpia
+     * antes). Las transacciones y aristas se agregan en orden topológico,
+     * así que el grafo se arma sin reordenar nada.
+     */
+    void read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + path);
+            }
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            try {
+                read(in);
+            } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                throw new IOException("Truncated or corrupt snapshot: " + path, e);
+            }
+        }
+    }
+    
+    private void read(ByteBuffer in) throws IOException {
+        if (in.remaining() < 8 || in.getInt() != MAGIC) {
+            throw new IOException("Not a snapshot");
+        }
+        int version = in.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        logGeneration = in.getLong();
+        abortCount = in.getLong();
+        commitCount = in.getLong();
+        wastedOperations = in.getLong();
+        timeoutCount = in.getLong();
+        
+        Transaction[] transactions = new Transaction[in.getInt()];
+        Record[] records = new Record[in.getInt()];
+        Ids ids = new Ids(transactions.length + records.length);
+        for (int i = 0; i < transactions.length + records.length; i++) {
+            ids.read(in);
+        }
+        
+        long maxSequence = 0;
+        for (int i = 0; i < transactions.length; i++) {
+            Transaction transaction = new Transaction(ids.get(i), in.getLong());
+            boolean suspended = in.get() != 0;
+            int step = in.getInt();
+            int count = in.getInt();
+            for (int j = 0; j < count; j++) {
+                transaction.addOperation(readOperation(in, ids, ids.get(i)));
+            }
+            // Volver a marcarlas recupera también las escrituras ejecutadas
+            for (int j = 0; j < step; j++) {
+                transaction.markExecuted(transaction.getOperations().get(j));
+            }
+            count = in.getInt();
+            for (int j = 0; j < count; j++) {
+                transaction.deferOperation(readOperation(in, ids, ids.get(i)));
+            }
+            if (suspended) {
+                transaction.suspend();
+            }
+            maxSequence = Math.max(maxSequence, transaction.getStartSequence());
+            transactions[i] = transaction;
+        }
+        
+        int[] vertices = readInts(in);
+        boolean[] hasVertex = new boolean[transactions.length];
+        for (int v : vertices) {
+            graph.addTransaction(transactions[v]);
+            hasVertex[v] = true;
+        }
+        for (int i = 0; i < transactions.length; i++) {
+            if (!hasVertex[i]) {
+                graph.registerTransaction(transactions[i]);
+            }
+        }
+        int[] from = readInts(in);
+        int[] to = readInts(in);
+        for (int i = 0; i < from.length; i++) {
+            graph.addEdge(ids.get(vertices[from[i]]), ids.get(vertices[to[i]]));
+        }
+        
+        for (int i = 0; i < records.length; i++) {
+            Record record = graph.getOrCreateRecord(ids.get(transactions.length + i));
+            int[] holders = readInts(in);
+            int mode = in.get();
+            for (int holder : holders) {
+                record.lock(transactions[holder], LOCK_MODES[mode]);
+            }
+            int waiters = in.getInt();
+            for (int j = 0; j < waiters; j++) {
+                Transaction waiter = transactions[in.getInt()];
+                lockManager.restoreWait(waiter, record, LOCK_MODES[in.get()]);
+            }
+            records[i] = record;
+        }
+        
+        int queued = in.getInt();
+        for (int i = 0; i < queued; i++) {
+            queue.add(readOperation(in, ids, null));
+        }
+        int restarts = in.getInt();
+        for (int i = 0; i < restarts; i++) {
+            String id = ids.get(in);
+            long sequence = in.getLong();
+            restartSequences.put(id, sequence);
+            maxSequence = Math.max(maxSequence, sequence);
+        }
+        int dying = in.getInt();
+        for (int i = 0; i < dying; i++) {
+            String id = ids.get(in);
+            int count = in.getInt();
+            List<Operation> held = new ArrayList<>(count);
+            for (int j = 0; j < count; j++) {
+                held.add(readOperation(in, ids, id));
+            }
+            dyingOperations.put(id, held);
+        }
+        int died = in.getInt();
+        for (int i = 0; i < died; i++) {
+            String id = ids.get(in);
+            int count = in.getInt();
+            List<String> waiting = new ArrayList<>(count);
+            for (int j = 0; j < count; j++) {
+                waiting.add(ids.get(in));
+            }
+            diedFor.put(id, waiting);
+        }
+        Transaction.advanceStartSequence(maxSequence);
+        transactionCount = transactions.length;
+    }
+    
+    // Sin transactionId la operación trae el suyo
+    private static Operation readOperation(ByteBuffer in, Ids ids, String transactionId) {
+        Operation.Type type = OPERATION_TYPES[in.get()];
+        if (transactionId == null) {
+            transactionId = ids.get(in);
+        }
+        int record = in.getInt();
+        return new Operation(type, transactionId, record < 0 ? null : ids.get(record, in));
+    }
+    
+    private static int[] readInts(ByteBuffer in) {
+        int[] values = new int[in.getInt()];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + values.length * 4);
+        return values;
+    }
+    
+    /** Tabla de ids de la lectura, que crece con los que se definen al usarse. */
+    private static class Ids {
+        private String[] values;
+        private int size;
+        private byte[] scratch = new byte[256];
+        
+        Ids(int capacity) {
+            values = new String[Math.max(capacity, 16)];
+        }
+        
+        String get(int index) {
+            return values[index];
+        }
+        
+        String get(ByteBuffer in) {
+            return get(in.getInt(), in);
+        }
+        
+        String get(int index, ByteBuffer in) {
+            if (index == size) {
+                read(in);
+            }
+            return values[index];
+        }
+        
+        void read(ByteBuffer in) {
+            int length = in.getShort() & 0xFFFF;
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            in.get(scratch, 0, length);
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+    
+    /** Escritura por bloques sobre un buffer que se vacía al canal cuando se llena. */
+    private static class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        
+        Output(FileChannel channel) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        }
+        
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+        
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+        
+        void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+        
+        void putString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xFFFF) {
+                throw new IOException("Identifier too long for a snapshot: " + bytes.length + " bytes");
+            }
+            ensure(2 + bytes.length);
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+        
+        // La primera vez que aparece un id se escribe su texto después del índice
+        void putId(String id, Map<String, Integer> ids) throws IOException {
+            Integer index = ids.putIfAbsent(id, ids.size());
+            if (index != null) {
+                putInt(index);
+            } else {
+                putInt(ids.size() - 1);
+                putString(id);
+            }
+        }
+        
+        void putInts(int[] values) throws IOException {
+            putInt(values.length);
+            for (int value : values) {
+                ensure(4);
+                buffer.putInt(value);
+            }
+        }
+        
+        // Las de una misma transacción no repiten su id
+        void putOperations(Operation[] values, Map<String, Integer> ids,
+                           boolean withTransaction) throws IOException {
+            putInt(values.length);
+            for (Operation operation : values) {
+                ensure(1);
+                buffer.put((byte) operation.getType().ordinal());
+                if (withTransaction) {
+                    putId(operation.getTransactionId(), ids);
+                }
+                if (operation.getRecordId() == null) {
+                    putInt(-1);
+                } else {
+                    putId(operation.getRecordId(), ids);
+                }
+            }
+        }
+        
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,609 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package controller;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Registro de escritura anticipada (write-ahead log) del DeadlockController:
+ * un archivo de solo agregado con lo que cambia su estado, en el orden en que
+ * pasó. Reejecutarlo desde el principio reconstruye el grafo, la tabla de
+ * locks y la cola tal como estaban.
+ * <p>
+ * Los registros se arman en memoria y un hilo propio los baja al FileChannel
+ * con group commit: junta todo lo que llegó durante groupCommitMs (o hasta
+ * llenar medio buffer) y lo cubre con un solo force, en lugar de uno por
+ * operación. Quien necesite que algo ya esté en disco llama a awaitDurable:
+ * el DeadlockController lo hace antes de dar por terminada cada transacción.
+ * <p>
+ * Formato: un encabezado (MAGIC, VERSION, generación) y luego cada registro
+ * como [largo int][crc32 int][tipo byte][texto], donde el largo y el crc
+ * cubren tipo y texto. Al abrir, un registro cortado o con crc inválido marca
+ * el final: es lo que no llegó a escribirse entero antes de una caída. La
+ * generación avanza con cada checkpoint, que vacía el registro (truncate) o
+ * lo deja aparte como path.prev hasta que el snapshot llegue a disco
+ * (rotate); si se cae antes, open reejecuta los dos archivos seguidos.
+ *
+ * @author calbe
+ */
+public class WriteAheadLog implements Closeable {
+    /**
+     * OPERATION_ADDED lleva el texto de la operación; TRANSACTION_ABORTED la
+     * transacción que eligió la detección o cuyo timeout venció. Los locks
+     * que se otorgan y liberan no se registran aparte: salen de reejecutar
+     * las operaciones en el mismo orden.
+     */
+    public enum RecordType { OPERATION_ADDED, OPERATION_PROCESSED, TRANSACTION_ABORTED, RESET }
+    
+    /** Recibe los registros al reejecutar el archivo, en orden. */
+    public interface Visitor {
+        void operationAdded(String operation);
+        void operationProcessed();
+        void transactionAborted(String transactionId);
+        void reset();
+    }
+    
+    private static final int MAGIC = 0x57414C44;
+    private static final int VERSION = 2;
+    private static final int FILE_HEADER = 16;
+    // Largo, crc y tipo
+    private static final int RECORD_HEADER = 9;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final RecordType[] TYPES = RecordType.values();
+    
+    private final Path path;
+    // Lo cambia rotate; el hilo de commit lo lee después de tomar su lote en el monitor
+    private FileChannel channel;
+    private final long groupCommitNanos;
+    private final CRC32 crc;
+    private long generation;
+    // Donde se agregan los registros; el otro lo baja a disco el hilo de commit
+    private ByteBuffer active;
+    private ByteBuffer flushing;
+    // Hasta dónde se agregó y hasta dónde es durable; coinciden con el largo del
+    // archivo hasta el primer truncate y después siguen creciendo
+    private long appendedPosition;
+    private long durablePosition;
+    private long syncRequested;
+    private boolean closed;
+    // El hilo de commit está escribiendo un lote fuera del monitor
+    private boolean writing;
+    private IOException failure;
+    private long records;
+    private long syncs;
+    private final long recoveredRecords;
+    private final Thread committer;
+    
+    private WriteAheadLog(Path path, FileChannel channel, long generation, long position,
+                          long recoveredRecords, long groupCommitMs) {
+        this.path = path;
+        this.channel = channel;
+        this.groupCommitNanos = TimeUnit.MILLISECONDS.toNanos(groupCommitMs);
+        this.crc = new CRC32();
+        this.generation = generation;
+        this.active = ByteBuffer.allocate(BUFFER_SIZE);
+        this.flushing = ByteBuffer.allocate(BUFFER_SIZE);
+        this.appendedPosition = position;
+        this.durablePosition = position;
+        this.syncRequested = position;
+        this.closed = false;
+        this.writing = false;
+        this.records = 0;
+        this.syncs = 0;
+        this.recoveredRecords = recoveredRecords;
+        this.committer = new Thread(this::commitLoop, "wal-committer");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+    
+    /**
+     * Abre el registro para agregar al final. Si el archivo ya tiene
+     * registros, antes los pasa en orden al visitor y descarta un final
+     * incompleto; si es nuevo, el visitor puede ser null.
+     *
+     * @param groupCommitMs cuánto puede esperar un registro a que se junten otros antes del force
+     */
+    public static WriteAheadLog open(Path path, long groupCommitMs, Visitor visitor) throws IOException {
+        return open(path, groupCommitMs, 0, visitor);
+    }
+    
+    /**
+     * Como open(path, groupCommitMs, visitor), a continuación de un snapshot
+     * que guardó la generación dada: un registro de una generación anterior
+     * ya está contenido en el snapshot y se descarta sin reejecutarlo; uno
+     * posterior significa que falta el snapshot que lo precede.
+     */
+    public static WriteAheadLog open(Path path, long groupCommitMs, long generation,
+                                     Visitor visitor) throws IOException {
+        if (groupCommitMs < 0) {
+            throw new IllegalArgumentException("Invalid group commit interval: " + groupCommitMs);
+        }
+        mergePrevious(path, generation);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                                               StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long position = FILE_HEADER;
+            long recovered = 0;
+            long logGeneration = channel.size() < FILE_HEADER ? -1 : readHeader(path, channel);
+            if (logGeneration < generation) {
+                writeHeader(channel, generation);
+            } else if (logGeneration > generation) {
+                throw new IOException("Write-ahead log generation " + logGeneration
+                        + " needs the snapshot it follows (got generation " + generation + "): " + path);
+            } else {
+                long[] end = new long[1];
+                recovered = replay(channel, visitor, end);
+                position = end[0];
+                if (position < channel.size()) {
+                    channel.truncate(position);
+                    channel.force(true);
+                }
+            }
+            channel.position(position);
+            return new WriteAheadLog(path, channel, generation, position, recovered, groupCommitMs);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Resuelve el archivo que dejó un rotate. Si tiene la generación del
+     * snapshot, el checkpoint no llegó a escribirlo: sus registros y los del
+     * archivo nuevo se juntan en uno de esa generación, que open reejecuta
+     * entero. Si es anterior, el snapshot ya lo contiene y se borra.
+     */
+    private static void mergePrevious(Path path, long generation) throws IOException {
+        Path previous = previousPath(path);
+        if (!Files.exists(previous)) {
+            return;
+        }
+        long previousGeneration;
+        try (FileChannel channel = FileChannel.open(previous, StandardOpenOption.READ)) {
+            previousGeneration = readHeader(previous, channel);
+        }
+        if (previousGeneration > generation) {
+            throw new IOException("Write-ahead log generation " + previousGeneration
+                    + " needs the snapshot it follows (got generation " + generation + "): " + previous);
+        }
+        long currentGeneration = -1;
+        if (Files.exists(path)) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                if (channel.size() >= FILE_HEADER) {
+                    currentGeneration = readHeader(path, channel);
+                }
+            }
+        }
+        // Con la misma generación el archivo ya es el resultado de juntarlos
+        if (previousGeneration == generation && currentGeneration != generation) {
+            // Se arma aparte y se renombra: una caída a mitad de camino no duplica registros
+            Path merged = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.copy(previous, merged, StandardCopyOption.REPLACE_EXISTING);
+            try (FileChannel out = FileChannel.open(merged, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                // Sin archivo nuevo (se cayó al rotar) no hay nada que agregar
+                if (currentGeneration > generation) {
+                    try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+                        long position = FILE_HEADER;
+                        while (position < in.size()) {
+                            position += in.transferTo(position, in.size() - position, out);
+                        }
+                    }
+                }
+                out.force(true);
+            }
+            Files.move(merged, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        Files.delete(previous);
+    }
+    
+    private static Path previousPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".prev");
+    }
+    
+    // Valida el encabezado y retorna la generación
+    private static long readHeader(Path path, FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER);
+        readFully(channel, header, 0);
+        if (header.remaining() < FILE_HEADER || header.getInt() != MAGIC) {
+            throw new IOException("Not a write-ahead log: " + path);
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported write-ahead log version " + version + ": " + path);
+        }
+        return header.getLong();
+    }
+    
+    // Deja el archivo vacío, solo con el encabezado de esa generación
+    private static void writeHeader(FileChannel channel, long generation) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER).putInt(MAGIC).putInt(VERSION).putLong(generation).flip();
+        channel.truncate(0);
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.force(true);
+    }
+    
+    // Recorre los registros válidos; en end[0] queda dónde termina el último
+    private static long replay(FileChannel channel, Visitor visitor, long[] end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long position = FILE_HEADER;
+        readFully(channel, buffer, position);
+        
+        CRC32 check = new CRC32();
+        long count = 0;
+        while (true) {
+            if (buffer.remaining() < RECORD_HEADER || buffer.remaining() < RECORD_HEADER - 1 + buffer.getInt(buffer.position())) {
+                // El registro sigue más allá del buffer: se vuelve a leer desde él
+                readFully(channel, buffer, position);
+                if (buffer.remaining() < RECORD_HEADER) {
+                    break;
+                }
+            }
+            int length = buffer.getInt(buffer.position());
+            if (length < 1 || length > BUFFER_SIZE - RECORD_HEADER + 1
+                    || buffer.remaining() < RECORD_HEADER - 1 + length) {
+                break;
+            }
+            int start = buffer.position() + RECORD_HEADER - 1;
+            check.reset();
+            check.update(buffer.array(), start, length);
+            int type = buffer.get(start);
+            if ((int) check.getValue() != buffer.getInt(buffer.position() + 4)
+                    || type < 0 || type >= TYPES.length) {
+                break;
+            }
+            String text = new String(buffer.array(), start + 1, length - 1, StandardCharsets.UTF_8);
+            switch (TYPES[type]) {
+                case OPERATION_ADDED: visitor.operationAdded(text); break;
+                case OPERATION_PROCESSED: visitor.operationProcessed(); break;
+                case TRANSACTION_ABORTED: visitor.transactionAborted(text); break;
+                case RESET: visitor.reset(); break;
+            }
+            buffer.position(start + length);
+            position += RECORD_HEADER - 1 + length;
+            count++;
+        }
+        end[0] = position;
+        return count;
+    }
+    
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+    }
+    
+    public long append(RecordType type) throws IOException {
+        return append(type, "");
+    }
+    
+    /**
+     * Agrega un registro sin esperar al disco; queda durable con el próximo
+     * group commit. Solo bloquea si los dos buffers están llenos.
+     *
+     * @return posición del final del registro, para awaitDurable
+     */
+    public synchronized long append(RecordType type, CharSequence text) throws IOException {
+        int length = 1 + encodedLength(text);
+        int size = RECORD_HEADER - 1 + length;
+        if (size > BUFFER_SIZE / 2) {
+            throw new IllegalArgumentException("Record too long: " + size + " bytes");
+        }
+        boolean interrupted = false;
+        try {
+            while (active.remaining() < size) {
+                checkOpen();
+                // El hilo de commit cambia de buffer en cuanto termina el force en curso
+                syncRequested = Math.max(syncRequested, appendedPosition);
+                notifyAll();
+                interrupted |= await(0);
+            }
+        } finally {
+            restoreInterrupt(interrupted);
+        }
+        checkOpen();
+        
+        boolean first = active.position() == 0;
+        int start = active.position() + RECORD_HEADER - 1;
+        active.putInt(length).putInt(0).put((byte) type.ordinal());
+        encode(text);
+        crc.reset();
+        crc.update(active.array(), start, length);
+        active.putInt(start - 4, (int) crc.getValue());
+        
+        appendedPosition += size;
+        records++;
+        // El hilo de commit duerme mientras no hay nada que bajar
+        if (first || active.position() >= BUFFER_SIZE / 2) {
+            notifyAll();
+        }
+        return appendedPosition;
+    }
+    
+    // Las operaciones casi siempre son ASCII: se copian sin pasar por un encoder
+    private static int encodedLength(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return text.toString().getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+        return text.length();
+    }
+    
+    private void encode(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                active.put(text.subSequence(i, text.length()).toString().getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            active.put((byte) c);
+        }
+    }
+    
+    /** Espera a que todo lo agregado hasta position esté en disco. */
+    public synchronized void awaitDurable(long position) throws IOException {
+        if (position > syncRequested) {
+            syncRequested = position;
+            notifyAll();
+        }
+        boolean interrupted = false;
+        try {
+            while (durablePosition < position) {
+                checkFailure();
+                if (closed && !committer.isAlive()) {
+                    throw new IOException("Write-ahead log closed: " + path);
+                }
+                interrupted |= await(0);
+            }
+        } finally {
+            restoreInterrupt(interrupted);
+        }
+    }
+    
+    /** Espera a que todo lo agregado hasta ahora esté en disco. */
+    public void sync() throws IOException {
+        long position;
+        synchronized (this) {
+            position = appendedPosition;
+        }
+        awaitDurable(position);
+    }
+    
+    private void commitLoop() {
+        while (true) {
+            ByteBuffer batch;
+            long position;
+            synchronized (this) {
+                long deadline = 0;
+                while (true) {
+                    if (active.position() > 0) {
+                        if (closed || syncRequested > durablePosition || active.position() >= BUFFER_SIZE / 2) {
+                            break;
+                        }
+                        // La espera cuenta desde el primer registro que llegó
+                        long now = System.nanoTime();
+                        if (deadline == 0) {
+                            deadline = now + groupCommitNanos;
+                        } else if (now - deadline >= 0) {
+                            break;
+                        }
+                        await(Math.max(1, deadline - now));
+                    } else if (closed) {
+                        return;
+                    } else {
+                        deadline = 0;
+                        await(0);
+                    }
+                }
+                batch = active;
+                active = flushing;
+                flushing = batch;
+                position = appendedPosition;
+                writing = true;
+                // Quien esperaba lugar ya tiene el buffer vacío
+                notifyAll();
+            }
+            
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                channel.force(false);
+                batch.clear();
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    closed = true;
+                    writing = false;
+                    notifyAll();
+                }
+                return;
+            }
+            
+            synchronized (this) {
+                durablePosition = position;
+                syncs++;
+                writing = false;
+                notifyAll();
+            }
+        }
+    }
+    
+    /**
+     * Descarta todos los registros y pasa a la generación dada, con el
+     * encabezado ya en disco al retornar. Lo descartado tiene que estar
+     * contenido en un snapshot que guardó esa generación.
+     */
+    public synchronized void truncate(long generation) throws IOException {
+        checkOpen();
+        if (generation <= this.generation) {
+            throw new IllegalArgumentException("Generation must advance: " + generation + " <= " + this.generation);
+        }
+        // El lote que se está escribiendo iría a parar después del encabezado nuevo
+        boolean interrupted = false;
+        try {
+            while (writing) {
+                interrupted |= await(0);
+                checkOpen();
+            }
+        } finally {
+            restoreInterrupt(interrupted);
+        }
+        active.clear();
+        writeHeader(channel, generation);
+        channel.position(FILE_HEADER);
+        this.generation = generation;
+        // Las posiciones no vuelven atrás: lo agregado hasta acá ya es durable por el snapshot
+        durablePosition = appendedPosition;
+        syncRequested = appendedPosition;
+        notifyAll();
+    }
+    
+    /**
+     * Pasa a la generación dada sin descartar nada: lo agregado hasta acá
+     * baja a disco y el archivo queda como path.prev, y lo que siga va a
+     * un archivo nuevo con el encabezado ya en disco al retornar. Así el
+     * snapshot de esa generación puede escribirse después, sin frenar a
+     * quienes siguen registrando; cuando ya es durable, discardPrevious
+     * borra el archivo anterior.
+     *
+     * @return false, sin cambiar nada, si todavía está el path.prev de un
+     *         checkpoint que no llegó a escribir su snapshot
+     */
+    public synchronized boolean rotate(long generation) throws IOException {
+        checkOpen();
+        if (generation <= this.generation) {
+            throw new IllegalArgumentException("Generation must advance: " + generation + " <= " + this.generation);
+        }
+        Path previous = previousPath(path);
+        if (Files.exists(previous)) {
+            return false;
+        }
+        boolean interrupted = false;
+        try {
+            while (writing) {
+                interrupted |= await(0);
+                checkOpen();
+            }
+        } finally {
+            restoreInterrupt(interrupted);
+        }
+        active.flip();
+        while (active.hasRemaining()) {
+            channel.write(active);
+        }
+        active.clear();
+        channel.force(false);
+        
+        Files.move(path, previous, StandardCopyOption.ATOMIC_MOVE);
+        FileChannel next = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                                            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            writeHeader(next, generation);
+            next.position(FILE_HEADER);
+        } catch (IOException e) {
+            next.close();
+            throw e;
+        }
+        channel.close();
+        channel = next;
+        this.generation = generation;
+        durablePosition = appendedPosition;
+        syncRequested = appendedPosition;
+        notifyAll();
+        return true;
+    }
+    
+    /** Borra el archivo que dejó rotate, una vez que el snapshot que lo contiene es durable. */
+    public void discardPrevious() throws IOException {
+        Files.deleteIfExists(previousPath(path));
+    }
+    
+    /**
+     * Espera un aviso, o nanos si es mayor a 0, y retorna true si llegó una
+     * interrupción. Las esperas del registro no se cortan por interrupciones:
+     * quien llama sigue esperando y restaura la marca una sola vez al salir
+     * del ciclo. Si la restaurara en cada vuelta, cada wait siguiente
+     * retornaría enseguida y el ciclo ocuparía toda la CPU. El hilo de commit
+     * solo termina con close(), así que la descarta.
+     */
+    private boolean await(long nanos) {
+        try {
+            if (nanos > 0) {
+                TimeUnit.NANOSECONDS.timedWait(this, nanos);
+            } else {
+                wait();
+            }
+            return false;
+        } catch (InterruptedException e) {
+            return true;
+        }
+    }
+    
+    private static void restoreInterrupt(boolean interrupted) {
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void checkOpen() throws IOException {
+        checkFailure();
+        if (closed) {
+            throw new IOException("Write-ahead log closed: " + path);
+        }
+    }
+    
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("Write-ahead log failed: " + path, failure);
+        }
+    }
+    
+    /** Baja lo pendiente con un último force y cierra el archivo. */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        synchronized (this) {
+            checkFailure();
+        }
+    }
+    
+    // Getters
+    public Path getPath() { return path; }
+    public long getGroupCommitMs() { return TimeUnit.NANOSECONDS.toMillis(groupCommitNanos); }
+    public synchronized long getGeneration() { return generation; }
+    public synchronized long getRecords() { return records; }
+    public synchronized long getSyncs() { return syncs; }
+    public synchronized long getDurablePosition() { return durablePosition; }
+    // Registros que se reejecutaron al abrir
+    public long getRecoveredRecords() { return recoveredRecords; }
+}
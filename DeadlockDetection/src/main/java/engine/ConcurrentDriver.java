@@ -0,0 +1,787 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package engine;
+
+import controller.DeadlockDetector;
+import controller.DeadlockMetrics;
+import model.LockManager;
+import model.Operation;
+import model.Record;
+import model.ScheduleReader;
+import model.Transaction;
+import model.VictimPolicy;
+import model.WaitForGraph;
+import uni.aed.tda.graphTDA.IntGraph;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import javax.management.JMException;
+
+/**
+ * Ejecuta cada transacción en su propio hilo virtual contra una tabla de
+ * locks compartida, en lugar de procesar una cola en un solo hilo. Un pedido
+ * que choca bloquea de verdad al hilo hasta que le conceden el lock; el
+ * detector en segundo plano elige víctimas, les libera los locks e
+ * interrumpe sus hilos, que vuelven a empezar tras una espera al azar y con
+ * la misma secuencia de inicio.
+ *
+ * Con --shards los registros se reparten por hash entre varias particiones,
+ * cada una con su propio grafo de espera, LockManager y detector, así que
+ * ningún monitor ni hilo carga con todo. Una transacción tiene una rama
+ * (su propia Transaction) en cada partición que toca. Los ciclos dentro de
+ * una partición los ve su grafo local; los que cruzan particiones se
+ * encuentran con sondas al estilo Chandy-Misra-Haas, sin juntar los grafos.
+ *
+ * <pre>
+ * java engine.ConcurrentDriver [--transactions=n] [--records=n] [--operations=n]
+ *                              [--writes=%] [--seed=n] [--policy=YOUNGEST]
+ *                              [--interval=ms] [--trace=archivo]
+ *                              [--timeout=ms] [--timeouts-only] [--shards=n] [--jmx]
+ * </pre>
+ *
+ * Sin --trace se genera una carga aleatoria; con --trace las operaciones del
+ * archivo se agrupan por transacción y cada una corre en su orden. Con
+ * --timeout el detector aborta además las esperas que pasan ese plazo; con
+ * --timeouts-only es lo único que hace, sin registrar aristas de espera.
+ * Con --jmx las métricas de cada partición quedan publicadas por JMX
+ * durante la corrida y al final se imprime su resumen.
+ *
+ * @author calbe
+ */
+public class ConcurrentDriver {
+    // Tope de la espera antes de reintentar una víctima: 2^6 = 64 ms
+    private static final int MAX_BACKOFF_SHIFT = 6;
+    
+    // Cada registro vive en la partición que indica el hash de su identificador
+    private final Shard[] shards;
+    // Transacciones a ejecutar, en orden de alta; durante run() solo se lee
+    private final Map<String, Worker> workers;
+    private long detectionIntervalMs;
+    
+    private final AtomicLong commits;
+    private final AtomicLong aborts;
+    private final AtomicLong deadlocks;
+    private final AtomicLong timeouts;
+    private final AtomicLong probes;
+    // Esperas concedidas (las de víctimas no cuentan); se comparte entre hilos
+    private final LatencyHistogram lockWaits;
+    // Desde que se cerró un ciclo hasta que se eligió su víctima; lo comparten los detectores
+    private final LatencyHistogram detectionLatencies;
+    private CountDownLatch startGate;
+    
+    public ConcurrentDriver() {
+        this(1);
+    }
+    
+    public ConcurrentDriver(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Invalid shard count: " + shardCount);
+        }
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+        }
+        this.workers = new LinkedHashMap<>();
+        this.detectionIntervalMs = 10;
+        this.commits = new AtomicLong();
+        this.aborts = new AtomicLong();
+        this.deadlocks = new AtomicLong();
+        this.timeouts = new AtomicLong();
+        this.probes = new AtomicLong();
+        this.lockWaits = new LatencyHistogram();
+        this.detectionLatencies = new LatencyHistogram();
+    }
+    
+    /** Partición de los registros con su propio grafo de espera, tabla de locks y detector. */
+    private static final class Shard {
+        private final int index;
+        private final WaitForGraph graph;
+        private final LockManager lockManager;
+        // Sondas que le mandan las demás particiones (y ella misma); solo las consume su detector
+        private final Queue<Probe> inbox;
+        // Quienes esperan acá, para no recorrer todas las ramas al iniciar sondas
+        private final Set<Worker> waiting;
+        // Pasadas, deadlocks y víctimas de esta partición, junto a los contadores de su LockManager
+        private final DeadlockMetrics metrics;
+        private DeadlockDetector detector;
+        
+        Shard(int index) {
+            this.index = index;
+            this.graph = new WaitForGraph();
+            this.lockManager = new LockManager(graph);
+            this.inbox = new ConcurrentLinkedQueue<>();
+            this.waiting = ConcurrentHashMap.newKeySet();
+            this.metrics = new DeadlockMetrics(graph, lockManager.getMetrics(), inbox);
+        }
+    }
+    
+    /**
+     * Sonda de Chandy-Misra-Haas: initiator espera, a través de la cadena de
+     * sondas anteriores, a target, que a su vez espera en la partición shard.
+     * Si desde target se llega de nuevo a initiator, o a cualquier otro
+     * destino de la cadena, hay un ciclo, y ese tramo de la cadena lo
+     * describe entero. visited hace las veces de las marcas de cada
+     * transacción: en una misma búsqueda cada una reenvía la sonda una vez.
+     * epoch identifica la espera de initiator que originó la búsqueda, y
+     * olderOnly la limita a transacciones más viejas que initiator.
+     */
+    private static final class Probe {
+        private final Worker initiator;
+        private final long epoch;
+        private final boolean olderOnly;
+        private final Set<Worker> visited;
+        private final Probe previous;
+        private final Worker target;
+        private final int shard;
+        
+        Probe(Worker initiator, long epoch, boolean olderOnly, Set<Worker> visited,
+              Probe previous, Worker target, int shard) {
+            this.initiator = initiator;
+            this.epoch = epoch;
+            this.olderOnly = olderOnly;
+            this.visited = visited;
+            this.previous = previous;
+            this.target = target;
+            this.shard = shard;
+        }
+    }
+    
+    /** Una transacción con sus operaciones; END es implícito al terminar la lista. */
+    private final class Worker implements Runnable {
+        private final String id;
+        private final List<Operation> operations;
+        private final long startSequence;
+        // Rama de la transacción en cada partición que tocó en el intento actual
+        private final Transaction[] branches;
+        private Thread thread;
+        private volatile boolean aborted;
+        // Inicio de la espera actual, para medir la latencia de detección
+        private volatile long waitingSince;
+        // Partición donde espera ahora, o -1; la consultan las sondas de las demás
+        private volatile int waitingShard;
+        // Cuándo repite la búsqueda por la espera actual, y cuánto espera después. Los
+        // reinicia el worker al empezar cada espera y los avanza el detector de la
+        // partición; una escritura del detector sobre una espera que ya terminó solo
+        // corre la próxima búsqueda
+        private volatile long nextProbeAt;
+        private volatile long probeDelay;
+        // A quiénes esperaba en la última búsqueda que inició; 0 si todavía ninguna
+        private volatile long probedEdges;
+        // Cuenta las esperas: las sondas de una espera que ya terminó se descartan
+        private volatile long waitEpoch;
+        
+        Worker(String id, long startSequence) {
+            this.id = id;
+            this.operations = new ArrayList<>();
+            this.startSequence = startSequence;
+            this.branches = new Transaction[shards.length];
+            this.waitingShard = -1;
+        }
+        
+        @Override
+        public void run() {
+            try {
+                startGate.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            int attempts = 0;
+            while (true) {
+                aborted = false;
+                boolean committed = execute();
+                if (committed) {
+                    for (Transaction branch : branches) {
+                        if (branch != null) {
+                            branch.finish();
+                        }
+                    }
+                }
+                // En la partición donde esperaba una víctima, el detector ya le sacó los locks
+                releaseAll();
+                if (committed) {
+                    commits.incrementAndGet();
+                    return;
+                }
+                // Víctima o espera vencida: se reintenta desde el principio
+                aborts.incrementAndGet();
+                backOff(++attempts);
+            }
+        }
+        
+        // Espera al azar hasta 2^intentos ms antes de reintentar: si volviera enseguida
+        // a las mismas colas, cerraría otra vez el ciclo con los que lo esperaban
+        private void backOff(int attempts) {
+            long limit = 1L << Math.min(attempts, MAX_BACKOFF_SHIFT);
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextLong(limit + 1));
+            } catch (InterruptedException e) {
+                // La interrupción del detector puede llegar tarde; ya no significa nada
+            }
+        }
+        
+        private boolean execute() {
+            for (Operation operation : operations) {
+                if (operation.getType() == Operation.Type.END) {
+                    break;
+                }
+                Record.LockMode mode = operation.getType() == Operation.Type.WRITE
+                        ? Record.LockMode.EXCLUSIVE : Record.LockMode.SHARED;
+                Shard shard = shardOf(operation.getRecordId());
+                Transaction branch = branch(shard);
+                long since = System.nanoTime();
+                waitingSince = since;
+                probeDelay = TimeUnit.MILLISECONDS.toNanos(detectionIntervalMs);
+                probedEdges = 0;
+                nextProbeAt = since + probeDelay;
+                waitEpoch++;
+                // Se marca antes de pedir el lock: una sonda nunca encuentra la arista sin la marca
+                waitingShard = shard.index;
+                LockManager.LockResult result = shard.lockManager.acquire(branch, operation.getRecordId(), mode);
+                if (result.getStatus() == LockManager.Status.WAITING) {
+                    shard.waiting.add(this);
+                    // Lo despierta quien le concede el lock (unpark) o el detector (interrupción);
+                    // la marca de interrupción se limpia para que no anule el próximo park
+                    while (branch.getWaitingFor() != null && !aborted) {
+                        LockSupport.park(this);
+                        Thread.interrupted();
+                    }
+                    shard.waiting.remove(this);
+                    waitingShard = -1;
+                    if (aborted) {
+                        return false;
+                    }
+                    long waited = System.nanoTime() - since;
+                    synchronized (lockWaits) {
+                        lockWaits.record(waited);
+                    }
+                } else {
+                    waitingShard = -1;
+                }
+                branch.markExecuted(operation);
+                // Cede el procesador entre operaciones, como si hiciera trabajo, para que
+                // las transacciones se intercalen aunque haya pocos hilos portadores
+                Thread.yield();
+            }
+            return true;
+        }
+        
+        // Una Transaction por partición: al sacarla del grafo se sueltan todos sus
+        // locks, y así cada partición suelta solo los propios bajo su monitor
+        private Transaction branch(Shard shard) {
+            Transaction branch = branches[shard.index];
+            if (branch == null) {
+                branch = new Transaction(id, startSequence);
+                if (shard.lockManager.tracksWaits()) {
+                    shard.graph.addTransaction(branch);
+                } else {
+                    shard.graph.registerTransaction(branch);
+                }
+                branches[shard.index] = branch;
+            }
+            return branch;
+        }
+        
+        private void releaseAll() {
+            for (int i = 0; i < branches.length; i++) {
+                if (branches[i] != null) {
+                    wakeUp(shards[i].lockManager.release(id));
+                    branches[i] = null;
+                }
+            }
+        }
+    }
+    
+    private Shard shardOf(String recordId) {
+        return shards[Math.floorMod(recordId.hashCode(), shards.length)];
+    }
+    
+    // Agrega una operación a su transacción, creándola si es la primera
+    public void addOperation(Operation operation) {
+        workers.computeIfAbsent(operation.getTransactionId(),
+                id -> new Worker(id, workers.size() + 1)).operations.add(operation);
+    }
+    
+    /**
+     * Genera una carga aleatoria: cada transacción toca operationsPerTransaction
+     * registros al azar entre recordCount, escribiendo con probabilidad writePercent.
+     */
+    public void generate(int transactionCount, int recordCount, int operationsPerTransaction,
+                         int writePercent, long seed) {
+        Random random = new Random(seed);
+        for (int t = 1; t <= transactionCount; t++) {
+            String transactionId = "T" + t;
+            for (int o = 0; o < operationsPerTransaction; o++) {
+                String recordId = "R" + random.nextInt(recordCount);
+                Operation.Type type = random.nextInt(100) < writePercent
+                        ? Operation.Type.WRITE : Operation.Type.READ;
+                addOperation(new Operation(type, transactionId, recordId));
+            }
+        }
+    }
+    
+    public void loadTrace(ScheduleReader reader) throws IOException {
+        try (reader) {
+            String operation;
+            while ((operation = reader.next()) != null) {
+                addOperation(Operation.parseOperation(operation));
+            }
+        }
+    }
+    
+    /**
+     * Lanza un hilo virtual por transacción, los suelta a la vez y espera a
+     * que todas terminen; las víctimas se reintentan hasta completar.
+     */
+    public ConcurrentReport run() throws InterruptedException {
+        startGate = new CountDownLatch(1);
+        for (Worker worker : workers.values()) {
+            worker.thread = Thread.ofVirtual().name(worker.id).start(worker);
+        }
+        
+        // Las sondas pendientes cuentan como esperas: mientras viajan conviene pasar seguido.
+        // Con varias particiones una pasada sin ciclos no dice que no los haya: los que
+        // cruzan particiones solo aparecen cuando una búsqueda los recorre, así que el
+        // intervalo no crece por encima del inicial
+        long maxIntervalMs = shards.length > 1 ? detectionIntervalMs : detectionIntervalMs * 8;
+        for (Shard shard : shards) {
+            shard.detector = new DeadlockDetector(() -> detectionPass(shard),
+                    () -> shard.graph.getEdgeCount() + shard.inbox.size(),
+                    detectionIntervalMs, Math.max(1, detectionIntervalMs / 8), maxIntervalMs);
+        }
+        long start = System.nanoTime();
+        for (Shard shard : shards) {
+            shard.detector.start();
+        }
+        startGate.countDown();
+        try {
+            for (Worker worker : workers.values()) {
+                worker.thread.join();
+            }
+        } finally {
+            for (Shard shard : shards) {
+                shard.detector.stop();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        
+        return new ConcurrentReport(workers.size(), shards.length, elapsed, commits.get(), aborts.get(),
+                deadlocks.get(), timeouts.get(), probes.get(), lockWaits, detectionLatencies);
+    }
+    
+    /**
+     * Pasada del detector de una partición: esperas vencidas y deadlocks
+     * locales dentro de su monitor, y después las sondas. Los ciclos que
+     * encuentran las sondas se confirman fuera del monitor, porque hay que
+     * tomar el de cada partición por la que pasan.
+     */
+    private boolean detectionPass(Shard shard) {
+        long start = System.nanoTime();
+        List<List<Probe>> cycles = new ArrayList<>();
+        boolean[] sent = new boolean[shards.length];
+        boolean resolved;
+        synchronized (shard.graph) {
+            resolved = expireWaits(shard);
+            resolved |= resolveLocalDeadlocks(shard);
+            if (shards.length > 1) {
+                initiateProbes(shard);
+                forwardProbes(shard, cycles, sent);
+            }
+        }
+        // Cada salto de una sonda espera una pasada del destino: no hace falta que sea la programada
+        for (int i = 0; i < sent.length; i++) {
+            if (sent[i]) {
+                shards[i].detector.requestPass();
+            }
+        }
+        for (List<Probe> cycle : cycles) {
+            resolved |= resolveGlobalDeadlock(shard, cycle);
+        }
+        shard.metrics.recordDetection(System.nanoTime() - start);
+        return resolved;
+    }
+    
+    // Todos los deadlocks de la partición de una vez, como el modo ALL_COMPONENTS del controlador
+    private boolean resolveLocalDeadlocks(Shard shard) {
+        WaitForGraph graph = shard.graph;
+        if (!graph.isDeadlocked()) {
+            return false;
+        }
+        List<List<String>> components = graph.findDeadlockedComponents();
+        if (components.isEmpty()) {
+            return false;
+        }
+        
+        // El ciclo quedó cerrado cuando empezó a esperar el último de sus miembros
+        long now = System.nanoTime();
+        synchronized (detectionLatencies) {
+            for (List<String> component : components) {
+                long closedAt = 0;
+                for (String id : component) {
+                    closedAt = Math.max(closedAt, workers.get(id).waitingSince);
+                }
+                detectionLatencies.record(now - closedAt);
+            }
+        }
+        deadlocks.addAndGet(components.size());
+        for (List<String> component : components) {
+            shard.metrics.recordDeadlock(component.size());
+        }
+        
+        for (String victimId : graph.chooseVictims(components)) {
+            abortWaiting(shard, workers.get(victimId));
+        }
+        return true;
+    }
+    
+    // Dentro del monitor de la partición: una espera vencida no puede concederse en el medio
+    private boolean expireWaits(Shard shard) {
+        boolean expired = false;
+        for (Record.Waiter waiter : shard.lockManager.expireWaits(System.nanoTime())) {
+            Transaction transaction = waiter.getTransaction();
+            if (shard.graph.getTransaction(transaction.getId()) != transaction) {
+                continue;
+            }
+            timeouts.incrementAndGet();
+            abortWaiting(shard, workers.get(transaction.getId()));
+            expired = true;
+        }
+        return expired;
+    }
+    
+    /**
+     * Una espera arranca su primera búsqueda cuando ya lleva un intervalo
+     * (las cortas no llegan a costar sondas) y otra cada vez que cambian las
+     * transacciones a las que espera. Todo ciclo se cierra con la arista de
+     * alguno de sus miembros, así que la búsqueda de ese miembro, que sigue
+     * a cualquiera sin importar la edad, lo encuentra apenas se cierra.
+     *
+     * Esa búsqueda puede perderse si pasa por alguien que en ese momento
+     * cambiaba de dueño. Por eso cada espera la repite, cada vez más
+     * espaciada, pero solo hacia transacciones más viejas: así cada ciclo
+     * lo reintenta la búsqueda de su miembro más joven y las demás no
+     * recorren lo que esa ya cubre. Las búsquedas anteriores siguen vivas
+     * mientras dure la espera: en un ciclo largo cada salto cuesta una
+     * pasada, y una búsqueda no debe cortar a otra que está por terminar.
+     */
+    private void initiateProbes(Shard shard) {
+        IntGraph<String> graph = shard.graph.getIntGraph();
+        long now = System.nanoTime();
+        long interval = TimeUnit.MILLISECONDS.toNanos(detectionIntervalMs);
+        for (Worker worker : shard.waiting) {
+            Transaction branch = worker.branches[shard.index];
+            int v = graph.indexOf(worker.id);
+            if (branch == null || branch.getWaitingFor() == null || v < 0
+                    || now - worker.waitingSince < interval) {
+                continue;
+            }
+            long edges = edgeSignature(graph, v);
+            boolean olderOnly;
+            if (edges != worker.probedEdges) {
+                worker.probedEdges = edges;
+                worker.probeDelay = interval;
+                olderOnly = false;
+            } else if (now >= worker.nextProbeAt) {
+                worker.probeDelay = Math.min(worker.probeDelay * 2, interval * 8);
+                olderOnly = true;
+            } else {
+                continue;
+            }
+            worker.nextProbeAt = now + worker.probeDelay;
+            Set<Worker> visited = ConcurrentHashMap.newKeySet();
+            visited.add(worker);
+            shard.inbox.add(new Probe(worker, worker.waitEpoch, olderOnly, visited, null, worker, shard.index));
+        }
+    }
+    
+    // Resume a quiénes espera v por su secuencia de inicio, que no se reutiliza
+    // como los índices del grafo; nunca da 0, que marca "sin búsqueda todavía"
+    private long edgeSignature(IntGraph<String> graph, int v) {
+        long signature = 0;
+        for (int i = 0; i < graph.outDegree(v); i++) {
+            long sequence = workers.get(graph.valueOf(graph.neighbor(v, i))).startSequence;
+            signature += (sequence + 1) * 0x9E3779B97F4A7C15L;
+        }
+        return signature == 0 ? 1 : signature;
+    }
+    
+    // Una búsqueda sigue viva mientras su iniciadora siga en la misma espera
+    private static boolean isCurrent(Probe probe) {
+        return probe.initiator.waitEpoch == probe.epoch && probe.initiator.waitingShard >= 0;
+    }
+    
+    /**
+     * Reenvía cada sonda a quienes espera su destino en esta partición (en
+     * un reintento, solo a los más viejos que la iniciadora). Si el
+     * siguiente no espera en ninguna partición la sonda se descarta; por ahí
+     * no puede cerrarse un ciclo todavía. Si el siguiente ya está en la
+     * cadena de la sonda, el ciclo se informa aunque no pase por la
+     * iniciadora: cuando casi todos esperan, cada búsqueda resuelve los que
+     * encuentra río abajo en lugar de solo el propio.
+     */
+    private void forwardProbes(Shard shard, List<List<Probe>> cycles, boolean[] sent) {
+        IntGraph<String> graph = shard.graph.getIntGraph();
+        Set<Worker> found = new HashSet<>();
+        Probe probe;
+        while ((probe = shard.inbox.poll()) != null) {
+            // Si el destino ya no espera acá, la dependencia que siguió la sonda desapareció
+            Transaction branch = shard.graph.getTransaction(probe.target.id);
+            int v = graph.indexOf(probe.target.id);
+            if (!isCurrent(probe) || branch == null || branch.getWaitingFor() == null || v < 0) {
+                continue;
+            }
+            for (int i = 0; i < graph.outDegree(v); i++) {
+                Worker next = workers.get(graph.valueOf(graph.neighbor(v, i)));
+                List<Probe> cycle = cycleThrough(probe, next);
+                if (cycle != null) {
+                    if (found.add(next)) {
+                        cycles.add(cycle);
+                    }
+                    continue;
+                }
+                if (probe.olderOnly && next.startSequence > probe.initiator.startSequence
+                        || !probe.visited.add(next)) {
+                    continue;
+                }
+                int nextShard = next.waitingShard;
+                if (nextShard < 0) {
+                    continue;
+                }
+                shards[nextShard].inbox.add(new Probe(probe.initiator, probe.epoch, probe.olderOnly,
+                        probe.visited, probe, next, nextShard));
+                if (nextShard != shard.index) {
+                    sent[nextShard] = true;
+                    probes.incrementAndGet();
+                }
+            }
+        }
+    }
+    
+    // El tramo de la cadena desde la sonda que llegó a worker hasta probe, o null si no pasó por él
+    private static List<Probe> cycleThrough(Probe probe, Worker worker) {
+        for (Probe start = probe; start != null; start = start.previous) {
+            if (start.target == worker) {
+                List<Probe> chain = new ArrayList<>();
+                for (Probe member = probe; member != start; member = member.previous) {
+                    chain.add(member);
+                }
+                chain.add(start);
+                Collections.reverse(chain);
+                return chain;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Confirma el ciclo que describe el tramo de cadena y aborta a su
+     * víctima; el último destino espera al primero. Las sondas viajaron
+     * mientras el grafo cambiaba, así que cada arista se verifica en su
+     * partición. Verificarlas de a una podría juntar aristas que nunca
+     * existieron a la vez (un deadlock fantasma): se toman los monitores de
+     * todas las particiones del ciclo, en orden de índice para no cruzarse
+     * con otro detector, y la víctima se aborta sin soltarlos.
+     */
+    private boolean resolveGlobalDeadlock(Shard origin, List<Probe> chain) {
+        int[] involved = new int[chain.size()];
+        for (int i = 0; i < involved.length; i++) {
+            involved[i] = chain.get(i).shard;
+        }
+        involved = Arrays.stream(involved).distinct().sorted().toArray();
+        return resolveGlobalDeadlock(origin, chain, involved, 0);
+    }
+    
+    private boolean resolveGlobalDeadlock(Shard origin, List<Probe> chain, int[] involved, int locked) {
+        if (locked < involved.length) {
+            synchronized (shards[involved[locked]].graph) {
+                return resolveGlobalDeadlock(origin, chain, involved, locked + 1);
+            }
+        }
+        
+        List<Transaction> candidates = new ArrayList<>(chain.size());
+        long closedAt = 0;
+        for (int i = 0; i < chain.size(); i++) {
+            Probe member = chain.get(i);
+            Worker next = chain.get((i + 1) % chain.size()).target;
+            Transaction branch = waitingBranch(member.target, member.shard, next);
+            if (branch == null) {
+                // La cadena pasó por aristas que ya cambiaron; la próxima búsqueda verá las nuevas
+                return false;
+            }
+            candidates.add(branch);
+            closedAt = Math.max(closedAt, member.target.waitingSince);
+        }
+        
+        // Otra partición puede haber visto el mismo ciclo en su grafo local (o con una
+        // búsqueda anterior), pero ya lo habría roto antes de soltar su monitor
+        Transaction victim = origin.graph.getVictimSelector().selectVictim(candidates);
+        int victimShard = chain.get(candidates.indexOf(victim)).shard;
+        if (!abortWaiting(shards[victimShard], workers.get(victim.getId()))) {
+            return false;
+        }
+        synchronized (detectionLatencies) {
+            detectionLatencies.record(System.nanoTime() - closedAt);
+        }
+        deadlocks.incrementAndGet();
+        origin.metrics.recordDeadlock(chain.size());
+        return true;
+    }
+    
+    // La rama de worker si sigue esperando a next en esa partición; null si no.
+    // Se llama dentro del monitor de la partición
+    private Transaction waitingBranch(Worker worker, int shardIndex, Worker next) {
+        Shard shard = shards[shardIndex];
+        Transaction branch = shard.graph.getTransaction(worker.id);
+        IntGraph<String> graph = shard.graph.getIntGraph();
+        int from = graph.indexOf(worker.id);
+        int to = graph.indexOf(next.id);
+        boolean waiting = branch != null && branch.getWaitingFor() != null
+                && from >= 0 && to >= 0 && graph.hasEdge(from, to);
+        return waiting ? branch : null;
+    }
+    
+    /**
+     * Saca al worker de la cola donde espera en esta partición, con sus locks
+     * de acá; los de las demás particiones los suelta él mismo al despertar.
+     * Debe llamarse dentro del monitor de la partición.
+     *
+     * @return false si ya no esperaba (le concedieron el lock o ya era víctima)
+     */
+    private boolean abortWaiting(Shard shard, Worker worker) {
+        Transaction branch = shard.graph.getTransaction(worker.id);
+        if (branch == null || branch.getWaitingFor() == null) {
+            return false;
+        }
+        worker.aborted = true;
+        wakeUp(shard.lockManager.release(worker.id));
+        worker.thread.interrupt();
+        shard.metrics.recordVictim();
+        return true;
+    }
+    
+    private void wakeUp(List<Record.Waiter> granted) {
+        for (Record.Waiter waiter : granted) {
+            LockSupport.unpark(workers.get(waiter.getTransaction().getId()).thread);
+        }
+    }
+    
+    public void setVictimPolicy(VictimPolicy policy) {
+        for (Shard shard : shards) {
+            shard.graph.setVictimSelector(policy);
+        }
+    }
+    
+    // Intervalo inicial de cada detector; se adapta entre un octavo y ocho veces este valor
+    // (con varias particiones, entre un octavo y este valor)
+    public void setDetectionIntervalMs(long detectionIntervalMs) {
+        this.detectionIntervalMs = detectionIntervalMs;
+    }
+    
+    // Plazo de cada espera; 0 (por defecto) espera hasta que la concedan o el detector la aborte
+    public void setWaitTimeoutMs(long waitTimeoutMs) {
+        for (Shard shard : shards) {
+            shard.lockManager.setWaitTimeoutMs(waitTimeoutMs);
+        }
+    }
+    
+    // Sin aristas de espera: solo los timeouts cortan los deadlocks
+    public void setTimeoutsOnly(boolean timeoutsOnly) {
+        for (Shard shard : shards) {
+            shard.lockManager.setWaitEdgesEnabled(!timeoutsOnly);
+        }
+    }
+    
+    public int getTransactionCount() { return workers.size(); }
+    public int getShardCount() { return shards.length; }
+    public long getDetectionIntervalMs() { return detectionIntervalMs; }
+    public WaitForGraph getWaitForGraph(int shard) { return shards[shard].graph; }
+    public DeadlockMetrics getMetrics(int shard) { return shards[shard].metrics; }
+    
+    public static void main(String[] args) throws IOException, InterruptedException {
+        // La cantidad de particiones hace falta antes de crear el driver
+        int shardCount = 1;
+        for (String arg : args) {
+            if (arg.startsWith("--shards=")) {
+                shardCount = Integer.parseInt(arg.substring(9));
+            }
+        }
+        ConcurrentDriver driver = new ConcurrentDriver(shardCount);
+        int transactions = 100_000;
+        int records = 300_000;
+        int operations = 4;
+        int writePercent = 50;
+        long seed = 1;
+        String trace = null;
+        boolean jmx = false;
+        for (String arg : args) {
+            if (arg.startsWith("--transactions=")) {
+                transactions = Integer.parseInt(arg.substring(15));
+            } else if (arg.startsWith("--records=")) {
+                records = Integer.parseInt(arg.substring(10));
+            } else if (arg.startsWith("--operations=")) {
+                operations = Integer.parseInt(arg.substring(13));
+            } else if (arg.startsWith("--writes=")) {
+                writePercent = Integer.parseInt(arg.substring(9));
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring(7));
+            } else if (arg.startsWith("--policy=")) {
+                driver.setVictimPolicy(VictimPolicy.valueOf(arg.substring(9).toUpperCase()));
+            } else if (arg.startsWith("--interval=")) {
+                driver.setDetectionIntervalMs(Long.parseLong(arg.substring(11)));
+            } else if (arg.startsWith("--trace=")) {
+                trace = arg.substring(8);
+            } else if (arg.startsWith("--timeout=")) {
+                driver.setWaitTimeoutMs(Long.parseLong(arg.substring(10)));
+            } else if (arg.equals("--timeouts-only")) {
+                driver.setTimeoutsOnly(true);
+            } else if (arg.equals("--jmx")) {
+                jmx = true;
+            } else if (!arg.startsWith("--shards=")) {
+                System.err.println("Usage: java engine.ConcurrentDriver [--transactions=n] [--records=n]"
+                        + " [--operations=n] [--writes=%] [--seed=n]"
+                        + " [--policy=" + Arrays.toString(VictimPolicy.values()) + "]"
+                        + " [--interval=ms] [--trace=file] [--timeout=ms] [--timeouts-only] [--shards=n] [--jmx]");
+                System.exit(2);
+            }
+        }
+        
+        if (trace != null) {
+            driver.loadTrace(ScheduleReader.open(Paths.get(trace)));
+        } else {
+            driver.generate(transactions, records, operations, writePercent, seed);
+        }
+        if (jmx) {
+            for (int i = 0; i < driver.getShardCount(); i++) {
+                try {
+                    System.out.println("jmx:            " + driver.getMetrics(i).register("concurrent-shard-" + i));
+                } catch (JMException e) {
+                    System.err.println("Could not register metrics MBean: " + e.getMessage());
+                }
+            }
+        }
+        System.out.println(driver.run());
+        if (jmx) {
+            for (int i = 0; i < driver.getShardCount(); i++) {
+                System.out.println("shard " + i + ":");
+                System.out.println(driver.getMetrics(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package engine;
+
+/**
+ * Resultado de una corrida del ConcurrentDriver.
+ *
+ * @author calbe
+ */
+public class ConcurrentReport {
+    private final long transactions;
+    private final int shards;
+    private final long elapsedNanos;
+    private final long commits;
+    private final long aborts;
+    private final long deadlocks;
+    private final long timeouts;
+    private final long probes;
+    private final long waits;
+    private final long waitP50Nanos;
+    private final long waitP99Nanos;
+    private final long waitMaxNanos;
+    private final long detectionP50Nanos;
+    private final long detectionP99Nanos;
+    private final long detectionMaxNanos;
+    
+    /**
+     * @param lockWaits          duración de cada espera que terminó con el lock concedido
+     * @param detectionLatencies tiempo entre el cierre de cada deadlock y su resolución
+     * @param probes             sondas que se mandaron de una partición a otra
+     */
+    ConcurrentReport(long transactions, int shards, long elapsedNanos, long commits, long aborts,
+                     long deadlocks, long timeouts, long probes, LatencyHistogram lockWaits, LatencyHistogram detectionLatencies) {
+        this.transactions = transactions;
+        this.shards = shards;
+        this.elapsedNanos = elapsedNanos;
+        this.commits = commits;
+        this.aborts = aborts;
+        this.deadlocks = deadlocks;
+        this.timeouts = timeouts;
+        this.probes = probes;
+        this.waits = lockWaits.getCount();
+        this.waitP50Nanos = lockWaits.percentile(50);
+        this.waitP99Nanos = lockWaits.percentile(99);
+        this.waitMaxNanos = lockWaits.getMax();
+        this.detectionP50Nanos = detectionLatencies.percentile(50);
+        this.detectionP99Nanos = detectionLatencies.percentile(99);
+        this.detectionMaxNanos = detectionLatencies.getMax();
+    }
+    
+    public double getCommitsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : commits * 1_000_000_000.0 / elapsedNanos;
+    }
+    
+    public double getAbortsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : aborts * 1_000_000_000.0 / elapsedNanos;
+    }
+    
+    // Getters
+    public long getTransactions() { return transactions; }
+    public int getShards() { return shards; }
+    public long getElapsedNanos() { return elapsedNanos; }
+    public long getCommits() { return commits; }
+    public long getAborts() { return aborts; }
+    public long getDeadlocks() { return deadlocks; }
+    // Abortos por espera vencida; también cuentan en getAborts
+    public long getTimeouts() { return timeouts; }
+    public long getProbes() { return probes; }
+    public long getWaits() { return waits; }
+    public long getWaitP50Nanos() { return waitP50Nanos; }
+    public long getWaitP99Nanos() { return waitP99Nanos; }
+    public long getWaitMaxNanos() { return waitMaxNanos; }
+    public long getDetectionP50Nanos() { return detectionP50Nanos; }
+    public long getDetectionP99Nanos() { return detectionP99Nanos; }
+    public long getDetectionMaxNanos() { return detectionMaxNanos; }
+    
+    @Override
+    public String toString() {
+        return String.format(
+                "transactions:   %d%n"
+              + "shards:         %d%n"
+              + "elapsed:        %.3f ms%n"
+              + "commits:        %d (%.0f/sec)%n"
+              + "aborts:         %d (%.0f/sec)%n"
+              + "deadlocks:      %d%n"
+              + "timeouts:       %d%n"
+              + "probes:         %d%n"
+              + "lock waits:     %d%n"
+              + "wait p50:       %.2f us%n"
+              + "wait p99:       %.2f us%n"
+              + "wait max:       %.2f us%n"
+              + "detection p50:  %.2f us%n"
+              + "detection p99:  %.2f us%n"
+              + "detection max:  %.2f us",
+                transactions, shards, elapsedNanos / 1_000_000.0,
+                commits, getCommitsPerSecond(),
+                aborts, getAbortsPerSecond(),
+                deadlocks, timeouts, probes, waits,
+                waitP50Nanos / 1000.0, waitP99Nanos / 1000.0, waitMaxNanos / 1000.0,
+                detectionP50Nanos / 1000.0, detectionP99Nanos / 1000.0, detectionMaxNanos / 1000.0);
+    }
+}
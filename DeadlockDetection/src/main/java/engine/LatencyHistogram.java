@@ -0,0 +1,79 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package engine;
+
+/**
+ * Histograma de latencias de tamaño fijo: cada potencia de dos se divide
+ * en 16 intervalos, así el error de un percentil es menor al 7% sin
+ * importar cuántas operaciones se registren.
+ *
+ * @author calbe
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_COUNT;
+    
+    private final long[] counts;
+    private long count;
+    private long max;
+    
+    public LatencyHistogram() {
+        this.counts = new long[BUCKETS];
+        this.count = 0;
+        this.max = 0;
+    }
+    
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[bucketOf(value)]++;
+        count++;
+        if (value > max) {
+            max = value;
+        }
+    }
+    
+    /**
+     * @return el límite superior del intervalo donde cae el percentil
+     *         (rango más cercano), sin pasar del máximo registrado
+     */
+    public long percentile(double percent) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percent / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, upperBoundOf(i));
+            }
+        }
+        return max;
+    }
+    
+    // Los valores menores a 16 tienen un intervalo propio cada uno
+    private static int bucketOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+    
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+        long sub = bucket % SUB_COUNT;
+        long lower = (1L << exponent) | (sub << (exponent - SUB_BITS));
+        return lower + (1L << (exponent - SUB_BITS)) - 1;
+    }
+    
+    public long getCount() { return count; }
+    public long getMax() { return max; }
+}
@@ -0,0 +1,269 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package engine;
+
+import controller.DeadlockController;
+import controller.EventLog;
+import controller.WriteAheadLog;
+import model.PreventionPolicy;
+import model.ScheduleReader;
+import model.VictimPolicy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+
+/**
+ * Ejecuta un schedule sobre el DeadlockController a máxima velocidad, sin
+ * pausas ni interfaz gráfica, y mide el throughput y la latencia de cada
+ * operación. Pensado para correr trazas grandes en lote:
+ *
+ * <pre>
+ * java engine.SimulationEngine traza.txt [--mode=single|all|timeout] [--policy=YOUNGEST]
+ *                              [--prevention=WAIT_DIE|WOUND_WAIT] [--timeout=ms]
+ *                              [--background=ms] [--max-ops=n] [--batch=n] [--log[=DEBUG]]
+ *                              [--wal=archivo] [--group-commit=ms] [--snapshot=archivo] [--jmx]
+ * </pre>
+ *
+ * La traza tiene una o varias operaciones por línea separadas por comas,
+ * con el mismo formato que la interfaz; "-" lee de la entrada estándar.
+ * Se lee en streaming, de a --batch operaciones, así que su tamaño no
+ * está limitado por la memoria. Con --log se imprimen al final los últimos
+ * eventos que retiene el registro, filtrados por nivel (ERROR, INFO o DEBUG).
+ * Con --prevention no se detectan deadlocks: se evitan por antigüedad.
+ * Con --timeout cada espera se aborta al pasar ese plazo; --mode=timeout
+ * deja solo los timeouts, sin aristas ni detección. Con --wal el estado se
+ * registra en ese archivo con group commit cada --group-commit ms (10 por
+ * defecto), y cada commit espera a que su end esté en disco; si el archivo
+ * ya existe, antes se recupera lo que tenía. Con
+ * --snapshot se parte del snapshot si existe (más lo que registró el log
+ * después) y al terminar se guarda ahí un checkpoint. Con --jmx las
+ * métricas quedan publicadas por JMX durante la corrida y al final se
+ * imprime su resumen.
+ *
+ * @author calbe
+ */
+public class SimulationEngine {
+    private final DeadlockController controller;
+    private final AtomicLong deadlocks;
+    private long maxOperations;
+    // Operaciones que se leen del schedule cada vez que la cola se vacía
+    private int streamBatchSize;
+    
+    public SimulationEngine(DeadlockController controller) {
+        this.controller = controller;
+        this.deadlocks = new AtomicLong();
+        this.maxOperations = Long.MAX_VALUE;
+        this.streamBatchSize = 4096;
+        controller.addDeadlockListener((found, victims) -> deadlocks.addAndGet(found.size()));
+    }
+    
+    public SimulationEngine() {
+        this(new DeadlockController());
+        controller.setLogEnabled(false);
+    }
+    
+    // Agrega al schedule una línea de la traza
+    public void addOperations(String line) {
+        controller.addMultipleOperations(line);
+    }
+    
+    // Lee la traza en streaming a medida que se procesa, sin cargarla entera
+    public void streamTrace(ScheduleReader reader) {
+        controller.streamOperations(reader, streamBatchSize);
+    }
+    
+    public void loadTrace(BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.trim().isEmpty()) {
+                controller.addMultipleOperations(line);
+            }
+        }
+    }
+    
+    /**
+     * Procesa la cola hasta vaciarla. Las operaciones reinsertadas al
+     * interrumpir una víctima también se procesan y se cuentan. Con el
+     * detector en segundo plano se sigue hasta que ya no quede ningún
+     * deadlock pendiente de resolver. Con timeouts se esperan también las
+     * esperas pendientes, salvo que desde la última vez que vencieron no
+     * haya terminado ninguna transacción: entonces las bloquea alguna que
+     * nunca hace end y reintentarlas no lleva a ningún lado.
+     */
+    public SimulationReport run() {
+        LatencyHistogram latencies = new LatencyHistogram();
+        long abortsBefore = controller.getAbortCount();
+        long commitsBefore = controller.getCommitCount();
+        long deadlocksBefore = deadlocks.get();
+        
+        boolean awaitingTimeouts = false;
+        long commitsAtTimeouts = -1;
+        long start = System.nanoTime();
+        while (latencies.getCount() < maxOperations) {
+            if (!controller.hasOperations()) {
+                // La cola vacía solo es el final si no queda un deadlock por resolver
+                if (controller.isIdle()) {
+                    break;
+                }
+                if (controller.getLockManager().getPendingTimeouts() > 0) {
+                    if (!awaitingTimeouts) {
+                        long commits = controller.getCommitCount();
+                        if (commits == commitsAtTimeouts) {
+                            break;
+                        }
+                        commitsAtTimeouts = commits;
+                        awaitingTimeouts = true;
+                    }
+                    controller.expireWaits();
+                } else if (controller.getDeadlockDetector() == null) {
+                    break;
+                }
+                Thread.onSpinWait();
+                continue;
+            }
+            awaitingTimeouts = false;
+            long before = System.nanoTime();
+            controller.processNextOperation();
+            latencies.record(System.nanoTime() - before);
+        }
+        long elapsed = System.nanoTime() - start;
+        
+        return new SimulationReport(latencies, elapsed,
+                deadlocks.get() - deadlocksBefore,
+                controller.getAbortCount() - abortsBefore,
+                controller.getCommitCount() - commitsBefore,
+                !controller.hasOperations());
+    }
+    
+    // Corta la corrida tras n operaciones, por si un schedule nunca termina
+    public void setMaxOperations(long maxOperations) {
+        this.maxOperations = maxOperations;
+    }
+    
+    public void setStreamBatchSize(int streamBatchSize) {
+        this.streamBatchSize = streamBatchSize;
+    }
+    
+    public long getMaxOperations() { return maxOperations; }
+    public int getStreamBatchSize() { return streamBatchSize; }
+    public DeadlockController getController() { return controller; }
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: java engine.SimulationEngine <trace|-> [--mode=single|all|timeout]"
+                    + " [--policy=" + Arrays.toString(VictimPolicy.values()) + "]"
+                    + " [--prevention=" + Arrays.toString(PreventionPolicy.values()) + "] [--timeout=ms]"
+                    + " [--background=ms] [--max-ops=n] [--batch=n]"
+                    + " [--log[=" + Arrays.toString(EventLog.Level.values()) + "]]"
+                    + " [--wal=file] [--group-commit=ms] [--snapshot=file] [--jmx]");
+            System.exit(2);
+        }
+        
+        SimulationEngine engine = new SimulationEngine();
+        DeadlockController controller = engine.getController();
+        long backgroundMs = 0;
+        String walFile = null;
+        String snapshotFile = null;
+        long groupCommitMs = 10;
+        boolean jmx = false;
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.startsWith("--mode=")) {
+                String mode = arg.substring(7);
+                controller.setDetectionMode(mode.equalsIgnoreCase("all")
+                        ? DeadlockController.DetectionMode.ALL_COMPONENTS
+                        : mode.equalsIgnoreCase("timeout")
+                        ? DeadlockController.DetectionMode.TIMEOUT_ONLY
+                        : DeadlockController.DetectionMode.SINGLE_CYCLE);
+            } else if (arg.startsWith("--policy=")) {
+                controller.setVictimSelector(VictimPolicy.valueOf(arg.substring(9).toUpperCase()));
+            } else if (arg.startsWith("--prevention=")) {
+                controller.setPreventionPolicy(PreventionPolicy.valueOf(arg.substring(13).toUpperCase()));
+            } else if (arg.startsWith("--timeout=")) {
+                controller.setWaitTimeoutMs(Long.parseLong(arg.substring(10)));
+            } else if (arg.startsWith("--background=")) {
+                backgroundMs = Long.parseLong(arg.substring(13));
+            } else if (arg.startsWith("--max-ops=")) {
+                engine.setMaxOperations(Long.parseLong(arg.substring(10)));
+            } else if (arg.startsWith("--batch=")) {
+                engine.setStreamBatchSize(Integer.parseInt(arg.substring(8)));
+            } else if (arg.startsWith("--wal=")) {
+                walFile = arg.substring(6);
+            } else if (arg.startsWith("--snapshot=")) {
+                snapshotFile = arg.substring(11);
+            } else if (arg.startsWith("--group-commit=")) {
+                groupCommitMs = Long.parseLong(arg.substring(15));
+            } else if (arg.equals("--jmx")) {
+                jmx = true;
+            } else if (arg.equals("--log")) {
+                controller.setLogEnabled(true);
+            } else if (arg.startsWith("--log=")) {
+                controller.setLogLevel(EventLog.Level.valueOf(arg.substring(6).toUpperCase()));
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        
+        // Recuperar reinicia el estado: va antes de empezar a leer la traza
+        Path snapshot = snapshotFile != null ? Paths.get(snapshotFile) : null;
+        long restoreStart = System.nanoTime();
+        if (walFile != null) {
+            long recovered = controller.recover(snapshot, Paths.get(walFile), groupCommitMs);
+            System.out.println("recovered:    " + recovered + " log records");
+        } else if (snapshot != null && Files.exists(snapshot)) {
+            controller.restore(snapshot);
+        }
+        if (snapshot != null) {
+            System.out.printf("restored:     %d transactions in %.3f ms%n", controller.getGraph().getTransactions().size(),
+                              (System.nanoTime() - restoreStart) / 1e6);
+        }
+        engine.streamTrace(args[0].equals("-")
+                ? new ScheduleReader(Channels.newChannel(System.in))
+                : ScheduleReader.open(Paths.get(args[0])));
+        
+        if (backgroundMs > 0) {
+            controller.startBackgroundDetection(backgroundMs);
+        }
+        if (jmx) {
+            try {
+                System.out.println("jmx:          " + controller.getMetrics().register("simulation"));
+            } catch (JMException e) {
+                System.err.println("Could not register metrics MBean: " + e.getMessage());
+            }
+        }
+        SimulationReport report;
+        try {
+            report = engine.run();
+        } finally {
+            controller.stopBackgroundDetection();
+            if (snapshot != null) {
+                controller.checkpoint(snapshot);
+            }
+            if (walFile != null) {
+                WriteAheadLog log = controller.getWriteAheadLog();
+                controller.closeLog();
+                if (log != null) {
+                    System.out.println("log records:  " + log.getRecords() + " (" + log.getSyncs() + " syncs)");
+                }
+            }
+        }
+        
+        if (controller.isLogEnabled()) {
+            for (String entry : controller.getLog()) {
+                System.out.println(entry);
+            }
+        }
+        System.out.println(report);
+        if (jmx) {
+            System.out.println(controller.getMetrics());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package engine;
+
+/**
+ * Resultado de una corrida del SimulationEngine.
+ *
+ * @author calbe
+ */
+public class SimulationReport {
+    private final long operations;
+    private final long elapsedNanos;
+    private final long deadlocks;
+    private final long aborts;
+    private final long commits;
+    private final long p50Nanos;
+    private final long p99Nanos;
+    private final long maxNanos;
+    private final boolean completed;
+    
+    /**
+     * @param latencies latencia de cada operación procesada
+     * @param completed false si la corrida se cortó por el límite de operaciones
+     */
+    SimulationReport(LatencyHistogram latencies, long elapsedNanos,
+                     long deadlocks, long aborts, long commits, boolean completed) {
+        this.operations = latencies.getCount();
+        this.elapsedNanos = elapsedNanos;
+        this.deadlocks = deadlocks;
+        this.aborts = aborts;
+        this.commits = commits;
+        this.p50Nanos = latencies.percentile(50);
+        this.p99Nanos = latencies.percentile(99);
+        this.maxNanos = latencies.getMax();
+        this.completed = completed;
+    }
+    
+    public double getOperationsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : operations * 1_000_000_000.0 / elapsedNanos;
+    }
+    
+    // Getters
+    public long getOperations() { return operations; }
+    public long getElapsedNanos() { return elapsedNanos; }
+    public long getDeadlocks() { return deadlocks; }
+    public long getAborts() { return aborts; }
+    public long getCommits() { return commits; }
+    public long getP50Nanos() { return p50Nanos; }
+    public long getP99Nanos() { return p99Nanos; }
+    public long getMaxNanos() { return maxNanos; }
+    public boolean isCompleted() { return completed; }
+    
+    @Override
+    public String toString() {
+        return String.format(
+                "operations:   %d%s%n"
+              + "elapsed:      %.3f ms%n"
+              + "throughput:   %.0f ops/sec%n"
+              + "deadlocks:    %d%n"
+              + "aborts:       %d%n"
+              + "commits:      %d%n"
+              + "latency p50:  %.2f us%n"
+              + "latency p99:  %.2f us%n"
+              + "latency max:  %.2f us",
+                operations, completed ? "" : " (stopped at operation limit)",
+                elapsedNanos / 1_000_000.0,
+                getOperationsPerSecond(),
+                deadlocks, aborts, commits,
+                p50Nanos / 1000.0, p99Nanos / 1000.0, maxNanos / 1000.0);
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package model;
+
+/**
+ * Recibe cada cambio del grafo de espera para poder actualizarse por
+ * diferencias en lugar de recorrerlo entero. Los cambios de estructura se
+ * notifican con el monitor del grafo tomado y los locks desde el hilo que
+ * los pidió, así que las implementaciones deben ser rápidas y seguras entre
+ * hilos; por ejemplo, encolar el cambio y aplicarlo después.
+ *
+ * @author calbe
+ */
+public interface GraphListener {
+    
+    default void vertexAdded(String transactionId) {}
+    
+    /** Las aristas que tocaban al vértice desaparecen con él, sin aviso propio. */
+    default void vertexRemoved(String transactionId) {}
+    
+    default void edgeAdded(String fromTransactionId, String toTransactionId) {}
+    
+    default void edgeRemoved(String fromTransactionId, String toTransactionId) {}
+    
+    /** También se avisa cuando un lock compartido pasa a exclusivo. */
+    default void lockGranted(String transactionId, String recordId, Record.LockMode mode) {}
+    
+    default void lockReleased(String transactionId, String recordId) {}
+    
+    /** El grafo quedó vacío de una vez (reset). */
+    default void graphCleared() {}
+}
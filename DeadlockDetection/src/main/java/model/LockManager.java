@@ -0,0 +1,374 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Punto de entrada para pedir locks desde varios hilos a la vez. El camino
+ * rápido (lock libre o compatible) es un CAS sobre el Record y no toma ningún
+ * lock global; cuando hay que esperar se encola dentro del monitor del
+ * registro, y solo si se registran aristas de espera también en el del grafo.
+ * Los monitores se toman siempre en el orden grafo, registro, plazos.
+ *
+ * Con una PreventionPolicy no se registran aristas: cada conflicto se decide
+ * en el momento por antigüedad y el resultado dice a quién hay que abortar.
+ *
+ * Con un timeout de espera cada pedido encolado recibe un plazo en una
+ * TimingWheel; expireWaits devuelve los que lo pasaron sin que les
+ * concedieran el lock, para abortarlos aunque no haya ciclo a la vista.
+ *
+ * Cada pedido se cuenta en LockMetrics según cómo terminó.
+ *
+ * @author calbe
+ */
+public class LockManager {
+    public enum Status { GRANTED, UPGRADED, ALREADY_HELD, WAITING, DENIED }
+    
+    /** Resultado de un pedido de lock. */
+    public static class LockResult {
+        private static final LockResult GRANTED = new LockResult(Status.GRANTED, null, null, null);
+        private static final LockResult UPGRADED = new LockResult(Status.UPGRADED, null, null, null);
+        private static final LockResult ALREADY_HELD = new LockResult(Status.ALREADY_HELD, null, null, null);
+        
+        private final Status status;
+        private final List<String> blockers;
+        private final List<String> cycle;
+        private final List<String> wounded;
+        
+        private LockResult(Status status, List<String> blockers, List<String> cycle, List<String> wounded) {
+            this.status = status;
+            this.blockers = blockers == null ? Collections.<String>emptyList() : blockers;
+            this.cycle = cycle;
+            this.wounded = wounded == null ? Collections.<String>emptyList() : wounded;
+        }
+        
+        public Status getStatus() { return status; }
+        // Transacciones por las que se espera (WAITING) o que la hicieron abortar (DENIED)
+        public List<String> getBlockers() { return blockers; }
+        // Ciclo cerrado por alguna de las nuevas aristas, o null
+        public List<String> getCycle() { return cycle; }
+        // Con WOUND_WAIT, las más jóvenes que bloquean el pedido y hay que abortar
+        public List<String> getWounded() { return wounded; }
+    }
+    
+    private final WaitForGraph graph;
+    // null: las esperas se registran en el grafo para detectar deadlocks
+    private volatile PreventionPolicy preventionPolicy;
+    // false: las esperas no dejan aristas y los deadlocks solo se cortan por timeout
+    private volatile boolean waitEdgesEnabled;
+    // 0: sin timeout; si no, plazo de cada espera
+    private volatile long waitTimeoutNanos;
+    // Plazos de las esperas pendientes; se usa dentro de su propio monitor, siempre
+    // después del grafo y del registro si hacen falta los tres
+    private final TimingWheel<Record.Waiter> waitTimeouts;
+    private final LockMetrics metrics;
+    
+    public LockManager(WaitForGraph graph) {
+        this.graph = graph;
+        this.preventionPolicy = null;
+        this.waitEdgesEnabled = true;
+        this.waitTimeoutNanos = 0;
+        this.waitTimeouts = new TimingWheel<>(TimeUnit.MILLISECONDS.toNanos(1), System.nanoTime());
+        this.metrics = new LockMetrics();
+    }
+    
+    public LockResult acquire(Transaction transaction, String recordId, Record.LockMode mode) {
+        LockResult result = request(transaction, recordId, mode);
+        metrics.recordRequest(result.getStatus());
+        return result;
+    }
+    
+    private LockResult request(Transaction transaction, String recordId, Record.LockMode mode) {
+        Record record = graph.getOrCreateRecord(recordId);
+        
+        // Camino rápido sin bloqueo global
+        LockResult result = tryLock(transaction, record, mode);
+        if (result != null) {
+            return result;
+        }
+        
+        // Hay conflicto: se reintenta dentro del monitor del registro, que es donde
+        // se lo concede a su cola, para no encolarse detrás de un dueño que acaba
+        // de soltarlo. Solo si la espera deja aristas hace falta además el del
+        // grafo; con prevención o solo timeouts, pedidos sobre registros
+        // distintos no se bloquean entre sí
+        if (!tracksWaits()) {
+            synchronized (record) {
+                return conflict(transaction, record, mode);
+            }
+        }
+        synchronized (graph) {
+            synchronized (record) {
+                return conflict(transaction, record, mode);
+            }
+        }
+    }
+    
+    // Se llama con el monitor del registro tomado
+    private LockResult conflict(Transaction transaction, Record record, Record.LockMode mode) {
+        LockResult result = tryLock(transaction, record, mode);
+        if (result != null) {
+            return result;
+        }
+        PreventionPolicy policy = preventionPolicy;
+        if (policy != null) {
+            return prevent(transaction, record, mode, policy);
+        }
+        
+        // Queda en la cola FIFO del registro hasta que se lo liberen
+        enqueue(transaction, record, mode);
+        
+        List<Transaction> holders = record.getConflictingHolders(transaction, mode);
+        Transaction first = record.peekWaiter().getTransaction();
+        if (holders.isEmpty() && first != transaction) {
+            // Compatible con los dueños pero detrás de otros pedidos: espera al primero
+            holders = Collections.singletonList(first);
+        }
+        List<String> blockers = new ArrayList<>();
+        List<String> cycle = null;
+        boolean edges = waitEdgesEnabled;
+        for (Transaction holder : holders) {
+            List<String> closed = edges ? graph.addEdge(transaction.getId(), holder.getId()) : null;
+            if (closed != null) {
+                cycle = closed;
+            }
+            blockers.add(holder.getId());
+        }
+        return new LockResult(Status.WAITING, blockers, cycle, null);
+    }
+    
+    /**
+     * Decide el conflicto por antigüedad, sin aristas. Se compara contra los
+     * dueños incompatibles y contra los pedidos incompatibles que ya están
+     * en la cola: los futuros dueños del registro salen de ahí, así que una
+     * espera permitida ahora lo sigue siendo cuando el registro cambia de
+     * manos.
+     */
+    private LockResult prevent(Transaction transaction, Record record, Record.LockMode mode,
+                               PreventionPolicy policy) {
+        List<Transaction> conflicts = record.getConflictingHolders(transaction, mode);
+        for (Record.Waiter waiter : record.getWaiters()) {
+            Transaction other = waiter.getTransaction();
+            // Una dueña encolada para el upgrade ya puede estar entre las dueñas en conflicto
+            if ((mode == Record.LockMode.EXCLUSIVE || waiter.getMode() == Record.LockMode.EXCLUSIVE)
+                    && !(record.isLockedBy(other) && conflicts.contains(other))) {
+                conflicts.add(other);
+            }
+        }
+        
+        List<String> blockers = new ArrayList<>(conflicts.size());
+        List<String> wounded = null;
+        for (Transaction other : conflicts) {
+            boolean older = transaction.getStartSequence() < other.getStartSequence();
+            if (policy == PreventionPolicy.WAIT_DIE && !older) {
+                // Una más joven no espera: aborta sin entrar a la cola
+                return new LockResult(Status.DENIED, Collections.singletonList(other.getId()), null, null);
+            }
+            if (policy == PreventionPolicy.WOUND_WAIT && older) {
+                if (wounded == null) {
+                    wounded = new ArrayList<>();
+                }
+                wounded.add(other.getId());
+            } else {
+                blockers.add(other.getId());
+            }
+        }
+        
+        // Espera en la cola; las heridas, al abortar, le dejan el registro
+        enqueue(transaction, record, mode);
+        return new LockResult(Status.WAITING, blockers, null, wounded);
+    }
+    
+    private void enqueue(Transaction transaction, Record record, Record.LockMode mode) {
+        Record.Waiter waiter = new Record.Waiter(record, transaction, mode);
+        long timeout = waitTimeoutNanos;
+        if (timeout > 0) {
+            synchronized (waitTimeouts) {
+                waiter.timeout = waitTimeouts.schedule(waiter, System.nanoTime() + timeout);
+            }
+        }
+        record.enqueueWaiter(waiter);
+        transaction.setWaitingFor(record);
+    }
+    
+    /**
+     * Vuelve a encolar una espera leída de un snapshot, al final de la cola
+     * del registro y sin tocar aristas ni prevención: el snapshot trae las
+     * suyas. Con timeout, el plazo cuenta desde ahora.
+     */
+    public void restoreWait(Transaction transaction, Record record, Record.LockMode mode) {
+        synchronized (record) {
+            enqueue(transaction, record, mode);
+        }
+    }
+    
+    /**
+     * Devuelve las esperas cuyo plazo ya pasó. Siguen en su cola y con sus
+     * aristas: quien llama aborta esas transacciones con release(), que
+     * además entrega el registro a los que iban detrás. O(1) por espera
+     * vencida más un paso por cada tick transcurrido.
+     *
+     * @return los pedidos vencidos, en orden de vencimiento
+     */
+    public List<Record.Waiter> expireWaits(long nowNanos) {
+        synchronized (waitTimeouts) {
+            if (waitTimeouts.size() == 0) {
+                return Collections.emptyList();
+            }
+            List<Record.Waiter> expired = new ArrayList<>();
+            waitTimeouts.advance(nowNanos, expired);
+            metrics.recordTimeouts(expired.size());
+            return expired;
+        }
+    }
+    
+    /**
+     * Saca la transacción del grafo (por fin o por interrupción), libera sus
+     * locks y entrega cada registro liberado a los siguientes pedidos
+     * compatibles de su cola. El costo depende solo de las esperas sobre
+     * esos registros, no del total de transacciones.
+     *
+     * @return los pedidos concedidos; sus transacciones pueden reanudarse
+     */
+    public List<Record.Waiter> release(String transactionId) {
+        synchronized (graph) {
+            Transaction transaction = graph.getTransaction(transactionId);
+            Record waitingFor = transaction != null ? transaction.getWaitingFor() : null;
+            if (waitingFor != null) {
+                synchronized (waitingFor) {
+                    cancelTimeout(waitingFor.removeWaiter(transaction));
+                }
+                transaction.setWaitingFor(null);
+            }
+            
+            List<Record.Waiter> granted = new ArrayList<>();
+            for (Record record : graph.removeTransaction(transactionId)) {
+                grantWaiters(record, granted);
+            }
+            // Si estaba en una cola, los que iban detrás esperaban por ella
+            if (waitingFor != null) {
+                grantWaiters(waitingFor, granted);
+            }
+            return granted;
+        }
+    }
+    
+    private void cancelTimeout(Record.Waiter waiter) {
+        if (waiter != null && waiter.timeout != null) {
+            synchronized (waitTimeouts) {
+                waitTimeouts.cancel(waiter.timeout);
+            }
+        }
+    }
+    
+    private void grantWaiters(Record record, List<Record.Waiter> granted) {
+        synchronized (record) {
+            grantQueued(record, granted);
+        }
+    }
+    
+    // Concede el registro en orden FIFO y reescribe las aristas de los que siguen esperando
+    private void grantQueued(Record record, List<Record.Waiter> granted) {
+        Record.Waiter head;
+        while ((head = record.peekWaiter()) != null
+                && record.lock(head.getTransaction(), head.getMode())) {
+            record.pollWaiter();
+            cancelTimeout(head);
+            Transaction transaction = head.getTransaction();
+            transaction.setWaitingFor(null);
+            graph.fireLockGranted(transaction.getId(), record.getId(), head.getMode());
+            // Solo esperaba por este registro: ya no espera a nadie
+            graph.removeOutgoingEdges(transaction.getId());
+            granted.add(head);
+            metrics.recordGrantAfterWait();
+        }
+        if (!tracksWaits()) {
+            return;  // sin aristas que reescribir
+        }
+        
+        // Los que quedan esperan ahora a los nuevos dueños incompatibles; si no
+        // chocan con ninguno, esperan al primero de la cola
+        Record.Waiter first = record.peekWaiter();
+        for (Record.Waiter waiter : record.getWaiters()) {
+            String waiterId = waiter.getTransaction().getId();
+            graph.removeOutgoingEdges(waiterId);
+            List<Transaction> blockers = record.getConflictingHolders(waiter.getTransaction(), waiter.getMode());
+            if (blockers.isEmpty() && waiter != first) {
+                graph.addEdge(waiterId, first.getTransaction().getId());
+            }
+            for (Transaction holder : blockers) {
+                graph.addEdge(waiterId, holder.getId());
+            }
+        }
+    }
+    
+    private LockResult tryLock(Transaction transaction, Record record, Record.LockMode mode) {
+        if (record.holdsLock(transaction, mode)) {
+            return LockResult.ALREADY_HELD;
+        }
+        boolean upgrade = record.isLockedBy(transaction);
+        // Un pedido nuevo no se adelanta a los que ya esperan; si no, una corriente
+        // de lecturas puede dejar sin turno para siempre a una escritura
+        if (!upgrade && record.hasWaiters()) {
+            return null;
+        }
+        if (record.lock(transaction, mode)) {
+            graph.fireLockGranted(transaction.getId(), record.getId(), mode);
+            return upgrade ? LockResult.UPGRADED : LockResult.GRANTED;
+        }
+        return null;
+    }
+    
+    /**
+     * Cambia entre prevención (WAIT_DIE o WOUND_WAIT) y detección (null).
+     * Debe elegirse sin transacciones activas: las esperas ya registradas
+     * no se convierten.
+     */
+    public void setPreventionPolicy(PreventionPolicy preventionPolicy) {
+        this.preventionPolicy = preventionPolicy;
+    }
+    
+    public PreventionPolicy getPreventionPolicy() { return preventionPolicy; }
+    public LockMetrics getMetrics() { return metrics; }
+    
+    /**
+     * Sin aristas de espera el grafo nunca ve un ciclo: solo tiene sentido
+     * con un timeout que corte los deadlocks. Como la política, se elige
+     * sin transacciones activas.
+     */
+    public void setWaitEdgesEnabled(boolean waitEdgesEnabled) {
+        this.waitEdgesEnabled = waitEdgesEnabled;
+    }
+    
+    public boolean isWaitEdgesEnabled() { return waitEdgesEnabled; }
+    
+    // true si las esperas se registran como aristas en el grafo
+    public boolean tracksWaits() { return preventionPolicy == null && waitEdgesEnabled; }
+    
+    // Plazo de cada espera nueva; 0 lo desactiva. Las ya encoladas conservan el suyo
+    public void setWaitTimeoutMs(long waitTimeoutMs) {
+        this.waitTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(waitTimeoutMs);
+    }
+    
+    public long getWaitTimeoutMs() { return TimeUnit.NANOSECONDS.toMillis(waitTimeoutNanos); }
+    
+    // Esperas con plazo pendiente
+    public int getPendingTimeouts() {
+        synchronized (waitTimeouts) {
+            return waitTimeouts.size();
+        }
+    }
+    
+    // Descarta todos los plazos, para cuando se vacía el grafo entero
+    public void clearWaitTimeouts() {
+        synchronized (waitTimeouts) {
+            waitTimeouts.clear();
+        }
+    }
+}
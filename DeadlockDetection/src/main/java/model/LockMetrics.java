@@ -0,0 +1,68 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package model;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores de los pedidos de lock. Se incrementan desde el camino rápido
+ * de varios hilos a la vez, así que cada uno es un LongAdder: los hilos
+ * suman en celdas separadas y solo la lectura las recorre.
+ *
+ * @author calbe
+ */
+public class LockMetrics {
+    private final LongAdder requests;
+    // Concedidos sin esperar, incluidos los upgrades y los que ya se tenían
+    private final LongAdder immediateGrants;
+    private final LongAdder waits;
+    // WAIT_DIE: pedidos que hicieron morir a la transacción
+    private final LongAdder denials;
+    // Esperas que terminaron con el lock concedido
+    private final LongAdder grantsAfterWait;
+    private final LongAdder timeouts;
+    
+    public LockMetrics() {
+        this.requests = new LongAdder();
+        this.immediateGrants = new LongAdder();
+        this.waits = new LongAdder();
+        this.denials = new LongAdder();
+        this.grantsAfterWait = new LongAdder();
+        this.timeouts = new LongAdder();
+    }
+    
+    void recordRequest(LockManager.Status status) {
+        requests.increment();
+        switch (status) {
+            case GRANTED:
+            case UPGRADED:
+            case ALREADY_HELD:
+                immediateGrants.increment();
+                break;
+            case WAITING:
+                waits.increment();
+                break;
+            case DENIED:
+                denials.increment();
+                break;
+        }
+    }
+    
+    void recordGrantAfterWait() {
+        grantsAfterWait.increment();
+    }
+    
+    void recordTimeouts(int count) {
+        timeouts.add(count);
+    }
+    
+    // Getters
+    public long getRequests() { return requests.sum(); }
+    public long getImmediateGrants() { return immediateGrants.sum(); }
+    public long getWaits() { return waits.sum(); }
+    public long getDenials() { return denials.sum(); }
+    public long getGrantsAfterWait() { return grantsAfterWait.sum(); }
+    public long getTimeouts() { return timeouts.sum(); }
+}
@@ -11,9 +11,10 @@ package model;
 public class Operation {
     public enum Type { READ, WRITE, END }
     
-    private Type type;
-    private String transactionId;
-    private String recordId;
+    // Inmutable: OperationParser reutiliza la misma instancia en modo pool
+    private final Type type;
+    private final String transactionId;
+    private final String recordId;
     
     public Operation(Type type, String transactionId, String recordId) {
         this.type = type;
@@ -21,32 +22,13 @@ public class Operation {
         this.recordId = recordId;
     }
     
+    // Un parser por hilo para las llamadas sueltas: OperationParser no es seguro
+    // entre hilos y compartir uno obligaba a serializar a todos en su monitor.
+    // Los identificadores quedan internados en la tabla de cada hilo
+    private static final ThreadLocal<OperationParser> PARSER = ThreadLocal.withInitial(OperationParser::new);
+    
     public static Operation parseOperation(String input) {
-        // Primero, limpiar espacios y convertir a minúsculas para comparación
-        String cleanInput = input.trim();
-        
-        // Verificar si es una operación de END primero
-        if (cleanInput.toLowerCase().startsWith("end(")) {
-            String content = cleanInput.substring(4, cleanInput.length() - 1).trim();
-            return new Operation(Type.END, content, null);
-        }
-        
-        // Verificar si es READ o WRITE
-        if (cleanInput.toLowerCase().startsWith("read(")) {
-            String content = cleanInput.substring(5, cleanInput.length() - 1).trim();
-            String[] parts = content.split(",");
-            if (parts.length == 2) {
-                return new Operation(Type.READ, parts[0].trim(), parts[1].trim());
-            }
-        } else if (cleanInput.toLowerCase().startsWith("write(")) {
-            String content = cleanInput.substring(6, cleanInput.length() - 1).trim();
-            String[] parts = content.split(",");
-            if (parts.length == 2) {
-                return new Operation(Type.WRITE, parts[0].trim(), parts[1].trim());
-            }
-        }
-        
-        throw new IllegalArgumentException("Invalid operation format: " + cleanInput);
+        return PARSER.get().parse(input);
     }
     
     // Getters
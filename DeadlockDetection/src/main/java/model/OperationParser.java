@@ -0,0 +1,253 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package model;
+
+/**
+ * Parser de operaciones que trabaja sobre el texto original sin copiarlo:
+ * las palabras clave se comparan en el lugar sin distinguir mayúsculas y
+ * los identificadores se resuelven contra una tabla de internado, así un
+ * "T1" repetido es siempre el mismo String y no se crea uno nuevo. En modo
+ * pool además se reutiliza la misma Operation para operaciones iguales
+ * (Operation es inmutable), y el parseo en estado estable no crea objetos.
+ *
+ * No es seguro para varios hilos: cada dueño debe sincronizar su uso.
+ *
+ * @author calbe
+ */
+public class OperationParser {
+    // Al superarse se vacían las tablas, para que una traza con millones de
+    // identificadores distintos no retenga cada uno de ellos en memoria
+    private static final int MAX_ENTRIES = 1 << 16;
+    
+    private final boolean pooled;
+    // Tablas de direccionamiento abierto; el tamaño es potencia de dos
+    private String[] interned;
+    private int internedCount;
+    private Operation[] pool;
+    private int poolCount;
+    
+    public OperationParser(boolean pooled) {
+        this.pooled = pooled;
+        this.interned = new String[64];
+        this.internedCount = 0;
+        this.pool = pooled ? new Operation[64] : null;
+        this.poolCount = 0;
+    }
+    
+    public OperationParser() {
+        this(false);
+    }
+    
+    public Operation parse(CharSequence input) {
+        return parse(input, 0, input.length());
+    }
+    
+    /**
+     * @throws IllegalArgumentException si input[start, end) no es read(T,R),
+     *         write(T,R) ni end(T)
+     */
+    public Operation parse(CharSequence input, int start, int end) {
+        // Sin espacios alrededor
+        while (start < end && isSpace(input.charAt(start))) start++;
+        while (end > start && isSpace(input.charAt(end - 1))) end--;
+        
+        Operation.Type type;
+        int open;
+        if (matchesKeyword(input, start, end, "read")) {
+            type = Operation.Type.READ;
+            open = start + 4;
+        } else if (matchesKeyword(input, start, end, "write")) {
+            type = Operation.Type.WRITE;
+            open = start + 5;
+        } else if (matchesKeyword(input, start, end, "end")) {
+            type = Operation.Type.END;
+            open = start + 3;
+        } else {
+            throw invalid(input, start, end);
+        }
+        if (open >= end || input.charAt(open) != '(' || input.charAt(end - 1) != ')') {
+            throw invalid(input, start, end);
+        }
+        int contentStart = open + 1;
+        int contentEnd = end - 1;
+        
+        if (type == Operation.Type.END) {
+            String transactionId = id(input, contentStart, contentEnd);
+            if (transactionId == null) {
+                throw invalid(input, start, end);
+            }
+            return operation(type, transactionId, null);
+        }
+        
+        int comma = -1;
+        for (int i = contentStart; i < contentEnd; i++) {
+            if (input.charAt(i) == ',') {
+                if (comma >= 0) {
+                    throw invalid(input, start, end);
+                }
+                comma = i;
+            }
+        }
+        String transactionId = comma < 0 ? null : id(input, contentStart, comma);
+        String recordId = comma < 0 ? null : id(input, comma + 1, contentEnd);
+        if (transactionId == null || recordId == null) {
+            throw invalid(input, start, end);
+        }
+        return operation(type, transactionId, recordId);
+    }
+    
+    // La palabra clave en minúsculas, comparada sin crear otra cadena
+    private static boolean matchesKeyword(CharSequence input, int start, int end, String keyword) {
+        if (end - start < keyword.length()) {
+            return false;
+        }
+        for (int i = 0; i < keyword.length(); i++) {
+            if (Character.toLowerCase(input.charAt(start + i)) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean isSpace(char c) {
+        return c <= ' ';
+    }
+    
+    private static IllegalArgumentException invalid(CharSequence input, int start, int end) {
+        return new IllegalArgumentException("Invalid operation format: " + input.subSequence(start, end));
+    }
+    
+    // Identificador sin espacios alrededor, ya internado; null si queda vacío
+    private String id(CharSequence input, int start, int end) {
+        while (start < end && isSpace(input.charAt(start))) start++;
+        while (end > start && isSpace(input.charAt(end - 1))) end--;
+        return start == end ? null : intern(input, start, end);
+    }
+    
+    private String intern(CharSequence input, int start, int end) {
+        // Mismo hash que String.hashCode, que cada String guarda ya calculado
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + input.charAt(i);
+        }
+        int mask = interned.length - 1;
+        int slot = spread(hash) & mask;
+        String candidate;
+        while ((candidate = interned[slot]) != null) {
+            if (candidate.hashCode() == hash && contentEquals(candidate, input, start, end)) {
+                return candidate;
+            }
+            slot = (slot + 1) & mask;
+        }
+        
+        String id = input.subSequence(start, end).toString();
+        if (internedCount >= MAX_ENTRIES) {
+            clear();
+        } else if (2 * (internedCount + 1) > interned.length) {
+            interned = rehashStrings(interned);
+        }
+        insertString(interned, id);
+        internedCount++;
+        return id;
+    }
+    
+    private static boolean contentEquals(String id, CharSequence input, int start, int end) {
+        if (id.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            if (id.charAt(i) != input.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static String[] rehashStrings(String[] table) {
+        String[] bigger = new String[table.length * 2];
+        for (String id : table) {
+            if (id != null) {
+                insertString(bigger, id);
+            }
+        }
+        return bigger;
+    }
+    
+    private static void insertString(String[] table, String id) {
+        int mask = table.length - 1;
+        int slot = spread(id.hashCode()) & mask;
+        while (table[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = id;
+    }
+    
+    // Con identificadores internados basta comparar referencias
+    private Operation operation(Operation.Type type, String transactionId, String recordId) {
+        if (!pooled) {
+            return new Operation(type, transactionId, recordId);
+        }
+        int hash = operationHash(type, transactionId, recordId);
+        int mask = pool.length - 1;
+        int slot = spread(hash) & mask;
+        Operation candidate;
+        while ((candidate = pool[slot]) != null) {
+            if (candidate.getType() == type && candidate.getTransactionId() == transactionId
+                    && candidate.getRecordId() == recordId) {
+                return candidate;
+            }
+            slot = (slot + 1) & mask;
+        }
+        
+        Operation operation = new Operation(type, transactionId, recordId);
+        if (poolCount >= MAX_ENTRIES) {
+            pool = new Operation[pool.length];
+            poolCount = 0;
+        } else if (2 * (poolCount + 1) > pool.length) {
+            Operation[] bigger = new Operation[pool.length * 2];
+            for (Operation existing : pool) {
+                if (existing != null) {
+                    insertOperation(bigger, existing);
+                }
+            }
+            pool = bigger;
+        }
+        insertOperation(pool, operation);
+        poolCount++;
+        return operation;
+    }
+    
+    private static void insertOperation(Operation[] table, Operation operation) {
+        int mask = table.length - 1;
+        int slot = spread(operationHash(operation.getType(), operation.getTransactionId(),
+                                        operation.getRecordId())) & mask;
+        while (table[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = operation;
+    }
+    
+    private static int operationHash(Operation.Type type, String transactionId, String recordId) {
+        int hash = 31 * type.ordinal() + transactionId.hashCode();
+        return 31 * hash + (recordId == null ? 0 : recordId.hashCode());
+    }
+    
+    private static int spread(int hash) {
+        return (hash ^ (hash >>> 16)) * 0x9E3779B1;
+    }
+    
+    // Vacía ambas tablas: las operaciones del pool apuntan a identificadores internados
+    public void clear() {
+        interned = new String[interned.length];
+        internedCount = 0;
+        if (pooled) {
+            pool = new Operation[pool.length];
+            poolCount = 0;
+        }
+    }
+    
+    public boolean isPooled() { return pooled; }
+    public int getInternedCount() { return internedCount; }
+}
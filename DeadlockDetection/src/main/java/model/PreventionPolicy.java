@@ -0,0 +1,20 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Enum.java to edit this template
+ */
+package model;
+
+/**
+ * Prevención de deadlocks por antigüedad (secuencia de inicio, menor = más
+ * vieja) en lugar de detectarlos: cada espera permitida va siempre en el
+ * mismo sentido de antigüedad, así que nunca se cierra un ciclo y no hace
+ * falta mantener el grafo de espera.
+ *
+ * @author calbe
+ */
+public enum PreventionPolicy {
+    /** Solo una más vieja espera a una más joven; la más joven que choca aborta. */
+    WAIT_DIE,
+    /** La más vieja aborta a las más jóvenes que la bloquean; la más joven espera. */
+    WOUND_WAIT
+}
@@ -4,41 +4,214 @@
  */
 package model;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  *
  * @author calbe
  */
 public class Record {
-    private String id;
-    private Transaction lockedBy;
-    private boolean isLocked;
+    /** Compartido para lecturas, exclusivo para escrituras. */
+    public enum LockMode { SHARED, EXCLUSIVE }
+    
+    // Estado del lock: 0 libre, n > 0 con n dueños compartidos, -1 exclusivo.
+    // Se cambia solo con CAS, así varios hilos pueden pedir locks a la vez.
+    private static final int FREE = 0;
+    private static final int EXCLUSIVE = -1;
+    
+    // Orden en que se recorren los registros liberados juntos
+    static final Comparator<Record> BY_ID = Comparator.comparing(Record::getId);
+    
+    /** Pedido de lock en espera en la cola FIFO de un registro. */
+    public static class Waiter {
+        private final Record record;
+        private final Transaction transaction;
+        private final LockMode mode;
+        // Plazo de la espera en la rueda del LockManager; null sin timeout
+        TimingWheel.Timeout<Waiter> timeout;
+        
+        public Waiter(Record record, Transaction transaction, LockMode mode) {
+            this.record = record;
+            this.transaction = transaction;
+            this.mode = mode;
+        }
+        
+        public Record getRecord() { return record; }
+        public Transaction getTransaction() { return transaction; }
+        public LockMode getMode() { return mode; }
+    }
+    
+    private final String id;
+    private final AtomicInteger state;
+    // Transacciones que tienen el lock; varias solo si el modo es compartido
+    private final Set<Transaction> holders;
+    // Cola FIFO de esperas; se usa solo dentro del monitor de este registro
+    private final Deque<Waiter> waiters;
+    // Tamaño de la cola, legible sin el monitor desde el camino rápido
+    private volatile int waiterCount;
     
     public Record(String id) {
         this.id = id;
-        this.isLocked = false;
-        this.lockedBy = null;
+        this.state = new AtomicInteger(FREE);
+        this.holders = ConcurrentHashMap.newKeySet();
+        this.waiters = new ArrayDeque<>();
+        this.waiterCount = 0;
     }
     
     public boolean lock(Transaction transaction) {
-        if (!isLocked) {
-            this.lockedBy = transaction;
-            this.isLocked = true;
-            return true;
+        return lock(transaction, LockMode.EXCLUSIVE);
+    }
+    
+    /**
+     * Intenta obtener el lock en el modo pedido. Un lock compartido se concede
+     * si nadie tiene el exclusivo; el exclusivo solo si no hay otros dueños,
+     * lo que permite subir de S a X cuando el único dueño es quien lo pide.
+     *
+     * @return true si la transacción queda con el lock en (al menos) ese modo
+     */
+    public boolean lock(Transaction transaction, LockMode requested) {
+        if (holders.contains(transaction)) {
+            if (requested == LockMode.SHARED || state.get() == EXCLUSIVE) {
+                return true;
+            }
+            // Subida de S a X: solo si es el único dueño compartido
+            return state.compareAndSet(1, EXCLUSIVE);
+        }
+        
+        if (requested == LockMode.EXCLUSIVE) {
+            if (!state.compareAndSet(FREE, EXCLUSIVE)) {
+                return false;
+            }
+        } else {
+            int current;
+            do {
+                current = state.get();
+                if (current == EXCLUSIVE) {
+                    return false;
+                }
+            } while (!state.compareAndSet(current, current + 1));
+        }
+        holders.add(transaction);
+        transaction.addHeldLock(this);
+        return true;
+    }
+    
+    // Indica si la transacción ya tiene el lock en un modo suficiente
+    public boolean holdsLock(Transaction transaction, LockMode requested) {
+        return holders.contains(transaction)
+                && (requested == LockMode.SHARED || state.get() == EXCLUSIVE);
+    }
+    
+    /**
+     * Dueños actuales con los que choca un pedido en el modo dado. El camino
+     * rápido toma el estado con CAS antes de anotarse como dueño, y unlock se
+     * borra antes de devolverlo: si faltan dueños para el estado leído, alguno
+     * está en ese hueco y se lo espera. Devolver la lista incompleta dejaría
+     * al pedido en la cola sin aristas.
+     */
+    public List<Transaction> getConflictingHolders(Transaction transaction, LockMode requested) {
+        List<Transaction> conflicts = new ArrayList<>();
+        while (true) {
+            int current = state.get();
+            if (current == FREE || (requested == LockMode.SHARED && current != EXCLUSIVE)) {
+                conflicts.clear();
+                return conflicts;
+            }
+            int seen = 0;
+            for (Transaction holder : holders) {
+                seen++;
+                if (holder != transaction) {
+                    conflicts.add(holder);
+                }
+            }
+            if (seen >= (current == EXCLUSIVE ? 1 : current)) {
+                // El set de dueños no tiene orden fijo; las aristas y las heridas
+                // deben salir iguales al reejecutar el write-ahead log
+                if (conflicts.size() > 1) {
+                    conflicts.sort(Transaction.BY_ID);
+                }
+                return conflicts;
+            }
+            conflicts.clear();
+            // Con un solo núcleo el dueño a medio anotar necesita la CPU para terminar
+            Thread.yield();
+        }
+    }
+    
+    public void unlock(Transaction transaction) {
+        // Primero se quita el dueño y luego se libera el estado
+        if (holders.remove(transaction)) {
+            transaction.removeHeldLock(this);
+            int current;
+            do {
+                current = state.get();
+            } while (!state.compareAndSet(current, current == EXCLUSIVE ? FREE : current - 1));
         }
-        return false;
     }
     
     public void unlock() {
-        this.isLocked = false;
-        this.lockedBy = null;
+        for (Transaction holder : holders) {
+            unlock(holder);
+        }
+    }
+    
+    void enqueueWaiter(Waiter waiter) {
+        waiters.addLast(waiter);
+        waiterCount = waiters.size();
+    }
+    
+    Waiter peekWaiter() {
+        return waiters.peekFirst();
+    }
+    
+    Waiter pollWaiter() {
+        Waiter waiter = waiters.pollFirst();
+        waiterCount = waiters.size();
+        return waiter;
+    }
+    
+    // Saca el pedido de la transacción de la cola; null si no estaba en ella
+    Waiter removeWaiter(Transaction transaction) {
+        for (Iterator<Waiter> it = waiters.iterator(); it.hasNext();) {
+            Waiter waiter = it.next();
+            if (waiter.getTransaction() == transaction) {
+                it.remove();
+                waiterCount = waiters.size();
+                return waiter;
+            }
+        }
+        return null;
+    }
+    
+    public boolean hasWaiters() {
+        return waiterCount > 0;
     }
     
     public boolean isLockedBy(Transaction transaction) {
-        return isLocked && lockedBy != null && lockedBy.getId().equals(transaction.getId());
+        return holders.contains(transaction);
     }
     
     // Getters
     public String getId() { return id; }
-    public Transaction getLockedBy() { return lockedBy; }
-    public boolean isLocked() { return isLocked; }
+    public Transaction getLockedBy() {
+        Iterator<Transaction> iterator = holders.iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+    public boolean isLocked() { return state.get() != FREE; }
+    public LockMode getMode() {
+        int current = state.get();
+        return current == FREE ? null : current == EXCLUSIVE ? LockMode.EXCLUSIVE : LockMode.SHARED;
+    }
+    public Set<Transaction> getHolders() { return Collections.unmodifiableSet(holders); }
+    public Collection<Waiter> getWaiters() { return Collections.unmodifiableCollection(waiters); }
 }
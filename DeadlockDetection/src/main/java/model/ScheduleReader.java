@@ -0,0 +1,256 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lee un schedule operación por operación sin cargarlo entero en memoria.
+ * Los archivos se recorren por ventanas mapeadas (MappedByteBuffer) y
+ * cualquier otro canal, como la entrada estándar, por bloques. Las
+ * operaciones se separan por comas fuera de paréntesis o por saltos de
+ * línea, igual que en la interfaz.
+ *
+ * @author calbe
+ */
+public class ScheduleReader implements Closeable {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final long MAP_WINDOW = 64L * 1024 * 1024;
+    // Una operación más larga se corta y se reporta como inválida
+    private static final int MAX_OPERATION_LENGTH = 4096;
+    // Espera entre lecturas vacías de un canal no bloqueante, duplicándose hasta el máximo
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    
+    private final ReadableByteChannel channel;
+    // Solo si se lee por ventanas mapeadas
+    private final FileChannel file;
+    private long mapPosition;
+    private ByteBuffer buffer;
+    
+    // Operación en curso; se reutiliza entre operaciones
+    private byte[] token;
+    private int tokenLength;
+    private boolean overflow;
+    // Algún byte fuera de ASCII: la vista no sirve y hay que decodificar
+    private boolean nonAscii;
+    private final TokenView view;
+    private int parenCount;
+    private boolean finished;
+    
+    private long bytesRead;
+    private long operationsRead;
+    
+    private ScheduleReader(ReadableByteChannel channel, FileChannel file) {
+        this.channel = channel;
+        this.file = file;
+        this.mapPosition = 0;
+        this.buffer = file != null ? ByteBuffer.allocate(0) : ByteBuffer.allocateDirect(CHUNK_SIZE).flip();
+        this.token = new byte[64];
+        this.tokenLength = 0;
+        this.overflow = false;
+        this.nonAscii = false;
+        this.view = new TokenView();
+        this.parenCount = 0;
+        this.finished = false;
+    }
+    
+    /**
+     * Lee por bloques desde un canal cualquiera. Está pensado para canales
+     * bloqueantes; con uno no bloqueante, mientras no haya datos next espera
+     * con pausas crecientes en lugar de girar sobre read.
+     */
+    public ScheduleReader(ReadableByteChannel channel) {
+        this(channel, null);
+    }
+    
+    /** Abre un archivo y lo recorre por ventanas mapeadas en memoria. */
+    public static ScheduleReader open(Path path) throws IOException {
+        FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+        return new ScheduleReader(file, file);
+    }
+    
+    /**
+     * @return la siguiente operación sin espacios alrededor, o null al final
+     */
+    public String next() throws IOException {
+        return advance() ? takeToken() : null;
+    }
+    
+    /**
+     * Igual que next(), pero sin crear un String cuando la operación es
+     * ASCII: devuelve una vista sobre el buffer interno que solo es válida
+     * hasta la siguiente llamada.
+     */
+    public CharSequence nextSequence() throws IOException {
+        if (!advance()) {
+            return null;
+        }
+        if (nonAscii || overflow) {
+            return takeToken();
+        }
+        view.length = trimmedLength();
+        resetToken();
+        return view;
+    }
+    
+    // Deja en token la siguiente operación; false si ya no quedan
+    private boolean advance() throws IOException {
+        if (finished) {
+            return false;
+        }
+        while (true) {
+            if (!buffer.hasRemaining() && !fill()) {
+                finished = true;
+                return tokenLength > 0;
+            }
+            byte b = buffer.get();
+            bytesRead++;
+            
+            if (b == '\n' || b == '\r') {
+                // Un salto de línea siempre cierra la operación, aunque falte un paréntesis
+                parenCount = 0;
+                if (tokenLength > 0) {
+                    return true;
+                }
+                continue;
+            }
+            if (b == '(') {
+                parenCount++;
+            } else if (b == ')') {
+                parenCount--;
+            } else if (b == ',' && parenCount == 0) {
+                if (tokenLength > 0) {
+                    return true;
+                }
+                continue;
+            }
+            append(b);
+        }
+    }
+    
+    private void append(byte b) {
+        // Se descartan los espacios iniciales
+        if (tokenLength == 0 && (b == ' ' || b == '\t')) {
+            return;
+        }
+        if (tokenLength == token.length) {
+            if (tokenLength == MAX_OPERATION_LENGTH) {
+                overflow = true;
+                return;
+            }
+            token = Arrays.copyOf(token, Math.min(MAX_OPERATION_LENGTH, tokenLength * 2));
+        }
+        if (b < 0) {
+            nonAscii = true;
+        }
+        token[tokenLength++] = b;
+    }
+    
+    private String takeToken() {
+        // Los separadores son ASCII, así que nunca cortan un carácter UTF-8
+        String operation = new String(token, 0, trimmedLength(), StandardCharsets.UTF_8);
+        if (overflow) {
+            operation += "...";
+        }
+        resetToken();
+        return operation;
+    }
+    
+    private int trimmedLength() {
+        int length = tokenLength;
+        while (length > 0 && (token[length - 1] == ' ' || token[length - 1] == '\t')) {
+            length--;
+        }
+        return length;
+    }
+    
+    private void resetToken() {
+        tokenLength = 0;
+        overflow = false;
+        nonAscii = false;
+        parenCount = 0;
+        operationsRead++;
+    }
+    
+    /** Vista ASCII sobre token; lee el arreglo actual aunque haya crecido. */
+    private final class TokenView implements CharSequence {
+        private int length;
+        
+        @Override
+        public int length() {
+            return length;
+        }
+        
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return (char) token[index];
+        }
+        
+        // Decodifica solo el tramo pedido, sin pasar por el token completo
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || start > end || end > length) {
+                throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+            }
+            return new String(token, start, end - start, StandardCharsets.US_ASCII);
+        }
+        
+        @Override
+        public String toString() {
+            return new String(token, 0, length, StandardCharsets.US_ASCII);
+        }
+    }
+    
+    private boolean fill() throws IOException {
+        if (file != null) {
+            long size = file.size();
+            if (mapPosition >= size) {
+                return false;
+            }
+            long length = Math.min(MAP_WINDOW, size - mapPosition);
+            buffer = file.map(FileChannel.MapMode.READ_ONLY, mapPosition, length);
+            mapPosition += length;
+            return true;
+        }
+        buffer.clear();
+        int read;
+        long backoffNanos = MIN_BACKOFF_NANOS;
+        while ((read = channel.read(buffer)) == 0) {
+            // Canal no bloqueante todavía sin datos
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Interrupted while waiting for schedule input");
+            }
+            LockSupport.parkNanos(backoffNanos);
+            backoffNanos = Math.min(backoffNanos * 2, MAX_BACKOFF_NANOS);
+        }
+        buffer.flip();
+        return read > 0;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        channel.close();
+    }
+    
+    public boolean isFinished() { return finished; }
+    public long getBytesRead() { return bytesRead; }
+    public long getOperationsRead() { return operationsRead; }
+}
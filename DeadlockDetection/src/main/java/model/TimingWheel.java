@@ -0,0 +1,216 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package model;
+
+import java.util.List;
+
+/**
+ * Rueda de tiempo jerárquica para plazos de espera. Hay LEVELS niveles de
+ * SLOTS casilleros: un casillero del nivel 0 dura un tick y uno del nivel
+ * k dura SLOTS^k ticks. Cada plazo se guarda en una lista doblemente
+ * enlazada del casillero que le corresponde, así programarlo y cancelarlo
+ * es O(1) sin importar cuántos haya pendientes. Al avanzar, cuando el
+ * nivel 0 completa una vuelta se reparte el casillero siguiente del nivel
+ * de arriba entre los de abajo.
+ *
+ * No es thread-safe: el LockManager la usa dentro del monitor del grafo.
+ *
+ * @param <T> lo que se devuelve cuando vence el plazo
+ * @author calbe
+ */
+public class TimingWheel<T> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    // Con ticks de 1 ms los cuatro niveles cubren 2^24 ms, unas 4,6 horas
+    private static final int LEVELS = 4;
+    
+    /** Plazo programado; sirve para cancelarlo. */
+    public static final class Timeout<T> {
+        private final T value;
+        private final long deadline;
+        // Casillero donde está enlazado; null si ya venció o se canceló
+        private Timeout<T>[] bucket;
+        private int slot;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        
+        private Timeout(T value, long deadline) {
+            this.value = value;
+            this.deadline = deadline;
+        }
+        
+        public T getValue() { return value; }
+        public boolean isPending() { return bucket != null; }
+    }
+    
+    private final long tickNanos;
+    private final Timeout<T>[][] wheels;
+    // Plazos más allá del último nivel; se reparten cada vez que ese nivel da la vuelta
+    private final Timeout<T>[] overflow;
+    private final long originNanos;
+    // Último tick procesado
+    private long currentTick;
+    private int size;
+    
+    public TimingWheel(long tickNanos, long nowNanos) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("Invalid tick: " + tickNanos);
+        }
+        this.tickNanos = tickNanos;
+        this.wheels = newBuckets(LEVELS, SLOTS);
+        this.overflow = TimingWheel.<T>newBuckets(1, 1)[0];
+        this.originNanos = nowNanos;
+        this.currentTick = 0;
+        this.size = 0;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <T> Timeout<T>[][] newBuckets(int levels, int slots) {
+        return (Timeout<T>[][]) new Timeout<?>[levels][slots];
+    }
+    
+    /**
+     * Programa value para cuando pase deadlineNanos (según System.nanoTime).
+     * Un plazo ya vencido sale en el próximo advance.
+     */
+    public Timeout<T> schedule(T value, long deadlineNanos) {
+        // Se redondea hacia arriba: nunca vence antes de su plazo
+        long tick = Math.floorDiv(deadlineNanos - originNanos + tickNanos - 1, tickNanos);
+        Timeout<T> timeout = new Timeout<>(value, Math.max(tick, currentTick + 1));
+        insert(timeout);
+        size++;
+        return timeout;
+    }
+    
+    /** Cancela el plazo si sigue pendiente; si ya venció no hace nada. */
+    public void cancel(Timeout<T> timeout) {
+        if (timeout != null && timeout.bucket != null) {
+            unlink(timeout);
+            size--;
+        }
+    }
+    
+    /**
+     * Avanza hasta nowNanos y agrega a expired los valores de los plazos
+     * vencidos, tick por tick (los de un mismo tick, en cualquier orden).
+     */
+    public void advance(long nowNanos, List<T> expired) {
+        long target = Math.floorDiv(nowNanos - originNanos, tickNanos);
+        if (size == 0) {
+            // Nada que vencer ni repartir: se salta directo al presente
+            currentTick = Math.max(currentTick, target);
+            return;
+        }
+        while (currentTick < target && size > 0) {
+            long tick = ++currentTick;
+            cascade(tick);
+            Timeout<T>[] bucket = wheels[0];
+            int slot = (int) (tick & SLOT_MASK);
+            Timeout<T> timeout;
+            while ((timeout = bucket[slot]) != null) {
+                unlink(timeout);
+                size--;
+                expired.add(timeout.value);
+            }
+        }
+        currentTick = Math.max(currentTick, target);
+    }
+    
+    public void clear() {
+        for (Timeout<T>[] bucket : wheels) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                clearSlot(bucket, slot);
+            }
+        }
+        clearSlot(overflow, 0);
+        size = 0;
+    }
+    
+    public int size() { return size; }
+    public long getTickNanos() { return tickNanos; }
+    
+    // Al cruzar el límite de un casillero de nivel k, sus plazos bajan a niveles menores
+    private void cascade(long tick) {
+        if ((tick & SLOT_MASK) != 0) {
+            return;
+        }
+        // Primero el nivel más alto que cambia, así lo que baja de él se vuelve a repartir abajo
+        int level = 1;
+        while (level < LEVELS && (tick & ((1L << (SLOT_BITS * (level + 1))) - 1)) == 0) {
+            level++;
+        }
+        if (level == LEVELS) {
+            redistribute(overflow, 0);
+            level--;
+        }
+        for (; level >= 1; level--) {
+            redistribute(wheels[level], (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK));
+        }
+    }
+    
+    private void redistribute(Timeout<T>[] bucket, int slot) {
+        Timeout<T> timeout = bucket[slot];
+        bucket[slot] = null;
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            timeout.prev = null;
+            timeout.next = null;
+            insert(timeout);
+            timeout = next;
+        }
+    }
+    
+    // El nivel es el del bit más alto en que difieren el plazo y el tick actual:
+    // así el casillero elegido siempre se reparte antes de que el plazo llegue
+    private void insert(Timeout<T> timeout) {
+        long deadline = timeout.deadline;
+        long diff = deadline ^ currentTick;
+        int level = diff == 0 ? 0 : (63 - Long.numberOfLeadingZeros(diff)) / SLOT_BITS;
+        if (level >= LEVELS) {
+            link(timeout, overflow, 0);
+        } else {
+            link(timeout, wheels[level], (int) ((deadline >>> (SLOT_BITS * level)) & SLOT_MASK));
+        }
+    }
+    
+    private void link(Timeout<T> timeout, Timeout<T>[] bucket, int slot) {
+        Timeout<T> head = bucket[slot];
+        timeout.bucket = bucket;
+        timeout.slot = slot;
+        timeout.prev = null;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        bucket[slot] = timeout;
+    }
+    
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            timeout.bucket[timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.bucket = null;
+        timeout.prev = null;
+        timeout.next = null;
+    }
+    
+    private void clearSlot(Timeout<T>[] bucket, int slot) {
+        Timeout<T> timeout = bucket[slot];
+        bucket[slot] = null;
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout = next;
+        }
+    }
+}
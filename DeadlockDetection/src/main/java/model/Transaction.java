@@ -4,28 +4,65 @@
  */
 package model;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  *
  * @author calbe
  */
 public class Transaction {
+    // Secuencia global de inicio: mayor = más joven
+    private static final AtomicLong START_SEQUENCE = new AtomicLong();
+    // Orden en que se recorren varias dueñas de un mismo registro
+    static final Comparator<Transaction> BY_ID = Comparator.comparing(Transaction::getId);
+    
     private String id;
+    private final long startSequence;
+    private int executedWrites;
     private List<Operation> operations;
     private int currentStep;
-    private boolean active;
-    private boolean suspended;
-    private boolean finished;
+    private volatile boolean active;
+    private volatile boolean suspended;
+    private volatile boolean finished;
+    // Registros bloqueados por esta transacción, para liberarlos sin recorrer la tabla;
+    // concurrente porque una víctima puede liberarse desde otro hilo
+    private Set<Record> heldLocks;
+    // Registro por el que espera mientras está suspendida
+    private volatile Record waitingFor;
+    // Operaciones que llegaron mientras estaba suspendida
+    private Deque<Operation> deferredOperations;
     
     public Transaction(String id) {
+        this(id, START_SEQUENCE.incrementAndGet());
+    }
+    
+    // Permite conservar la secuencia original cuando una víctima se reinicia
+    public Transaction(String id, long startSequence) {
         this.id = id;
+        this.startSequence = startSequence;
+        this.executedWrites = 0;
         this.operations = new ArrayList<>();
         this.currentStep = 0;
         this.active = true;
         this.suspended = false;
         this.finished = false;
+        this.heldLocks = ConcurrentHashMap.newKeySet();
+        this.waitingFor = null;
+        this.deferredOperations = new ArrayDeque<>();
+    }
+    
+    // Al cargar transacciones de un snapshot: las que se creen después tienen que ser más jóvenes
+    public static void advanceStartSequence(long startSequence) {
+        START_SEQUENCE.accumulateAndGet(startSequence, Math::max);
     }
     
     public void addOperation(Operation op) {
@@ -43,6 +80,14 @@ public class Transaction {
         currentStep++;
     }
     
+    // Cuenta una operación ya ejecutada (lock obtenido)
+    public void markExecuted(Operation op) {
+        moveToNextStep();
+        if (op.getType() == Operation.Type.WRITE) {
+            executedWrites++;
+        }
+    }
+    
     public boolean hasMoreOperations() {
         return currentStep < operations.size();
     }
@@ -60,11 +105,39 @@ public class Transaction {
         this.active = false;
     }
     
+    // Guarda una operación para ejecutarla cuando la transacción se reanude
+    public void deferOperation(Operation op) {
+        deferredOperations.addLast(op);
+    }
+    
+    public Operation pollDeferredOperation() {
+        return deferredOperations.pollFirst();
+    }
+    
+    void setWaitingFor(Record record) {
+        this.waitingFor = record;
+    }
+    
+    void addHeldLock(Record record) {
+        heldLocks.add(record);
+    }
+    
+    void removeHeldLock(Record record) {
+        heldLocks.remove(record);
+    }
+    
     // Getters y Setters
     public String getId() { return id; }
     public boolean isSuspended() { return suspended; }
     public boolean isFinished() { return finished; }
     public boolean isActive() { return active; }
     public int getCurrentStep() { return currentStep; }
+    public long getStartSequence() { return startSequence; }
+    public int getExecutedWrites() { return executedWrites; }
+    // Trabajo que se pierde al interrumpirla: las escrituras cuentan doble porque hay que deshacerlas
+    public long getRollbackCost() { return currentStep + executedWrites; }
     public List<Operation> getOperations() { return operations; }
+    public Set<Record> getHeldLocks() { return Collections.unmodifiableSet(heldLocks); }
+    public Record getWaitingFor() { return waitingFor; }
+    public Collection<Operation> getDeferredOperations() { return Collections.unmodifiableCollection(deferredOperations); }
 }
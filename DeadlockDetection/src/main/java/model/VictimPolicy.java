@@ -0,0 +1,54 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Enum.java to edit this template
+ */
+package model;
+
+import java.util.List;
+
+/**
+ * Políticas de víctima incluidas. Cada una compara por un valor numérico que
+ * ya está en la transacción (no se parsean identificadores) y elige el menor;
+ * los empates se rompen a favor de interrumpir la más joven.
+ *
+ * @author calbe
+ */
+public enum VictimPolicy implements VictimSelector {
+    /** La que empezó último (mayor secuencia de inicio). */
+    YOUNGEST {
+        @Override
+        long cost(Transaction t) { return -t.getStartSequence(); }
+    },
+    /** La que ejecutó menos operaciones. */
+    FEWEST_OPERATIONS {
+        @Override
+        long cost(Transaction t) { return t.getCurrentStep(); }
+    },
+    /** La que tiene menos locks. */
+    FEWEST_LOCKS {
+        @Override
+        long cost(Transaction t) { return t.getHeldLocks().size(); }
+    },
+    /** La que pierde menos trabajo al deshacerse. */
+    LOWEST_ROLLBACK_COST {
+        @Override
+        long cost(Transaction t) { return t.getRollbackCost(); }
+    };
+    
+    abstract long cost(Transaction t);
+    
+    @Override
+    public Transaction selectVictim(List<Transaction> candidates) {
+        Transaction victim = null;
+        long victimCost = 0;
+        for (Transaction candidate : candidates) {
+            long cost = cost(candidate);
+            if (victim == null || cost < victimCost
+                    || (cost == victimCost && candidate.getStartSequence() > victim.getStartSequence())) {
+                victim = candidate;
+                victimCost = cost;
+            }
+        }
+        return victim;
+    }
+}
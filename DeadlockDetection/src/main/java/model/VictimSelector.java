@@ -0,0 +1,21 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Interface.java to edit this template
+ */
+package model;
+
+import java.util.List;
+
+/**
+ * Política para elegir qué transacción interrumpir dentro de un deadlock.
+ *
+ * @author calbe
+ */
+public interface VictimSelector {
+    
+    /**
+     * @param candidates transacciones del ciclo o componente (sin repetir)
+     * @return la víctima, o null si no hay candidatas
+     */
+    Transaction selectVictim(List<Transaction> candidates);
+}
@@ -5,259 +5,620 @@
 package model;
 
 import uni.aed.tda.graphTDA.Graph;
-import uni.aed.tda.graphTDA.Vertex;
-import uni.aed.tda.graphTDA.Edge;
+import uni.aed.tda.graphTDA.IntGraph;
+import uni.aed.tda.graphTDA.DirectedCycleFinder;
+import uni.aed.tda.graphTDA.TarjanSCC;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  *
  * @author calbe
  */
 public class WaitForGraph {
-    private Graph<String> graph;
+    // Las tablas de transacciones y registros son concurrentes y los locks se
+    // toman con CAS sobre cada Record; solo la estructura del grafo (vértices,
+    // aristas y orden topológico) se protege con el monitor de esta instancia.
+    private IntGraph<String> graph;
     private Map<String, Transaction> transactions;
     private Map<String, Record> records;
-    private Map<String, Vertex<String>> vertexMap;
+    
+    // Orden topológico en línea, indexado por el identificador del vértice
+    private int[] topoIndex;   // vértice -> posición
+    private int[] topoOrder;   // posición -> vértice (-1 = hueco libre)
+    private int topoSize;
+    private int topoHoles;
+    // Aristas que cerraron un ciclo y por eso no respetan el orden topológico
+    private int[] cyclicFrom;
+    private int[] cyclicTo;
+    private int cyclicCount;
+    // Hubo eliminaciones desde el último reintento de las aristas cíclicas
+    private boolean cyclicDirty;
+    
+    // Estado de la búsqueda acotada de addEdge; searchMark evita limpiar arreglos
+    private int[] searchParent;
+    private int[] searchMark;
+    private int[] searchStack;
+    private int searchEpoch;
+    // Posiciones en el orden de los vértices alcanzados por cada búsqueda
+    private int[] forwardReached;
+    private int[] backwardReached;
+    
+    private final DirectedCycleFinder cycleFinder;
+    private final TarjanSCC sccFinder;
+    private volatile VictimSelector victimSelector;
+    // Vista con Vertex/Edge, reconstruida solo si el grafo cambió
+    private Graph<String> graphView;
+    private int graphViewModCount;
+    // Cambios de estructura (vértices y aristas); se lee sin el monitor
+    private volatile long modCount;
+    // Copias de los tamaños del grafo para leerlos sin el monitor (métricas, detector)
+    private volatile int vertexCount;
+    private volatile int edgeCount;
+    private final List<GraphListener> listeners;
     
     public WaitForGraph() {
-        this.graph = new Graph<>(Graph.TYPE.DIRECTED);
-        this.transactions = new HashMap<>();
-        this.records = new HashMap<>();
-        this.vertexMap = new HashMap<>();
+        this.graph = new IntGraph<>();
+        this.transactions = new ConcurrentHashMap<>();
+        this.records = new ConcurrentHashMap<>();
+        this.topoIndex = new int[16];
+        this.topoOrder = new int[16];
+        this.topoSize = 0;
+        this.topoHoles = 0;
+        this.cyclicFrom = new int[4];
+        this.cyclicTo = new int[4];
+        this.cyclicCount = 0;
+        this.cyclicDirty = false;
+        this.searchParent = new int[16];
+        this.searchMark = new int[16];
+        this.searchStack = new int[16];
+        this.searchEpoch = 0;
+        this.forwardReached = new int[16];
+        this.backwardReached = new int[16];
+        this.cycleFinder = new DirectedCycleFinder();
+        this.sccFinder = new TarjanSCC();
+        this.victimSelector = VictimPolicy.YOUNGEST;
+        this.graphViewModCount = -1;
+        this.modCount = 0;
+        this.vertexCount = 0;
+        this.edgeCount = 0;
+        this.listeners = new CopyOnWriteArrayList<>();
     }
     
     // Método para limpiar completamente el grafo
-    public void clearAll() {
-        // Crear un nuevo grafo
-        this.graph = new Graph<>(Graph.TYPE.DIRECTED);
+    public synchronized void clearAll() {
+        // Vaciar el grafo
+        this.graph.clear();
         
         // Limpiar todos los mapas
         this.transactions.clear();
         this.records.clear();
-        this.vertexMap.clear();
+        this.topoSize = 0;
+        this.topoHoles = 0;
+        this.cyclicCount = 0;
+        this.cyclicDirty = false;
+        this.graphView = null;
+        this.graphViewModCount = -1;
+        structureChanged();
+        for (GraphListener listener : listeners) {
+            listener.graphCleared();
+        }
     }
     
-    public void addTransaction(Transaction transaction) {
+    public synchronized void addTransaction(Transaction transaction) {
         String id = transaction.getId();
         transactions.put(id, transaction);
         
         // Crear vértice en el grafo si no existe
-        if (!vertexMap.containsKey(id)) {
-            Vertex<String> vertex = new Vertex<>(id);
-            graph.getAllVertices().add(vertex);
-            vertexMap.put(id, vertex);
+        if (graph.indexOf(id) < 0) {
+            int v = graph.addVertex(id);
+            ensureVertexCapacity(graph.idBound());
+            
+            // Un vértice nuevo no tiene aristas: va al final del orden
+            if (topoSize == topoOrder.length) {
+                topoOrder = Arrays.copyOf(topoOrder, topoSize * 2);
+            }
+            topoIndex[v] = topoSize;
+            topoOrder[topoSize++] = v;
+            structureChanged();
+            if (!listeners.isEmpty()) {
+                for (GraphListener listener : listeners) {
+                    listener.vertexAdded(id);
+                }
+            }
         }
     }
     
-    public void removeTransaction(String transactionId) {
+    /**
+     * Registra la transacción sin crearle un vértice, para los modos de
+     * prevención que no usan el grafo; removeTransaction la saca igual.
+     */
+    public void registerTransaction(Transaction transaction) {
+        transactions.put(transaction.getId(), transaction);
+    }
+    
+    /**
+     * Saca la transacción del grafo y libera sus locks.
+     *
+     * @return los registros que liberó, para despertar a quienes los esperan
+     */
+    public synchronized List<Record> removeTransaction(String transactionId) {
         // Remover transacción del mapa
-        transactions.remove(transactionId);
+        Transaction transaction = transactions.remove(transactionId);
         
-        // Remover vértice del grafo
-        Vertex<String> vertexToRemove = vertexMap.get(transactionId);
-        if (vertexToRemove != null) {
-            // Primero remover todas las aristas relacionadas
-            List<Edge<String>> edgesToRemove = new ArrayList<>();
-            for (Vertex<String> v : graph.getAllVertices()) {
-                List<Edge<String>> edges = v.getEdges();
-                for (Edge<String> e : edges) {
-                    if (e.getFromVertex().getValue().equals(transactionId) || 
-                        e.getToVertex().getValue().equals(transactionId)) {
-                        edgesToRemove.add(e);
-                    }
+        // Remover vértice del grafo junto con sus aristas (entrantes y salientes),
+        // con costo proporcional a su grado
+        int v = graph.indexOf(transactionId);
+        if (v >= 0) {
+            graph.removeVertex(v);
+            
+            // Liberar su posición en el orden topológico
+            topoOrder[topoIndex[v]] = -1;
+            topoHoles++;
+            for (int i = cyclicCount - 1; i >= 0; i--) {
+                if (cyclicFrom[i] == v || cyclicTo[i] == v) {
+                    removeCyclicEdgeAt(i);
+                }
+            }
+            compactTopoOrder();
+            cyclicDirty = true;
+            structureChanged();
+            if (!listeners.isEmpty()) {
+                for (GraphListener listener : listeners) {
+                    listener.vertexRemoved(transactionId);
                 }
-                edges.removeAll(edgesToRemove);
             }
-            
-            // Remover aristas de la lista global
-            graph.getAllEdges().removeAll(edgesToRemove);
-            
-            // Remover el vértice
-            graph.getAllVertices().remove(vertexToRemove);
-            vertexMap.remove(transactionId);
         }
         
-        // Liberar todos los locks de esta transacción
-        for (Record record : records.values()) {
-            if (record.isLocked() && record.getLockedBy() != null && 
-                record.getLockedBy().getId().equals(transactionId)) {
-                record.unlock();
+        // Liberar solo los locks que tiene esta transacción
+        List<Record> released = new ArrayList<>();
+        if (transaction != null) {
+            released.addAll(transaction.getHeldLocks());
+            // En orden de id: así se conceden igual al reejecutar el write-ahead log
+            released.sort(Record.BY_ID);
+            for (Record record : released) {
+                record.unlock(transaction);
+                fireLockReleased(transactionId, record.getId());
             }
         }
+        return released;
     }
     
-    public void addEdge(String fromTransactionId, String toTransactionId) {
-        Vertex<String> fromVertex = vertexMap.get(fromTransactionId);
-        Vertex<String> toVertex = vertexMap.get(toTransactionId);
+    /**
+     * Agrega la arista from -> to y mantiene el orden topológico en línea.
+     * Solo se exploran y reordenan los vértices alcanzables dentro de la
+     * región del orden entre ambos extremos, por lo que no hace falta
+     * recorrer todo el grafo después de cada operación.
+     *
+     * @return el ciclo que cierra la nueva arista (from -> to -> ... -> from),
+     *         o null si la arista no forma ningún ciclo
+     */
+    public synchronized List<String> addEdge(String fromTransactionId, String toTransactionId) {
+        int from = graph.indexOf(fromTransactionId);
+        int to = graph.indexOf(toTransactionId);
         
-        if (fromVertex != null && toVertex != null) {
-            // Verificar si la arista ya existe
-            boolean edgeExists = false;
-            for (Edge<String> e : fromVertex.getEdges()) {
-                if (e.getToVertex().getValue().equals(toTransactionId)) {
-                    edgeExists = true;
-                    break;
+        // Agregar solo si ambos existen y la arista es nueva
+        if (from >= 0 && to >= 0 && graph.addEdge(from, to)) {
+            List<String> cycle = insertIntoTopoOrder(from, to);
+            if (cycle != null) {
+                addCyclicEdge(from, to);
+            }
+            structureChanged();
+            if (!listeners.isEmpty()) {
+                for (GraphListener listener : listeners) {
+                    listener.edgeAdded(fromTransactionId, toTransactionId);
                 }
             }
-            
-            if (!edgeExists) {
-                Edge<String> edge = new Edge<>(1, fromVertex, toVertex);
-                fromVertex.addEdge(edge);
-                graph.getAllEdges().add(edge);
+            return cycle;
+        }
+        return null;
+    }
+    
+    public synchronized void removeEdge(String fromTransactionId, String toTransactionId) {
+        int from = graph.indexOf(fromTransactionId);
+        int to = graph.indexOf(toTransactionId);
+        if (from >= 0 && to >= 0 && graph.removeEdge(from, to)) {
+            // Quitar una arista nunca invalida el orden, pero puede romper un ciclo
+            int i = indexOfCyclicEdge(from, to);
+            if (i >= 0) {
+                removeCyclicEdgeAt(i);
             }
+            cyclicDirty = true;
+            fireEdgeRemoved(fromTransactionId, toTransactionId);
         }
     }
     
-    public void removeEdge(String fromTransactionId, String toTransactionId) {
-        Vertex<String> fromVertex = vertexMap.get(fromTransactionId);
-        if (fromVertex != null) {
-            List<Edge<String>> edgesToRemove = new ArrayList<>();
-            for (Edge<String> e : fromVertex.getEdges()) {
-                if (e.getToVertex().getValue().equals(toTransactionId)) {
-                    edgesToRemove.add(e);
-                }
+    // Quita todas las aristas que salen de la transacción (deja de esperar)
+    public synchronized void removeOutgoingEdges(String transactionId) {
+        int from = graph.indexOf(transactionId);
+        if (from < 0) return;
+        
+        while (graph.outDegree(from) > 0) {
+            int to = graph.neighbor(from, graph.outDegree(from) - 1);
+            graph.removeEdge(from, to);
+            int i = indexOfCyclicEdge(from, to);
+            if (i >= 0) {
+                removeCyclicEdgeAt(i);
             }
-            fromVertex.getEdges().removeAll(edgesToRemove);
-            graph.getAllEdges().removeAll(edgesToRemove);
+            // Antes de avisar: quien escucha puede preguntar isDeadlocked()
+            cyclicDirty = true;
+            fireEdgeRemoved(transactionId, graph.valueOf(to));
         }
     }
     
-    public Record getOrCreateRecord(String recordId) {
-        records.putIfAbsent(recordId, new Record(recordId));
-        return records.get(recordId);
+    // Se llama dentro del monitor después de cada cambio de vértices o aristas
+    private void structureChanged() {
+        vertexCount = graph.vertexCount();
+        edgeCount = graph.edgeCount();
+        modCount++;
     }
     
-    public Transaction getTransaction(String transactionId) {
-        return transactions.get(transactionId);
+    private void fireEdgeRemoved(String fromTransactionId, String toTransactionId) {
+        structureChanged();
+        if (!listeners.isEmpty()) {
+            for (GraphListener listener : listeners) {
+                listener.edgeRemoved(fromTransactionId, toTransactionId);
+            }
+        }
+    }
+    
+    // Los locks no cambian la estructura ni modCount; LockManager avisa desde el camino rápido
+    void fireLockGranted(String transactionId, String recordId, Record.LockMode mode) {
+        if (!listeners.isEmpty()) {
+            for (GraphListener listener : listeners) {
+                listener.lockGranted(transactionId, recordId, mode);
+            }
+        }
+    }
+    
+    void fireLockReleased(String transactionId, String recordId) {
+        if (!listeners.isEmpty()) {
+            for (GraphListener listener : listeners) {
+                listener.lockReleased(transactionId, recordId);
+            }
+        }
+    }
+    
+    /**
+     * Para partir de un estado consistente, registrar el listener y leer el
+     * grafo dentro de un mismo synchronized (waitForGraph): los cambios se
+     * notifican con ese monitor tomado, así que no se pierde ni se repite
+     * ninguno.
+     */
+    public void addGraphListener(GraphListener listener) {
+        listeners.add(listener);
     }
     
-    public boolean hasCycle() {
-        Map<String, Boolean> visited = new HashMap<>();
-        Map<String, Boolean> recursionStack = new HashMap<>();
+    public void removeGraphListener(GraphListener listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Indica si el grafo contiene algún ciclo, usando las aristas que no
+     * pudieron entrar al orden topológico. Es O(1) solo si no hubo
+     * eliminaciones desde la última consulta; si las hubo, primero reintenta
+     * una vez para todo el lote cada arista cíclica, con una búsqueda acotada
+     * por arista, así que puede tardar y retiene el monitor mientras tanto.
+     * Quien no puede bloquearse (por ejemplo el EDT) debe calcularlo en otro
+     * hilo.
+     */
+    public synchronized boolean isDeadlocked() {
+        if (cyclicDirty) {
+            cyclicDirty = false;
+            retryCyclicEdges();
+        }
+        return cyclicCount > 0;
+    }
+    
+    // Inserta from -> to en el orden; si cierra un ciclo lo retorna sin reordenar.
+    // Solo se mueven los vértices alcanzados (Pearce-Kelly), no toda la región
+    // entre ambos extremos: con muchas transacciones vivas la región puede ser
+    // casi todo el orden aunque la espera afecte a unos pocos vértices
+    private List<String> insertIntoTopoOrder(int from, int to) {
+        int lowerBound = topoIndex[to];
+        int upperBound = topoIndex[from];
+        if (lowerBound > upperBound) {
+            return null; // el orden actual ya es válido
+        }
         
-        // Inicializar mapas
-        for (Vertex<String> v : graph.getAllVertices()) {
-            visited.put(v.getValue(), false);
-            recursionStack.put(v.getValue(), false);
+        // Hacia adelante desde "to": lo que debe quedar detrás de "from"
+        int epoch = ++searchEpoch;
+        int top = 0;
+        int forwardCount = 0;
+        searchMark[to] = epoch;
+        searchParent[to] = -1;
+        searchStack[top++] = to;
+        while (top > 0) {
+            int current = searchStack[--top];
+            if (current == from) {
+                List<String> cycle = new ArrayList<>();
+                for (int v = from; v >= 0; v = searchParent[v]) {
+                    cycle.add(graph.valueOf(v));
+                }
+                cycle.add(graph.valueOf(from));
+                Collections.reverse(cycle);
+                return cycle;
+            }
+            // Lo que está antes de "to" (llegó por una arista cíclica) no se mueve
+            if (topoIndex[current] >= lowerBound) {
+                forwardReached[forwardCount++] = topoIndex[current];
+            }
+            for (int i = 0; i < graph.outDegree(current); i++) {
+                int neighbor = graph.neighbor(current, i);
+                // También se siguen las aristas cíclicas: un ciclo hallado por ellas
+                // existe igual, y un conjunto alcanzado mayor no invalida el orden
+                if (searchMark[neighbor] != epoch && topoIndex[neighbor] <= upperBound) {
+                    searchMark[neighbor] = epoch;
+                    searchParent[neighbor] = current;
+                    searchStack[top++] = neighbor;
+                }
+            }
         }
         
-        // Verificar ciclos para cada vértice
-        for (Vertex<String> v : graph.getAllVertices()) {
-            if (!visited.get(v.getValue())) {
-                if (hasCycleUtil(v.getValue(), visited, recursionStack)) {
-                    return true;
+        // Hacia atrás desde "from": lo que debe quedar delante de "to". Por las
+        // aristas del orden no se cruza con el conjunto anterior (sería un ciclo);
+        // por las cíclicas sí podría, y esos vértices se quedan con el de adelante
+        int forwardEpoch = epoch;
+        epoch = ++searchEpoch;
+        int backwardCount = 0;
+        searchMark[from] = epoch;
+        searchStack[top++] = from;
+        while (top > 0) {
+            int current = searchStack[--top];
+            backwardReached[backwardCount++] = topoIndex[current];
+            for (int i = 0; i < graph.inDegree(current); i++) {
+                int predecessor = graph.predecessor(current, i);
+                int mark = searchMark[predecessor];
+                if (mark != epoch && mark != forwardEpoch
+                        && topoIndex[predecessor] > lowerBound && topoIndex[predecessor] <= upperBound) {
+                    searchMark[predecessor] = epoch;
+                    searchStack[top++] = predecessor;
                 }
             }
         }
         
-        return false;
+        // Ambos conjuntos conservan su orden relativo y ocupan las mismas
+        // posiciones que antes: primero los de atrás, después los de adelante
+        Arrays.sort(forwardReached, 0, forwardCount);
+        Arrays.sort(backwardReached, 0, backwardCount);
+        int count = 0;
+        for (int i = 0; i < backwardCount; i++) {
+            searchStack[count++] = topoOrder[backwardReached[i]];
+        }
+        for (int i = 0; i < forwardCount; i++) {
+            searchStack[count++] = topoOrder[forwardReached[i]];
+        }
+        int f = 0, b = 0;
+        for (int i = 0; i < count; i++) {
+            int position = f == forwardCount
+                    || (b < backwardCount && backwardReached[b] < forwardReached[f])
+                    ? backwardReached[b++] : forwardReached[f++];
+            topoOrder[position] = searchStack[i];
+            topoIndex[searchStack[i]] = position;
+        }
+        return null;
     }
     
-    private boolean hasCycleUtil(String transactionId, Map<String, Boolean> visited, 
-                                  Map<String, Boolean> recursionStack) {
-        if (!visited.get(transactionId)) {
-            visited.put(transactionId, true);
-            recursionStack.put(transactionId, true);
-            
-            Vertex<String> vertex = vertexMap.get(transactionId);
-            if (vertex != null) {
-                for (Edge<String> edge : vertex.getEdges()) {
-                    String neighbor = edge.getToVertex().getValue();
-                    if (!visited.get(neighbor)) {
-                        if (hasCycleUtil(neighbor, visited, recursionStack)) {
-                            return true;
-                        }
-                    } else if (recursionStack.get(neighbor)) {
-                        return true;
-                    }
-                }
+    private void addCyclicEdge(int from, int to) {
+        if (cyclicCount == cyclicFrom.length) {
+            cyclicFrom = Arrays.copyOf(cyclicFrom, cyclicCount * 2);
+            cyclicTo = Arrays.copyOf(cyclicTo, cyclicCount * 2);
+        }
+        cyclicFrom[cyclicCount] = from;
+        cyclicTo[cyclicCount++] = to;
+    }
+    
+    // Normalmente hay muy pocas aristas cíclicas, así que basta una búsqueda lineal
+    private int indexOfCyclicEdge(int from, int to) {
+        for (int i = 0; i < cyclicCount; i++) {
+            if (cyclicFrom[i] == from && cyclicTo[i] == to) return i;
+        }
+        return -1;
+    }
+    
+    private void removeCyclicEdgeAt(int i) {
+        cyclicCount--;
+        cyclicFrom[i] = cyclicFrom[cyclicCount];
+        cyclicTo[i] = cyclicTo[cyclicCount];
+    }
+    
+    // Reintenta ubicar en el orden las aristas que antes cerraban un ciclo
+    private void retryCyclicEdges() {
+        for (int i = cyclicCount - 1; i >= 0; i--) {
+            if (insertIntoTopoOrder(cyclicFrom[i], cyclicTo[i]) == null) {
+                removeCyclicEdgeAt(i);
             }
         }
-        
-        recursionStack.put(transactionId, false);
-        return false;
     }
     
-    public List<String> findCycle() {
-        Map<String, Boolean> visited = new HashMap<>();
-        Map<String, Boolean> recursionStack = new HashMap<>();
-        Map<String, String> parent = new HashMap<>();
+    // Elimina los huecos del orden cuando ocupan más de la mitad
+    private void compactTopoOrder() {
+        if (topoHoles < 64 || topoHoles * 2 < topoSize) return;
         
-        // Inicializar mapas
-        for (Vertex<String> v : graph.getAllVertices()) {
-            visited.put(v.getValue(), false);
-            recursionStack.put(v.getValue(), false);
-            parent.put(v.getValue(), null);
+        int size = 0;
+        for (int i = 0; i < topoSize; i++) {
+            int v = topoOrder[i];
+            if (v >= 0) {
+                topoOrder[size] = v;
+                topoIndex[v] = size++;
+            }
         }
+        topoSize = size;
+        topoHoles = 0;
+    }
+    
+    private void ensureVertexCapacity(int capacity) {
+        if (topoIndex.length >= capacity) return;
         
-        // Buscar ciclos
-        for (Vertex<String> v : graph.getAllVertices()) {
-            if (!visited.get(v.getValue())) {
-                String cycleStart = findCycleUtil(v.getValue(), visited, recursionStack, parent);
-                if (cycleStart != null) {
-                    // Reconstruir el ciclo
-                    List<String> cycle = new ArrayList<>();
-                    String current = cycleStart;
-                    do {
-                        cycle.add(current);
-                        current = parent.get(current);
-                    } while (current != null && !current.equals(cycleStart));
-                    cycle.add(cycleStart);
-                    Collections.reverse(cycle);
-                    return cycle;
-                }
+        int newCapacity = Math.max(capacity, topoIndex.length * 2);
+        topoIndex = Arrays.copyOf(topoIndex, newCapacity);
+        searchParent = Arrays.copyOf(searchParent, newCapacity);
+        searchMark = Arrays.copyOf(searchMark, newCapacity);
+        searchStack = Arrays.copyOf(searchStack, newCapacity);
+        forwardReached = Arrays.copyOf(forwardReached, newCapacity);
+        backwardReached = Arrays.copyOf(backwardReached, newCapacity);
+    }
+    
+    /**
+     * Transacciones con vértice en el orden topológico que se mantiene en
+     * línea (las aristas cíclicas no lo respetan). Agregarlas en este orden
+     * y después las aristas reconstruye el grafo sin reordenar nada.
+     */
+    public synchronized List<String> getTopologicalOrder() {
+        List<String> order = new ArrayList<>(topoSize - topoHoles);
+        for (int i = 0; i < topoSize; i++) {
+            if (topoOrder[i] >= 0) {
+                order.add(graph.valueOf(topoOrder[i]));
             }
         }
-        
-        return null;
+        return order;
+    }
+    
+    public Record getOrCreateRecord(String recordId) {
+        return records.computeIfAbsent(recordId, Record::new);
+    }
+    
+    public Transaction getTransaction(String transactionId) {
+        return transactions.get(transactionId);
+    }
+    
+    public synchronized boolean hasCycle() {
+        return cycleFinder.hasCycle(graph);
     }
     
-    private String findCycleUtil(String transactionId, Map<String, Boolean> visited,
-                                  Map<String, Boolean> recursionStack, Map<String, String> parent) {
-        visited.put(transactionId, true);
-        recursionStack.put(transactionId, true);
+    public synchronized List<String> findCycle() {
+        int[] cycle = cycleFinder.findCycle(graph);
+        if (cycle == null) {
+            return null;
+        }
         
-        Vertex<String> vertex = vertexMap.get(transactionId);
-        if (vertex != null) {
-            for (Edge<String> edge : vertex.getEdges()) {
-                String neighbor = edge.getToVertex().getValue();
-                if (!visited.get(neighbor)) {
-                    parent.put(neighbor, transactionId);
-                    String result = findCycleUtil(neighbor, visited, recursionStack, parent);
-                    if (result != null) {
-                        return result;
-                    }
-                } else if (recursionStack.get(neighbor)) {
-                    parent.put(neighbor, transactionId);
-                    return neighbor;
+        List<String> result = new ArrayList<>(cycle.length);
+        for (int v : cycle) {
+            result.add(graph.valueOf(v));
+        }
+        return result;
+    }
+    
+    /**
+     * Indica si cycle (con o sin el primer vértice repetido al final) sigue
+     * siendo un ciclo del grafo. Un ciclo informado antes puede haberse roto
+     * si alguna de sus transacciones terminó o dejó de esperar.
+     */
+    public synchronized boolean isCycle(List<String> cycle) {
+        int n = cycle.size();
+        if (n > 1 && cycle.get(0).equals(cycle.get(n - 1))) {
+            n--;
+        }
+        if (n == 0) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            int from = graph.indexOf(cycle.get(i));
+            int to = graph.indexOf(cycle.get((i + 1) % n));
+            if (from < 0 || to < 0 || !graph.hasEdge(from, to)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Calcula en una sola pasada lineal todas las componentes fuertemente
+     * conexas que contienen un ciclo, es decir, todos los deadlocks actuales.
+     */
+    public synchronized List<List<String>> findDeadlockedComponents() {
+        List<List<String>> result = new ArrayList<>();
+        for (int[] component : sccFinder.cyclicComponents(graph)) {
+            result.add(toTransactionIds(component, component.length));
+        }
+        return result;
+    }
+    
+    /**
+     * Elige un conjunto pequeño de víctimas que rompe todos los ciclos de las
+     * componentes dadas: en cada componente se quita la víctima que indica la
+     * política y se vuelve a analizar solo lo que queda de esa componente.
+     */
+    public synchronized List<String> chooseVictims(List<List<String>> components) {
+        List<String> victims = new ArrayList<>();
+        Deque<List<String>> pending = new ArrayDeque<>(components);
+        int[] vertices = new int[0];
+        while (!pending.isEmpty()) {
+            List<String> component = pending.poll();
+            String victim = chooseVictim(component);
+            victims.add(victim);
+            
+            // Subgrafo de la componente sin la víctima
+            if (vertices.length < component.size()) {
+                vertices = new int[component.size()];
+            }
+            int size = 0;
+            for (String id : component) {
+                if (!id.equals(victim)) {
+                    vertices[size++] = graph.indexOf(id);
                 }
             }
+            for (int[] rest : sccFinder.cyclicComponents(graph, vertices, size)) {
+                pending.add(toTransactionIds(rest, rest.length));
+            }
         }
-        
-        recursionStack.put(transactionId, false);
-        return null;
+        return victims;
+    }
+    
+    private List<String> toTransactionIds(int[] vertices, int size) {
+        List<String> ids = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ids.add(graph.valueOf(vertices[i]));
+        }
+        return ids;
     }
     
-    public String getYoungestTransactionInCycle(List<String> cycle) {
+    /**
+     * Elige la víctima de un ciclo o componente según la política configurada.
+     * Los identificadores repetidos (el ciclo empieza y termina en el mismo)
+     * se consideran una sola vez.
+     */
+    public String chooseVictim(List<String> cycle) {
         if (cycle == null || cycle.isEmpty()) return null;
         
-        // Asumimos que las transacciones más nuevas tienen números más altos en su ID
-        return cycle.stream()
-            .max(Comparator.comparingInt(this::extractTransactionNumber))
-            .orElse(null);
+        List<Transaction> candidates = new ArrayList<>(cycle.size());
+        for (String id : new LinkedHashSet<>(cycle)) {
+            Transaction transaction = transactions.get(id);
+            if (transaction != null) {
+                candidates.add(transaction);
+            }
+        }
+        Transaction victim = victimSelector.selectVictim(candidates);
+        return victim != null ? victim.getId() : null;
+    }
+    
+    public void setVictimSelector(VictimSelector victimSelector) {
+        this.victimSelector = victimSelector;
     }
     
-    private int extractTransactionNumber(String transactionId) {
-        try {
-            return Integer.parseInt(transactionId.substring(1));
-        } catch (NumberFormatException e) {
-            return 0;
+    public VictimSelector getVictimSelector() { return victimSelector; }
+    
+    // Vista con Vertex/Edge para quien necesite recorrer un Graph
+    public synchronized Graph<String> getGraph() {
+        if (graphView == null || graphViewModCount != graph.getModCount()) {
+            graphView = graph.asVertexGraph();
+            graphViewModCount = graph.getModCount();
         }
+        return graphView;
     }
     
+    /**
+     * Aumenta con cada vértice o arista agregado o quitado; si no cambió
+     * desde la última lectura, tampoco cambió lo que se dibuja.
+     */
+    public long getModCount() { return modCount; }
+    
     // Getters para la GUI
-    public Graph<String> getGraph() { return graph; }
+    public IntGraph<String> getIntGraph() { return graph; }
+    // Sin el monitor: un lector frecuente no frena a quien cambia el grafo
+    public int getVertexCount() { return vertexCount; }
+    public int getEdgeCount() { return edgeCount; }
     public Map<String, Transaction> getTransactions() { return transactions; }
     public Map<String, Record> getRecords() { return records; }
-    public Map<String, Vertex<String>> getVertexMap() { return vertexMap; }
-}
\ No newline at end of file
+}
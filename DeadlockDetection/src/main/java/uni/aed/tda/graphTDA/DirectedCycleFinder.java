@@ -0,0 +1,97 @@
+package uni.aed.tda.graphTDA;
+
+/*
+ * Busqueda de ciclos en un grafo dirigido con DFS iterativo.
+ * Recorre un IntGraph, donde los vertices ya se identifican con un numero
+ * denso 0..idBound()-1 y los vecinos se leen de arreglos de int.
+ * La pila es explicita, asi que no hay limite de profundidad, y el estado
+ * (color, padre, cursor) vive en arreglos primitivos que se reutilizan.
+ */
+public class DirectedCycleFinder {
+    private static final byte WHITE=0; //no visitado
+    private static final byte GRAY=1;  //en la pila de recursion
+    private static final byte BLACK=2; //terminado
+
+    private byte[] color=new byte[0];
+    private int[] parent=new int[0];
+    private int[] cursor=new int[0];//siguiente arista a explorar de cada vertice
+    private int[] stack=new int[0];
+
+    public boolean hasCycle(IntGraph<?> graph){
+        return search(graph)>=0;
+    }
+
+    /*retorna el ciclo como secuencia de vertices inicio..inicio,
+    en el mismo orden que la version recursiva, o null si no hay ciclo
+    */
+    public int[] findCycle(IntGraph<?> graph){
+        int start=search(graph);
+        if(start<0)
+            return null;
+        //contar los vertices del ciclo siguiendo los padres
+        int length=1;
+        int current=parent[start];
+        while(current>=0 && current!=start){
+            length++;
+            current=parent[current];
+        }
+        int[] cycle=new int[length+1];
+        //se llena de atras hacia adelante para no tener que invertir
+        cycle[0]=start;
+        cycle[length]=start;
+        current=parent[start];
+        for(int i=length-1;i>0;i--){
+            cycle[i]=current;
+            current=parent[current];
+        }
+        return cycle;
+    }
+
+    //retorna el vertice donde se cierra el primer ciclo encontrado o -1
+    private int search(IntGraph<?> graph){
+        int n=graph.idBound();
+        ensureCapacity(n);
+        for(int v=0;v<n;v++){
+            color[v]=WHITE;
+            parent[v]=-1;
+        }
+        for(int root=0;root<n;root++){
+            if(color[root]!=WHITE || !graph.containsVertex(root))
+                continue;
+            int top=0;
+            stack[top++]=root;
+            color[root]=GRAY;
+            cursor[root]=0;
+            while(top>0){
+                int v=stack[top-1];
+                if(cursor[v]<graph.outDegree(v)){
+                    int w=graph.neighbor(v,cursor[v]++);
+                    if(color[w]==WHITE){
+                        parent[w]=v;
+                        color[w]=GRAY;
+                        cursor[w]=0;
+                        stack[top++]=w;
+                    }else if(color[w]==GRAY){
+                        parent[w]=v;
+                        return w;
+                    }
+                }else{
+                    //todas las aristas de v exploradas: sale de la pila
+                    color[v]=BLACK;
+                    top--;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void ensureCapacity(int n){
+        if(color.length>=n)
+            return;
+        int capacity=Math.max(n,color.length*2);
+        color=new byte[capacity];
+        parent=new int[capacity];
+        cursor=new int[capacity];
+        stack=new int[capacity];
+    }
+}
@@ -0,0 +1,255 @@
+package uni.aed.tda.graphTDA;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Grafo dirigido compacto: cada vertice se identifica con un entero denso
+ * (los identificadores de vertices eliminados se reutilizan) y sus aristas
+ * salientes y entrantes se guardan en arreglos de int que crecen segun se
+ * necesite. Gracias a las entrantes, eliminar un vertice solo cuesta su grado.
+ * Frente a Graph evita un objeto Edge por arista y la busqueda de vecinos
+ * por valor; asVertexGraph() ofrece una vista con Vertex/Edge para quien
+ * necesite recorrerlo como un Graph.
+ */
+public class IntGraph<T extends Comparable<T>> {
+    private static final int[] EMPTY=new int[0];
+
+    private Object[] values=new Object[16];  //valor de cada vertice (null = libre)
+    private int[][] out=new int[16][];       //aristas salientes de cada vertice
+    private int[] outSize=new int[16];       //cantidad de aristas salientes
+    private int[][] in=new int[16][];        //aristas entrantes de cada vertice
+    private int[] inSize=new int[16];        //cantidad de aristas entrantes
+    private Map<T,Integer> index=new HashMap<>();//valor -> identificador
+    private int[] freeIds=new int[16];       //identificadores libres para reutilizar
+    private int freeCount=0;
+    private int idBound=0;                   //mayor identificador usado + 1
+    private int edgeCount=0;
+    private int modCount=0;                  //cambia con cada modificacion estructural
+
+    //agrega el vertice si no existe y retorna su identificador
+    public int addVertex(T value){
+        Integer existing=index.get(value);
+        if(existing!=null)
+            return existing;
+        int id;
+        if(freeCount>0)
+            id=freeIds[--freeCount];
+        else{
+            id=idBound++;
+            if(id==values.length)
+                grow(id+1);
+        }
+        values[id]=value;
+        out[id]=EMPTY;
+        outSize[id]=0;
+        in[id]=EMPTY;
+        inSize[id]=0;
+        index.put(value,id);
+        modCount++;
+        return id;
+    }
+
+    public boolean removeVertex(int v){
+        if(!containsVertex(v))
+            return false;
+        //aristas que salen de v: se quitan de la lista de entrada del destino
+        for(int i=0;i<outSize[v];i++){
+            int w=out[v][i];
+            if(w!=v)
+                inSize[w]=removeFrom(in[w],inSize[w],v);
+        }
+        //aristas que llegan a v: se quitan de la lista de salida del origen
+        for(int i=0;i<inSize[v];i++){
+            int u=in[v][i];
+            if(u!=v){
+                outSize[u]=removeFrom(out[u],outSize[u],v);
+                edgeCount--;
+            }
+        }
+        edgeCount-=outSize[v];
+        index.remove(valueOf(v));
+        values[v]=null;
+        out[v]=EMPTY;
+        outSize[v]=0;
+        in[v]=EMPTY;
+        inSize[v]=0;
+        if(freeCount==freeIds.length)
+            freeIds=Arrays.copyOf(freeIds,freeCount*2);
+        freeIds[freeCount++]=v;
+        modCount++;
+        return true;
+    }
+
+    //retorna false si la arista ya existia
+    public boolean addEdge(int from,int to){
+        if(!containsVertex(from) || !containsVertex(to))
+            throw new IllegalArgumentException("Vertices no existen: "+from+"->"+to);
+        if(hasEdge(from,to))
+            return false;
+        int[] edges=out[from];
+        if(outSize[from]==edges.length)
+            edges=out[from]=Arrays.copyOf(edges,Math.max(4,edges.length*2));
+        edges[outSize[from]++]=to;
+        int[] incoming=in[to];
+        if(inSize[to]==incoming.length)
+            incoming=in[to]=Arrays.copyOf(incoming,Math.max(4,incoming.length*2));
+        incoming[inSize[to]++]=from;
+        edgeCount++;
+        modCount++;
+        return true;
+    }
+
+    public boolean removeEdge(int from,int to){
+        if(!containsVertex(from) || !containsVertex(to))
+            return false;
+        int size=outSize[from];
+        outSize[from]=removeFrom(out[from],size,to);
+        if(outSize[from]==size)
+            return false;
+        inSize[to]=removeFrom(in[to],inSize[to],from);
+        edgeCount--;
+        modCount++;
+        return true;
+    }
+
+    /*quita la primera aparicion de value en edges[0..size-1] y retorna el
+    nuevo tamaño; se desplaza el resto para conservar el orden de insercion
+    */
+    private static int removeFrom(int[] edges,int size,int value){
+        for(int i=0;i<size;i++){
+            if(edges[i]==value){
+                System.arraycopy(edges,i+1,edges,i,size-i-1);
+                return size-1;
+            }
+        }
+        return size;
+    }
+
+    public boolean hasEdge(int from,int to){
+        int[] edges=out[from];
+        for(int i=0;i<outSize[from];i++){
+            if(edges[i]==to)
+                return true;
+        }
+        return false;
+    }
+
+    public boolean containsVertex(int v){
+        return v>=0 && v<idBound && values[v]!=null;
+    }
+
+    //retorna el identificador del valor o -1 si no existe
+    public int indexOf(T value){
+        Integer id=index.get(value);
+        return id==null ? -1 : id;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T valueOf(int v){
+        return (T)values[v];
+    }
+
+    public int outDegree(int v){
+        return outSize[v];
+    }
+
+    //i-esimo vecino saliente de v, 0 <= i < outDegree(v)
+    public int neighbor(int v,int i){
+        return out[v][i];
+    }
+
+    public int inDegree(int v){
+        return inSize[v];
+    }
+
+    //i-esimo vecino entrante de v, 0 <= i < inDegree(v)
+    public int predecessor(int v,int i){
+        return in[v][i];
+    }
+
+    //los identificadores validos estan en [0, idBound())
+    public int idBound(){
+        return idBound;
+    }
+
+    public int vertexCount(){
+        return index.size();
+    }
+
+    public int edgeCount(){
+        return edgeCount;
+    }
+
+    public int getModCount(){
+        return modCount;
+    }
+
+    public void clear(){
+        Arrays.fill(values,0,idBound,null);
+        Arrays.fill(out,0,idBound,null);
+        Arrays.fill(outSize,0,idBound,0);
+        Arrays.fill(in,0,idBound,null);
+        Arrays.fill(inSize,0,idBound,0);
+        index.clear();
+        freeCount=0;
+        idBound=0;
+        edgeCount=0;
+        modCount++;
+    }
+
+    //vista como Graph con Vertex y Edge, en orden de identificador
+    public Graph<T> asVertexGraph(){
+        List<Vertex<T>> vertices=new ArrayList<>(vertexCount());
+        Vertex<T>[] byId=newVertexArray(idBound);
+        for(int v=0;v<idBound;v++){
+            if(values[v]!=null){
+                byId[v]=new Vertex<T>(valueOf(v));
+                vertices.add(byId[v]);
+            }
+        }
+        List<Edge<T>> edges=new ArrayList<>(edgeCount);
+        for(int v=0;v<idBound;v++){
+            for(int i=0;i<outSize[v];i++){
+                Edge<T> e=new Edge<T>(1,byId[v],byId[out[v][i]]);
+                byId[v].addEdge(e);
+                edges.add(e);
+            }
+        }
+        Graph<T> graph=new Graph<T>(Graph.TYPE.DIRECTED);
+        graph.getAllVertices().addAll(vertices);
+        graph.getAllEdges().addAll(edges);
+        return graph;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Vertex<T>[] newVertexArray(int size){
+        return (Vertex<T>[])new Vertex<?>[size];
+    }
+
+    private void grow(int minCapacity){
+        int capacity=Math.max(minCapacity,values.length*2);
+        values=Arrays.copyOf(values,capacity);
+        out=Arrays.copyOf(out,capacity);
+        outSize=Arrays.copyOf(outSize,capacity);
+        in=Arrays.copyOf(in,capacity);
+        inSize=Arrays.copyOf(inSize,capacity);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder=new StringBuilder();
+        for(int v=0;v<idBound;v++){
+            if(values[v]==null)
+                continue;
+            builder.append(values[v]).append(" ->");
+            for(int i=0;i<outSize[v];i++)
+                builder.append(" ").append(values[out[v][i]]);
+            builder.append("\n");
+        }
+        return builder.toString();
+    }
+}
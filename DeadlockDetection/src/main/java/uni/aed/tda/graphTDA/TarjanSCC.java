@@ -0,0 +1,112 @@
+package uni.aed.tda.graphTDA;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Componentes fuertemente conexas de un IntGraph con el algoritmo de Tarjan,
+ * en una sola pasada lineal y sin recursion (pila de llamadas explicita).
+ * Solo se retornan las componentes que contienen un ciclo: las de dos o mas
+ * vertices y las de un vertice con arista hacia si mismo.
+ * Se puede restringir la busqueda a un subconjunto de vertices, lo que
+ * permite volver a analizar una componente despues de quitarle vertices.
+ */
+public class TarjanSCC {
+    private int[] index=new int[0];   //orden de descubrimiento (-1 = no visitado)
+    private int[] low=new int[0];     //menor indice alcanzable
+    private int[] cursor=new int[0];  //siguiente arista a explorar
+    private int[] member=new int[0];  //marca de pertenencia al subconjunto
+    private boolean[] onStack=new boolean[0];
+    private int[] sccStack=new int[0];
+    private int[] callStack=new int[0];
+    private int epoch=0;
+
+    //componentes con ciclo de todo el grafo
+    public List<int[]> cyclicComponents(IntGraph<?> graph){
+        int n=graph.idBound();
+        ensureCapacity(n);
+        int count=0;
+        int[] vertices=new int[graph.vertexCount()];
+        for(int v=0;v<n;v++){
+            if(graph.containsVertex(v))
+                vertices[count++]=v;
+        }
+        return cyclicComponents(graph,vertices,count);
+    }
+
+    //componentes con ciclo del subgrafo inducido por vertices[0..size-1]
+    public List<int[]> cyclicComponents(IntGraph<?> graph,int[] vertices,int size){
+        ensureCapacity(graph.idBound());
+        int mark=++epoch;
+        for(int i=0;i<size;i++){
+            int v=vertices[i];
+            member[v]=mark;
+            index[v]=-1;
+            onStack[v]=false;
+        }
+        List<int[]> components=new ArrayList<>();
+        int counter=0;
+        int sccTop=0;
+        for(int i=0;i<size;i++){
+            int root=vertices[i];
+            if(index[root]>=0)
+                continue;
+            int callTop=0;
+            index[root]=low[root]=counter++;
+            cursor[root]=0;
+            sccStack[sccTop++]=root;
+            onStack[root]=true;
+            callStack[callTop++]=root;
+            while(callTop>0){
+                int v=callStack[callTop-1];
+                if(cursor[v]<graph.outDegree(v)){
+                    int w=graph.neighbor(v,cursor[v]++);
+                    if(member[w]!=mark)
+                        continue;//fuera del subconjunto
+                    if(index[w]<0){
+                        index[w]=low[w]=counter++;
+                        cursor[w]=0;
+                        sccStack[sccTop++]=w;
+                        onStack[w]=true;
+                        callStack[callTop++]=w;
+                    }else if(onStack[w]){
+                        low[v]=Math.min(low[v],index[w]);
+                    }
+                    continue;
+                }
+                //v terminado: si es raiz se extrae su componente
+                if(low[v]==index[v]){
+                    int start=sccTop;
+                    do{
+                        start--;
+                        onStack[sccStack[start]]=false;
+                    }while(sccStack[start]!=v);
+                    int componentSize=sccTop-start;
+                    if(componentSize>1 || graph.hasEdge(v,v))
+                        components.add(Arrays.copyOfRange(sccStack,start,sccTop));
+                    sccTop=start;
+                }
+                callTop--;
+                if(callTop>0){
+                    int parent=callStack[callTop-1];
+                    low[parent]=Math.min(low[parent],low[v]);
+                }
+            }
+        }
+        return components;
+    }
+
+    private void ensureCapacity(int n){
+        if(index.length>=n)
+            return;
+        int capacity=Math.max(n,index.length*2);
+        index=new int[capacity];
+        low=new int[capacity];
+        cursor=new int[capacity];
+        member=Arrays.copyOf(member,capacity);
+        onStack=new boolean[capacity];
+        sccStack=new int[capacity];
+        callStack=new int[capacity];
+    }
+}
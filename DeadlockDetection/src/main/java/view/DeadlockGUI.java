@@ -183,7 +183,8 @@ public class DeadlockGUI extends JFrame {
     }
     
     private void updateDisplay() {
-        // Actualizar grafo
+        // Actualizar grafo: solo se suscribe la primera vez, después los
+        // cambios llegan como eventos y el panel se repinta por su cuenta
         graphPanel.setWaitForGraph(controller.getGraph());
         
         // Actualizar log
@@ -0,0 +1,396 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package view;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+
+/**
+ * Layout por fuerzas (Fruchterman-Reingold) que corre fuera del hilo de
+ * Swing. La repulsión solo se calcula entre vértices de celdas vecinas de
+ * una grilla, así cada iteración es O(V + E), y las fuerzas de cada vértice
+ * se reparten entre los hilos del ForkJoinPool.
+ *
+ * Recuerda la posición de cada transacción: al volver a pedir un layout los
+ * vértices que ya estaban se mueven poco y los nuevos aparecen junto a sus
+ * vecinos, o en el borde si no tienen ninguno, para que el dibujo no salte
+ * entre pasos. Si llegan varios pedidos seguidos solo se calcula el último,
+ * y un resultado pedido antes de reset() ya no se entrega.
+ *
+ * @author calbe
+ */
+public class ForceLayout {
+    /** Posiciones calculadas, en el mismo orden que los ids del pedido. */
+    public static final class Result {
+        private final String[] ids;
+        private final double[] x;
+        private final double[] y;
+        
+        private Result(String[] ids, double[] x, double[] y) {
+            this.ids = ids;
+            this.x = x;
+            this.y = y;
+        }
+        
+        public int size() { return ids.length; }
+        public String getId(int i) { return ids[i]; }
+        public double getX(int i) { return x[i]; }
+        public double getY(int i) { return y[i]; }
+    }
+    
+    /** Vértices y aristas (índices en ids) tal como estaban al pedir el layout. */
+    private static final class Request {
+        final String[] ids;
+        final int[] edgeFrom;
+        final int[] edgeTo;
+        // Valor de generation al pedirlo
+        final long generation;
+        
+        Request(String[] ids, int[] edgeFrom, int[] edgeTo, long generation) {
+            this.ids = ids;
+            this.edgeFrom = edgeFrom;
+            this.edgeTo = edgeTo;
+            this.generation = generation;
+        }
+    }
+    
+    // Largo ideal de una arista; la repulsión se corta al doble
+    private static final double IDEAL_LENGTH = 90;
+    private static final double CUTOFF = 2 * IDEAL_LENGTH;
+    private static final int FULL_ITERATIONS = 150;
+    private static final int INCREMENTAL_ITERATIONS = 40;
+    // Los vértices que ya tenían posición se mueven a esta fracción de la temperatura
+    private static final double SETTLED_MOBILITY = 0.05;
+    // Atracción débil hacia el centro para que las componentes sueltas no se alejen
+    private static final double GRAVITY = 0.02;
+    private static final double COOLING = 0.95;
+    private static final double GOLDEN_ANGLE = Math.PI * (3 - Math.sqrt(5));
+    // Por debajo de esta cantidad de vértices no vale la pena repartir el trabajo
+    private static final int PARALLEL_THRESHOLD = 512;
+    
+    private final Consumer<Result> onLayout;
+    private final ExecutorService executor;
+    private final ForkJoinPool pool;
+    private final AtomicReference<Request> pending;
+    // Sube con cada reset(); los resultados de una generación anterior se descartan
+    private final AtomicLong generation;
+    // Su monitor protege también el estado de la iteración en curso
+    private final Map<String, double[]> positions;
+    
+    // Estado de la iteración en curso, compartido con las tareas del pool
+    private int n;
+    private double[] x, y, dispX, dispY;
+    private int[] adjStart, adjacency;
+    private double centerX, centerY;
+    private int gridCols, gridRows;
+    private double gridMinX, gridMinY, cellSize;
+    private int[] cellStart, cellItems;
+    
+    /**
+     * @param onLayout recibe cada resultado en el hilo de Swing
+     */
+    public ForceLayout(Consumer<Result> onLayout) {
+        this.onLayout = onLayout;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "graph-layout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pool = ForkJoinPool.commonPool();
+        this.pending = new AtomicReference<>();
+        this.generation = new AtomicLong();
+        this.positions = new HashMap<>();
+    }
+    
+    /**
+     * Pide un layout de los vértices ids con las aristas edgeFrom[i] -> edgeTo[i]
+     * (índices en ids). Retorna enseguida; el resultado llega por onLayout.
+     */
+    public void request(String[] ids, int[] edgeFrom, int[] edgeTo) {
+        pending.set(new Request(ids, edgeFrom, edgeTo, generation.get()));
+        executor.execute(this::runPending);
+    }
+    
+    // Cada pedido encola una ejecución; las que llegan tarde encuentran null y no hacen nada
+    private void runPending() {
+        Request request = pending.getAndSet(null);
+        if (request == null) {
+            return;
+        }
+        Result result;
+        synchronized (positions) {
+            result = compute(request);
+        }
+        // Se compara en el hilo de Swing, que es desde donde se llama a reset()
+        SwingUtilities.invokeLater(() -> {
+            if (request.generation == generation.get()) {
+                onLayout.accept(result);
+            }
+        });
+    }
+    
+    /** Calcula el layout en el hilo que llama; público para usarlo sin interfaz. */
+    public Result compute(String[] ids, int[] edgeFrom, int[] edgeTo) {
+        synchronized (positions) {
+            return compute(new Request(ids, edgeFrom, edgeTo, generation.get()));
+        }
+    }
+    
+    private Result compute(Request request) {
+        n = request.ids.length;
+        x = new double[n];
+        y = new double[n];
+        dispX = new double[n];
+        dispY = new double[n];
+        double[] mobility = new double[n];
+        buildAdjacency(request);
+        
+        // Los que ya tenían posición la conservan
+        boolean[] placed = new boolean[n];
+        int settled = 0;
+        double sumX = 0, sumY = 0;
+        for (int i = 0; i < n; i++) {
+            double[] p = positions.get(request.ids[i]);
+            if (p != null) {
+                x[i] = p[0];
+                y[i] = p[1];
+                placed[i] = true;
+                mobility[i] = SETTLED_MOBILITY;
+                settled++;
+                sumX += p[0];
+                sumY += p[1];
+            }
+        }
+        double originX = settled > 0 ? sumX / settled : 0;
+        double originY = settled > 0 ? sumY / settled : 0;
+        
+        // Los nuevos van junto a sus vecinos ya ubicados, o sobre una espiral alrededor
+        int spiral = settled;
+        for (int i = 0; i < n; i++) {
+            if (placed[i]) continue;
+            double nx = 0, ny = 0;
+            int known = 0;
+            for (int k = adjStart[i]; k < adjStart[i + 1]; k++) {
+                int u = adjacency[k];
+                if (placed[u]) {
+                    nx += x[u];
+                    ny += y[u];
+                    known++;
+                }
+            }
+            // Desplazamiento fijo por id: el mismo grafo da siempre el mismo dibujo
+            double angle = (request.ids[i].hashCode() & 0xffff) * (2 * Math.PI / 0x10000);
+            if (known > 0) {
+                x[i] = nx / known + 0.5 * IDEAL_LENGTH * Math.cos(angle);
+                y[i] = ny / known + 0.5 * IDEAL_LENGTH * Math.sin(angle);
+            } else {
+                double radius = IDEAL_LENGTH * Math.sqrt(spiral + 1);
+                x[i] = originX + radius * Math.cos(spiral * GOLDEN_ANGLE);
+                y[i] = originY + radius * Math.sin(spiral * GOLDEN_ANGLE);
+                spiral++;
+            }
+            placed[i] = true;
+            mobility[i] = 1;
+        }
+        
+        // Desde cero se enfría más lento; si solo hubo cambios, unas pocas iteraciones
+        int iterations = settled == 0 ? FULL_ITERATIONS : INCREMENTAL_ITERATIONS;
+        double temperature = settled == 0 ? IDEAL_LENGTH * Math.max(1, Math.sqrt(n) / 4) : IDEAL_LENGTH;
+        for (int it = 0; it < iterations && n > 1; it++) {
+            step(temperature, mobility);
+            temperature *= COOLING;
+        }
+        
+        positions.clear();
+        for (int i = 0; i < n; i++) {
+            positions.put(request.ids[i], new double[] {x[i], y[i]});
+        }
+        return new Result(request.ids, x, y);
+    }
+    
+    // Lista de vecinos sin dirección en formato CSR: las fuerzas de un vértice
+    // solo escriben sobre él mismo y se pueden calcular en paralelo
+    private void buildAdjacency(Request request) {
+        adjStart = new int[n + 1];
+        int edges = request.edgeFrom.length;
+        for (int e = 0; e < edges; e++) {
+            adjStart[request.edgeFrom[e] + 1]++;
+            adjStart[request.edgeTo[e] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            adjStart[i + 1] += adjStart[i];
+        }
+        adjacency = new int[2 * edges];
+        int[] next = Arrays.copyOf(adjStart, n);
+        for (int e = 0; e < edges; e++) {
+            adjacency[next[request.edgeFrom[e]]++] = request.edgeTo[e];
+            adjacency[next[request.edgeTo[e]]++] = request.edgeFrom[e];
+        }
+    }
+    
+    private void step(double temperature, double[] mobility) {
+        buildGrid();
+        if (n < PARALLEL_THRESHOLD) {
+            computeForces(0, n);
+        } else {
+            pool.invoke(new ForceTask(0, n));
+        }
+        
+        // Cada vértice avanza a lo sumo la temperatura (por su movilidad)
+        for (int v = 0; v < n; v++) {
+            double length = Math.sqrt(dispX[v] * dispX[v] + dispY[v] * dispY[v]);
+            if (length > 0) {
+                double limit = Math.min(length, temperature * mobility[v]);
+                x[v] += dispX[v] / length * limit;
+                y[v] += dispY[v] / length * limit;
+            }
+        }
+    }
+    
+    // Reparte los vértices en celdas del tamaño del corte; si el área es muy
+    // grande las celdas crecen para que no haya más de unas 4 por vértice
+    private void buildGrid() {
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        double sumX = 0, sumY = 0;
+        for (int v = 0; v < n; v++) {
+            minX = Math.min(minX, x[v]);
+            minY = Math.min(minY, y[v]);
+            maxX = Math.max(maxX, x[v]);
+            maxY = Math.max(maxY, y[v]);
+            sumX += x[v];
+            sumY += y[v];
+        }
+        centerX = sumX / n;
+        centerY = sumY / n;
+        double width = maxX - minX + 1;
+        double height = maxY - minY + 1;
+        cellSize = Math.max(CUTOFF, Math.sqrt(width * height / (4.0 * n)));
+        gridMinX = minX;
+        gridMinY = minY;
+        gridCols = (int) (width / cellSize) + 1;
+        gridRows = (int) (height / cellSize) + 1;
+        
+        int cells = gridCols * gridRows;
+        if (cellStart == null || cellStart.length < cells + 1) {
+            cellStart = new int[cells + 1];
+        } else {
+            Arrays.fill(cellStart, 0, cells + 1, 0);
+        }
+        if (cellItems == null || cellItems.length < n) {
+            cellItems = new int[n];
+        }
+        int[] cellOf = new int[n];
+        for (int v = 0; v < n; v++) {
+            cellOf[v] = cellOf(x[v], y[v]);
+            cellStart[cellOf[v] + 1]++;
+        }
+        for (int c = 0; c < cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] next = Arrays.copyOf(cellStart, cells);
+        for (int v = 0; v < n; v++) {
+            cellItems[next[cellOf[v]]++] = v;
+        }
+    }
+    
+    private int cellOf(double px, double py) {
+        int c = Math.min(gridCols - 1, (int) ((px - gridMinX) / cellSize));
+        int r = Math.min(gridRows - 1, (int) ((py - gridMinY) / cellSize));
+        return r * gridCols + c;
+    }
+    
+    private void computeForces(int from, int to) {
+        double k2 = IDEAL_LENGTH * IDEAL_LENGTH;
+        double cutoff2 = CUTOFF * CUTOFF;
+        for (int v = from; v < to; v++) {
+            double fx = 0, fy = 0;
+            
+            // Repulsión k²/d con los vértices de las 9 celdas alrededor
+            int cell = cellOf(x[v], y[v]);
+            int c0 = cell % gridCols, r0 = cell / gridCols;
+            for (int r = Math.max(0, r0 - 1); r <= Math.min(gridRows - 1, r0 + 1); r++) {
+                for (int c = Math.max(0, c0 - 1); c <= Math.min(gridCols - 1, c0 + 1); c++) {
+                    int neighbor = r * gridCols + c;
+                    for (int k = cellStart[neighbor]; k < cellStart[neighbor + 1]; k++) {
+                        int u = cellItems[k];
+                        if (u == v) continue;
+                        double dx = x[v] - x[u];
+                        double dy = y[v] - y[u];
+                        double d2 = dx * dx + dy * dy;
+                        if (d2 >= cutoff2) continue;
+                        if (d2 < 1e-4) {
+                            // Encimados: se separan en una dirección fija según el par
+                            dx = v < u ? 0.01 : -0.01;
+                            d2 = 1e-4;
+                        }
+                        fx += dx * k2 / d2;
+                        fy += dy * k2 / d2;
+                    }
+                }
+            }
+            
+            // Atracción d²/k hacia cada vecino
+            for (int k = adjStart[v]; k < adjStart[v + 1]; k++) {
+                int u = adjacency[k];
+                double dx = x[v] - x[u];
+                double dy = y[v] - y[u];
+                double d = Math.sqrt(dx * dx + dy * dy);
+                fx -= dx * d / IDEAL_LENGTH;
+                fy -= dy * d / IDEAL_LENGTH;
+            }
+            
+            fx -= GRAVITY * (x[v] - centerX);
+            fy -= GRAVITY * (y[v] - centerY);
+            dispX[v] = fx;
+            dispY[v] = fy;
+        }
+    }
+    
+    /** Divide el rango de vértices hasta PARALLEL_THRESHOLD y calcula cada parte. */
+    private final class ForceTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int from;
+        private final int to;
+        
+        ForceTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                computeForces(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ForceTask(from, middle), new ForceTask(middle, to));
+        }
+    }
+    
+    /**
+     * Olvida las posiciones guardadas: el próximo layout empieza desde cero y
+     * los pedidos anteriores que sigan en curso no llegan a onLayout.
+     */
+    public void reset() {
+        generation.incrementAndGet();
+        pending.set(null);
+        executor.execute(() -> {
+            synchronized (positions) {
+                positions.clear();
+            }
+        });
+    }
+}
@@ -4,73 +4,457 @@
  */
 package view;
 
+import model.GraphListener;
 import model.WaitForGraph;
-import uni.aed.tda.graphTDA.Graph;
-import uni.aed.tda.graphTDA.Vertex;
-import uni.aed.tda.graphTDA.Edge;
+import uni.aed.tda.graphTDA.IntGraph;
 import javax.swing.*;
 import java.awt.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
+ * Dibuja una copia del grafo de espera que se mantiene con los cambios que
+ * avisa el WaitForGraph: el layout solo se vuelve a pedir cuando entra o
+ * sale un vértice, y los cambios de locks no provocan trabajo. El layout
+ * (ForceLayout) corre en otro hilo y conserva las posiciones de los
+ * vértices que ya estaban.
+ *
+ * La geometría (posiciones, segmentos y puntas de flecha) se calcula al
+ * cambiar el grafo y queda en arreglos con un índice de grilla; al pintar
+ * solo se recorre lo que cae dentro del área a repintar, así con miles de
+ * transacciones el costo depende de lo visible.
  *
  * @author calbe
  */
 public class GraphPanel extends JPanel {
-    private WaitForGraph waitForGraph;
-    private Map<String, Point> vertexPositions;
+    private static final long serialVersionUID = 1L;
+    private static final int VERTEX_RADIUS = 20;
+    private static final int ARROW_SIZE = 10;
+    private static final double ARROW_ANGLE = Math.PI / 6;
+    // Borde alrededor del dibujo
+    private static final int MARGIN = 2 * VERTEX_RADIUS;
+    private static final int CELL_SIZE = 128;
+    private static final Dimension MIN_SIZE = new Dimension(600, 400);
+    
+    private static final Font LABEL_FONT = new Font("Arial", Font.BOLD, 14);
+    private static final Font MESSAGE_FONT = new Font("Arial", Font.BOLD, 16);
+    private static final Font WARNING_FONT = new Font("Arial", Font.BOLD, 18);
+    private static final BasicStroke STROKE = new BasicStroke(2);
+    
+    // Nada del estado se serializa: es una copia del grafo en vivo
+    private transient WaitForGraph waitForGraph;
+    private transient Map<String, Point> vertexPositions;
+    // Copia de lo que se dibuja, en orden de llegada de los vértices
+    private final transient Map<String, Set<String>> outgoing;
+    private final transient Map<String, Set<String>> incoming;
+    private transient boolean deadlocked;
+    private transient GraphChanges changes;
+    private final transient ForceLayout layout;
+    // Último layout recibido y dónde está cada transacción dentro de él
+    private transient ForceLayout.Result layoutResult;
+    private final transient Map<String, Integer> layoutSlots;
+    
+    // Geometría ya calculada; se rehace solo cuando cambia el grafo o el tamaño
+    private transient String[] vertexIds;
+    private transient int[] vertexX;
+    private transient int[] vertexY;
+    private transient int vertexCount;
+    private transient SpatialGrid vertexGrid;
+    // Segmento de cada arista (de borde a borde de los círculos) y su punta
+    private transient int[] edgeX1, edgeY1, edgeX2, edgeY2;
+    private transient int[] arrowX1, arrowY1, arrowX2, arrowY2;
+    private transient int edgeCount;
+    private transient SpatialGrid edgeGrid;
+    private final transient int[] arrowXs;
+    private final transient int[] arrowYs;
+    
+    // CHECKED no cambia el dibujo, solo trae si hay deadlock
+    private enum ChangeType { VERTEX_ADDED, VERTEX_REMOVED, EDGE_ADDED, EDGE_REMOVED, CLEARED, CHECKED }
+    
+    private static final class Change {
+        final ChangeType type;
+        final String from;
+        final String to;
+        // Si el grafo tenía un ciclo justo después de este cambio
+        final boolean deadlocked;
+        
+        Change(ChangeType type, String from, String to, boolean deadlocked) {
+            this.type = type;
+            this.from = from;
+            this.to = to;
+            this.deadlocked = deadlocked;
+        }
+    }
+    
+    /**
+     * Encola los cambios del grafo y los aplica después en el hilo de Swing.
+     * Los avisos llegan con el monitor del grafo tomado, así que ahí mismo se
+     * pregunta si hay deadlock y la respuesta viaja con el cambio: el hilo de
+     * Swing nunca espera por el monitor del grafo.
+     */
+    private final class GraphChanges implements GraphListener {
+        private final WaitForGraph graph;
+        private final Queue<Change> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+        
+        GraphChanges(WaitForGraph graph) {
+            this.graph = graph;
+        }
+        
+        private void enqueue(ChangeType type, String from, String to) {
+            enqueue(type, from, to, graph.isDeadlocked());
+        }
+        
+        private void enqueue(ChangeType type, String from, String to, boolean deadlocked) {
+            pending.add(new Change(type, from, to, deadlocked));
+            if (scheduled.compareAndSet(false, true)) {
+                SwingUtilities.invokeLater(() -> applyChanges(this));
+            }
+        }
+        
+        // Estado inicial, fuera del hilo de Swing; bajo el monitor para que
+        // quede en orden con los avisos
+        private void check() {
+            synchronized (graph) {
+                enqueue(ChangeType.CHECKED, null, null);
+            }
+        }
+        
+        @Override
+        public void vertexAdded(String transactionId) { enqueue(ChangeType.VERTEX_ADDED, transactionId, null); }
+        @Override
+        public void vertexRemoved(String transactionId) { enqueue(ChangeType.VERTEX_REMOVED, transactionId, null); }
+        @Override
+        public void edgeAdded(String from, String to) { enqueue(ChangeType.EDGE_ADDED, from, to); }
+        @Override
+        public void edgeRemoved(String from, String to) { enqueue(ChangeType.EDGE_REMOVED, from, to); }
+        @Override
+        public void graphCleared() { enqueue(ChangeType.CLEARED, null, null, false); }
+    }
     
     public GraphPanel() {
         this.vertexPositions = new HashMap<>();
-        setPreferredSize(new Dimension(600, 400));
+        this.outgoing = new LinkedHashMap<>();
+        this.incoming = new HashMap<>();
+        this.deadlocked = false;
+        this.changes = null;
+        this.layout = new ForceLayout(this::layoutUpdated);
+        this.layoutResult = null;
+        this.layoutSlots = new HashMap<>();
+        this.vertexIds = new String[0];
+        this.vertexX = new int[0];
+        this.vertexY = new int[0];
+        this.vertexCount = 0;
+        this.edgeX1 = new int[0];
+        this.edgeY1 = new int[0];
+        this.edgeX2 = new int[0];
+        this.edgeY2 = new int[0];
+        this.arrowX1 = new int[0];
+        this.arrowY1 = new int[0];
+        this.arrowX2 = new int[0];
+        this.arrowY2 = new int[0];
+        this.edgeCount = 0;
+        this.arrowXs = new int[3];
+        this.arrowYs = new int[3];
+        setPreferredSize(MIN_SIZE);
         setBackground(Color.WHITE);
     }
     
+    /**
+     * Con el mismo grafo no hace nada: los cambios ya llegan como eventos.
+     * Con otro, toma una copia completa y se suscribe a sus cambios.
+     */
     public void setWaitForGraph(WaitForGraph waitForGraph) {
+        if (waitForGraph == this.waitForGraph) {
+            return;
+        }
+        detach();
         this.waitForGraph = waitForGraph;
-        calculateVertexPositions();
+        if (waitForGraph != null) {
+            changes = new GraphChanges(waitForGraph);
+            // Suscribirse y copiar bajo el mismo monitor: ningún cambio queda afuera ni se repite
+            synchronized (waitForGraph) {
+                waitForGraph.addGraphListener(changes);
+                IntGraph<String> graph = waitForGraph.getIntGraph();
+                for (int v = 0; v < graph.idBound(); v++) {
+                    if (graph.containsVertex(v)) {
+                        addVertex(graph.valueOf(v));
+                    }
+                }
+                for (int v = 0; v < graph.idBound(); v++) {
+                    if (!graph.containsVertex(v)) continue;
+                    for (int i = 0; i < graph.outDegree(v); i++) {
+                        addEdge(graph.valueOf(v), graph.valueOf(graph.neighbor(v, i)));
+                    }
+                }
+            }
+            ForkJoinPool.commonPool().execute(changes::check);
+        }
+        requestLayout();
         repaint();
     }
     
     // Método para limpiar completamente el panel
     public void clear() {
+        detach();
         this.waitForGraph = null;
-        this.vertexPositions.clear();
+        calculateGeometry();
         repaint();
     }
     
-    private void calculateVertexPositions() {
-        if (waitForGraph == null || waitForGraph.getVertexMap().isEmpty()) {
-            vertexPositions.clear(); // Asegurar que esté vacío
+    private void detach() {
+        if (waitForGraph != null && changes != null) {
+            waitForGraph.removeGraphListener(changes);
+        }
+        changes = null;
+        outgoing.clear();
+        incoming.clear();
+        deadlocked = false;
+        // Un grafo nuevo no hereda las posiciones del anterior, ni los layouts
+        // del anterior que todavía estén en curso
+        layout.reset();
+        layoutResult = null;
+        layoutSlots.clear();
+    }
+    
+    // Aplica de una vez todo lo acumulado desde el último repintado
+    private void applyChanges(GraphChanges source) {
+        source.scheduled.set(false);
+        if (source != changes) {
+            return;  // cambios de un grafo que ya no se muestra
+        }
+        boolean verticesChanged = false;
+        boolean edgesChanged = false;
+        boolean wasDeadlocked = deadlocked;
+        Change change;
+        while ((change = source.pending.poll()) != null) {
+            deadlocked = change.deadlocked;
+            switch (change.type) {
+                case VERTEX_ADDED: verticesChanged |= addVertex(change.from); break;
+                case VERTEX_REMOVED: verticesChanged |= removeVertex(change.from); break;
+                case EDGE_ADDED: edgesChanged |= addEdge(change.from, change.to); break;
+                case EDGE_REMOVED: edgesChanged |= removeEdge(change.from, change.to); break;
+                case CLEARED:
+                    verticesChanged |= !outgoing.isEmpty();
+                    outgoing.clear();
+                    incoming.clear();
+                    break;
+                case CHECKED:
+                    break;
+            }
+        }
+        if (!verticesChanged && !edgesChanged) {
+            if (deadlocked != wasDeadlocked) {
+                repaint();
+            }
             return;
         }
-        
+        if (verticesChanged) {
+            requestLayout();
+        } else {
+            calculateEdgeGeometry();
+        }
+        repaint();
+    }
+    
+    private boolean addVertex(String id) {
+        if (outgoing.containsKey(id)) {
+            return false;
+        }
+        outgoing.put(id, new LinkedHashSet<>());
+        incoming.put(id, new HashSet<>());
+        return true;
+    }
+    
+    // Junto con el vértice se van sus aristas, en ambos sentidos
+    private boolean removeVertex(String id) {
+        Set<String> out = outgoing.remove(id);
+        if (out == null) {
+            return false;
+        }
+        for (String to : out) {
+            incoming.get(to).remove(id);
+        }
+        for (String from : incoming.remove(id)) {
+            Set<String> fromOut = outgoing.get(from);
+            if (fromOut != null) {  // null si era un lazo sobre sí mismo
+                fromOut.remove(id);
+            }
+        }
+        return true;
+    }
+    
+    private boolean addEdge(String from, String to) {
+        Set<String> out = outgoing.get(from);
+        if (out == null || !incoming.containsKey(to) || !out.add(to)) {
+            return false;
+        }
+        incoming.get(to).add(from);
+        return true;
+    }
+    
+    private boolean removeEdge(String from, String to) {
+        Set<String> out = outgoing.get(from);
+        if (out == null || !out.remove(to)) {
+            return false;
+        }
+        incoming.get(to).remove(from);
+        return true;
+    }
+    
+    // Pide el layout de los vértices y aristas actuales; mientras llega, los
+    // vértices nuevos todavía no se dibujan y el resto queda donde estaba
+    private void requestLayout() {
+        String[] ids = outgoing.keySet().toArray(new String[0]);
+        Map<String, Integer> index = new HashMap<>();
+        int edges = 0;
+        for (int i = 0; i < ids.length; i++) {
+            index.put(ids[i], i);
+            edges += outgoing.get(ids[i]).size();
+        }
+        int[] edgeFrom = new int[edges];
+        int[] edgeTo = new int[edges];
+        int e = 0;
+        for (int i = 0; i < ids.length; i++) {
+            for (String to : outgoing.get(ids[i])) {
+                edgeFrom[e] = i;
+                edgeTo[e++] = index.get(to);
+            }
+        }
+        if (ids.length > 0) {
+            layout.request(ids, edgeFrom, edgeTo);
+        }
+        calculateGeometry();
+    }
+    
+    private void layoutUpdated(ForceLayout.Result result) {
+        layoutResult = result;
+        layoutSlots.clear();
+        for (int i = 0; i < result.size(); i++) {
+            layoutSlots.put(result.getId(i), i);
+        }
+        calculateGeometry();
+        repaint();
+    }
+    
+    // Lleva las posiciones del layout al panel: el dibujo queda a MARGIN del
+    // borde, centrado si sobra lugar, y el panel crece si no entra
+    private void calculateGeometry() {
         vertexPositions.clear();
-        int width = getWidth();
-        int height = getHeight();
-        
-        // Si no hay vértices, salir
-        if (waitForGraph.getVertexMap().isEmpty()) {
-            return;
+        vertexCount = 0;
+        int n = outgoing.size();
+        if (vertexIds.length < n) {
+            vertexIds = new String[n];
+            vertexX = new int[n];
+            vertexY = new int[n];
         }
         
-        java.util.List<String> transactionIds = new ArrayList<>(waitForGraph.getVertexMap().keySet());
-        int centerX = width / 2;
-        int centerY = height / 2;
-        int radius = Math.min(width, height) / 3;
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (String transactionId : outgoing.keySet()) {
+            Integer slot = layoutSlots.get(transactionId);
+            if (slot == null) continue;
+            minX = Math.min(minX, layoutResult.getX(slot));
+            minY = Math.min(minY, layoutResult.getY(slot));
+            maxX = Math.max(maxX, layoutResult.getX(slot));
+            maxY = Math.max(maxY, layoutResult.getY(slot));
+        }
         
-        // Asegurar un radio mínimo
-        radius = Math.max(radius, 100);
+        if (minX > maxX) {
+            updatePreferredSize(MIN_SIZE);
+        } else {
+            int border = MARGIN + VERTEX_RADIUS;
+            int drawingWidth = (int) Math.ceil(maxX - minX) + 2 * border;
+            int drawingHeight = (int) Math.ceil(maxY - minY) + 2 * border;
+            updatePreferredSize(new Dimension(Math.max(MIN_SIZE.width, drawingWidth),
+                                              Math.max(MIN_SIZE.height, drawingHeight)));
+            double offsetX = border - minX + Math.max(0, getWidth() - drawingWidth) / 2;
+            double offsetY = border - minY + Math.max(0, getHeight() - drawingHeight) / 2;
+            
+            for (String transactionId : outgoing.keySet()) {
+                Integer slot = layoutSlots.get(transactionId);
+                if (slot == null) continue;
+                int x = (int) Math.round(layoutResult.getX(slot) + offsetX);
+                int y = (int) Math.round(layoutResult.getY(slot) + offsetY);
+                vertexPositions.put(transactionId, new Point(x, y));
+                vertexIds[vertexCount] = transactionId;
+                vertexX[vertexCount] = x;
+                vertexY[vertexCount] = y;
+                vertexCount++;
+            }
+        }
         
-        double angleStep = 2 * Math.PI / transactionIds.size();
+        int width = Math.max(getWidth(), getPreferredSize().width);
+        int height = Math.max(getHeight(), getPreferredSize().height);
+        vertexGrid = SpatialGrid.ofCircles(vertexX, vertexY, vertexCount, VERTEX_RADIUS,
+                                           width, height, CELL_SIZE);
+        calculateEdgeGeometry();
+    }
+    
+    private void updatePreferredSize(Dimension size) {
+        if (!size.equals(getPreferredSize())) {
+            setPreferredSize(size);
+            revalidate();
+        }
+    }
+    
+    // Segmentos y puntas de flecha de todas las aristas, con las posiciones actuales
+    private void calculateEdgeGeometry() {
+        int total = 0;
+        for (Set<String> targets : outgoing.values()) {
+            total += targets.size();
+        }
+        if (edgeX1.length < total) {
+            int capacity = Math.max(total, 2 * edgeX1.length);
+            edgeX1 = new int[capacity];
+            edgeY1 = new int[capacity];
+            edgeX2 = new int[capacity];
+            edgeY2 = new int[capacity];
+            arrowX1 = new int[capacity];
+            arrowY1 = new int[capacity];
+            arrowX2 = new int[capacity];
+            arrowY2 = new int[capacity];
+        }
         
-        for (int i = 0; i < transactionIds.size(); i++) {
-            String transactionId = transactionIds.get(i);
-            double angle = i * angleStep;
-            int x = (int)(centerX + radius * Math.cos(angle));
-            int y = (int)(centerY + radius * Math.sin(angle));
-            vertexPositions.put(transactionId, new Point(x, y));
+        edgeCount = 0;
+        for (Map.Entry<String, Set<String>> entry : outgoing.entrySet()) {
+            Point from = vertexPositions.get(entry.getKey());
+            if (from == null) continue;
+            for (String to : entry.getValue()) {
+                Point toPoint = vertexPositions.get(to);
+                if (toPoint != null) {
+                    addEdgeGeometry(from, toPoint);
+                }
+            }
         }
+        
+        int width = Math.max(getWidth(), getPreferredSize().width);
+        int height = Math.max(getHeight(), getPreferredSize().height);
+        edgeGrid = SpatialGrid.ofSegments(edgeX1, edgeY1, edgeX2, edgeY2, edgeCount,
+                                          width, height, CELL_SIZE);
+    }
+    
+    private void addEdgeGeometry(Point from, Point to) {
+        // Calcular ángulo
+        double angle = Math.atan2(to.y - from.y, to.x - from.x);
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        
+        // La flecha empieza y termina en el borde del círculo
+        int endX = to.x - (int)(VERTEX_RADIUS * cos);
+        int endY = to.y - (int)(VERTEX_RADIUS * sin);
+        edgeX1[edgeCount] = from.x + (int)(VERTEX_RADIUS * cos);
+        edgeY1[edgeCount] = from.y + (int)(VERTEX_RADIUS * sin);
+        edgeX2[edgeCount] = endX;
+        edgeY2[edgeCount] = endY;
+        
+        arrowX1[edgeCount] = endX - (int)(ARROW_SIZE * Math.cos(angle - ARROW_ANGLE));
+        arrowY1[edgeCount] = endY - (int)(ARROW_SIZE * Math.sin(angle - ARROW_ANGLE));
+        arrowX2[edgeCount] = endX - (int)(ARROW_SIZE * Math.cos(angle + ARROW_ANGLE));
+        arrowY2[edgeCount] = endY - (int)(ARROW_SIZE * Math.sin(angle + ARROW_ANGLE));
+        edgeCount++;
     }
     
     @Override
@@ -78,9 +462,9 @@ public class GraphPanel extends JPanel {
         super.paintComponent(g);
         
         // Si no hay grafo o está vacío, mostrar mensaje
-        if (waitForGraph == null || waitForGraph.getVertexMap().isEmpty()) {
+        if (waitForGraph == null || vertexCount == 0) {
             g.setColor(Color.GRAY);
-            g.setFont(new Font("Arial", Font.BOLD, 16));
+            g.setFont(MESSAGE_FONT);
             String message = "No graph to display";
             FontMetrics fm = g.getFontMetrics();
             int x = (getWidth() - fm.stringWidth(message)) / 2;
@@ -91,96 +475,73 @@ public class GraphPanel extends JPanel {
         
         Graphics2D g2d = (Graphics2D) g;
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setStroke(STROKE);
+        
+        // Solo lo que cae en el área a repintar (la parte visible del JScrollPane)
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        int minX = clip.x - ARROW_SIZE;
+        int minY = clip.y - ARROW_SIZE;
+        int maxX = clip.x + clip.width + ARROW_SIZE;
+        int maxY = clip.y + clip.height + ARROW_SIZE;
         
         // Dibujar aristas
         g2d.setColor(Color.RED);
-        g2d.setStroke(new BasicStroke(2));
-        
-        Graph<String> graph = waitForGraph.getGraph();
-        for (Vertex<String> vertex : graph.getAllVertices()) {
-            String from = vertex.getValue();
-            Point fromPoint = vertexPositions.get(from);
-            
-            if (fromPoint != null) {
-                for (Edge<String> edge : vertex.getEdges()) {
-                    String to = edge.getToVertex().getValue();
-                    Point toPoint = vertexPositions.get(to);
-                    if (toPoint != null) {
-                        drawArrow(g2d, fromPoint, toPoint);
-                    }
-                }
-            }
+        int visibleEdges = edgeGrid.query(minX, minY, maxX, maxY);
+        for (int k = 0; k < visibleEdges; k++) {
+            int e = edgeGrid.get(k);
+            g2d.drawLine(edgeX1[e], edgeY1[e], edgeX2[e], edgeY2[e]);
+            arrowXs[0] = edgeX2[e];
+            arrowYs[0] = edgeY2[e];
+            arrowXs[1] = arrowX1[e];
+            arrowYs[1] = arrowY1[e];
+            arrowXs[2] = arrowX2[e];
+            arrowYs[2] = arrowY2[e];
+            g2d.fillPolygon(arrowXs, arrowYs, 3);
         }
         
         // Dibujar vértices
-        for (Map.Entry<String, Point> entry : vertexPositions.entrySet()) {
-            String transactionId = entry.getKey();
-            Point point = entry.getValue();
+        g2d.setFont(LABEL_FONT);
+        FontMetrics fm = g2d.getFontMetrics();
+        int textHeight = fm.getHeight();
+        int diameter = 2 * VERTEX_RADIUS;
+        int visibleVertices = vertexGrid.query(minX, minY, maxX, maxY);
+        for (int k = 0; k < visibleVertices; k++) {
+            int v = vertexGrid.get(k);
+            int x = vertexX[v];
+            int y = vertexY[v];
             
             // Dibujar círculo
             g2d.setColor(Color.BLUE);
-            g2d.fillOval(point.x - 20, point.y - 20, 40, 40);
+            g2d.fillOval(x - VERTEX_RADIUS, y - VERTEX_RADIUS, diameter, diameter);
             
             // Dibujar borde
             g2d.setColor(Color.BLACK);
-            g2d.setStroke(new BasicStroke(2));
-            g2d.drawOval(point.x - 20, point.y - 20, 40, 40);
+            g2d.drawOval(x - VERTEX_RADIUS, y - VERTEX_RADIUS, diameter, diameter);
             
             // Dibujar texto
             g2d.setColor(Color.WHITE);
-            g2d.setFont(new Font("Arial", Font.BOLD, 14));
-            FontMetrics fm = g2d.getFontMetrics();
-            int textWidth = fm.stringWidth(transactionId);
-            int textHeight = fm.getHeight();
-            g2d.drawString(transactionId, point.x - textWidth/2, point.y + textHeight/4);
+            String transactionId = vertexIds[v];
+            g2d.drawString(transactionId, x - fm.stringWidth(transactionId) / 2, y + textHeight / 4);
         }
         
-        // Si hay ciclo, mostrar advertencia
-        if (waitForGraph.hasCycle()) {
+        // Si hay ciclo, mostrar advertencia (calculado al aplicar los cambios)
+        if (deadlocked) {
             g2d.setColor(Color.RED);
-            g2d.setFont(new Font("Arial", Font.BOLD, 18));
+            g2d.setFont(WARNING_FONT);
             String warning = "DEADLOCK DETECTED!";
-            FontMetrics fm = g2d.getFontMetrics();
-            int x = (getWidth() - fm.stringWidth(warning)) / 2;
+            FontMetrics warningMetrics = g2d.getFontMetrics();
+            int x = (getWidth() - warningMetrics.stringWidth(warning)) / 2;
             int y = 30;
             g2d.drawString(warning, x, y);
         }
     }
     
-    private void drawArrow(Graphics2D g2d, Point from, Point to) {
-        // Calcular ángulo
-        double angle = Math.atan2(to.y - from.y, to.x - from.x);
-        
-        // Ajustar puntos para que la flecha empiece y termine en el borde del círculo
-        int radius = 20;
-        int startX = from.x + (int)(radius * Math.cos(angle));
-        int startY = from.y + (int)(radius * Math.sin(angle));
-        int endX = to.x - (int)(radius * Math.cos(angle));
-        int endY = to.y - (int)(radius * Math.sin(angle));
-        
-        // Dibujar línea
-        g2d.drawLine(startX, startY, endX, endY);
-        
-        // Dibujar punta de flecha
-        int arrowSize = 10;
-        double arrowAngle = Math.PI / 6;
-        
-        int x1 = endX - (int)(arrowSize * Math.cos(angle - arrowAngle));
-        int y1 = endY - (int)(arrowSize * Math.sin(angle - arrowAngle));
-        int x2 = endX - (int)(arrowSize * Math.cos(angle + arrowAngle));
-        int y2 = endY - (int)(arrowSize * Math.sin(angle + arrowAngle));
-        
-        Polygon arrowHead = new Polygon();
-        arrowHead.addPoint(endX, endY);
-        arrowHead.addPoint(x1, y1);
-        arrowHead.addPoint(x2, y2);
-        
-        g2d.fill(arrowHead);
-    }
-    
     @Override
     public void setBounds(int x, int y, int width, int height) {
         super.setBounds(x, y, width, height);
-        calculateVertexPositions();
+        calculateGeometry();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,232 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package view;
+
+import java.util.Arrays;
+
+/**
+ * Índice espacial de grilla uniforme sobre ítems numerados 0..n-1 (vértices
+ * como círculos o aristas como segmentos). Cada ítem se anota en las celdas
+ * que toca y una consulta por rectángulo solo mira las celdas que lo cubren,
+ * así el costo depende de lo visible y no del tamaño del grafo.
+ *
+ * Se arma de una vez y no se modifica; las celdas se guardan contiguas
+ * (estilo CSR) para no crear una lista por celda. La cantidad de celdas está
+ * acotada, y los segmentos que cruzarían demasiadas van a una lista aparte
+ * que se filtra por su caja contenedora.
+ *
+ * @author calbe
+ */
+final class SpatialGrid {
+    private static final int MAX_CELLS = 1 << 16;
+    // Un segmento que cruza más celdas que esto no se anota en ellas
+    private static final int MAX_CELLS_PER_ITEM = 64;
+    
+    private interface CellVisitor {
+        void cell(int cell);
+    }
+    
+    /** Forma de cada ítem: su caja contenedora y las celdas que toca. */
+    private interface Shape {
+        void bounds(int item, int[] box);
+        void forEachCell(SpatialGrid grid, int item, CellVisitor visit);
+    }
+    
+    private final int cellSize;
+    private final int cols;
+    private final int rows;
+    // Ítems de la celda c: items[cellStart[c]] .. items[cellStart[c + 1] - 1]
+    private final int[] cellStart;
+    private final int[] items;
+    // Ítems sin celdas y sus cajas (minX, minY, maxX, maxY consecutivos)
+    private final int[] overflow;
+    private final int[] overflowBoxes;
+    private final int overflowCount;
+    
+    // Resultado de la última consulta; seen evita repetir un ítem que cae en varias celdas
+    private int[] found;
+    private int foundCount;
+    private final int[] seen;
+    private int epoch;
+    
+    private SpatialGrid(int cellSize, int width, int height, int itemCount, Shape shape) {
+        // Celdas más grandes si el área es tan grande que no alcanzaría el máximo
+        double area = (double) Math.max(1, width) * Math.max(1, height);
+        this.cellSize = Math.max(cellSize, (int) Math.ceil(Math.sqrt(area / MAX_CELLS)));
+        this.cols = Math.max(1, (width + this.cellSize - 1) / this.cellSize);
+        this.rows = Math.max(1, (height + this.cellSize - 1) / this.cellSize);
+        
+        // Primera pasada: qué ítems se anotan y cuántos hay por celda
+        int[] box = new int[4];
+        boolean[] indexed = new boolean[itemCount];
+        int[] counts = new int[cols * rows + 1];
+        int longItems = 0;
+        for (int i = 0; i < itemCount; i++) {
+            shape.bounds(i, box);
+            int span = (column(box[2]) - column(box[0])) + (row(box[3]) - row(box[1]));
+            if (span > MAX_CELLS_PER_ITEM) {
+                longItems++;
+                continue;
+            }
+            indexed[i] = true;
+            shape.forEachCell(this, i, c -> counts[c + 1]++);
+        }
+        for (int c = 0; c < cols * rows; c++) {
+            counts[c + 1] += counts[c];
+        }
+        
+        // Segunda pasada: ubicarlos
+        this.cellStart = counts.clone();
+        this.items = new int[counts[cols * rows]];
+        this.overflow = new int[longItems];
+        this.overflowBoxes = new int[4 * longItems];
+        int o = 0;
+        for (int i = 0; i < itemCount; i++) {
+            if (indexed[i]) {
+                final int item = i;
+                shape.forEachCell(this, i, c -> items[counts[c]++] = item);
+            } else {
+                shape.bounds(i, box);
+                System.arraycopy(box, 0, overflowBoxes, 4 * o, 4);
+                overflow[o++] = i;
+            }
+        }
+        this.overflowCount = longItems;
+        
+        this.found = new int[16];
+        this.foundCount = 0;
+        this.seen = new int[itemCount];
+        this.epoch = 0;
+    }
+    
+    /** Círculos de radio fijo centrados en (x[i], y[i]). */
+    static SpatialGrid ofCircles(int[] x, int[] y, int count, int radius,
+                                 int width, int height, int cellSize) {
+        return new SpatialGrid(cellSize, width, height, count, new Shape() {
+            @Override
+            public void bounds(int i, int[] box) {
+                box[0] = x[i] - radius;
+                box[1] = y[i] - radius;
+                box[2] = x[i] + radius;
+                box[3] = y[i] + radius;
+            }
+            
+            @Override
+            public void forEachCell(SpatialGrid grid, int i, CellVisitor visit) {
+                grid.forEachCellInRect(x[i] - radius, y[i] - radius, x[i] + radius, y[i] + radius, visit);
+            }
+        });
+    }
+    
+    /** Segmentos (x1[i], y1[i]) - (x2[i], y2[i]), anotados solo en las celdas que cruzan. */
+    static SpatialGrid ofSegments(int[] x1, int[] y1, int[] x2, int[] y2, int count,
+                                  int width, int height, int cellSize) {
+        return new SpatialGrid(cellSize, width, height, count, new Shape() {
+            @Override
+            public void bounds(int i, int[] box) {
+                box[0] = Math.min(x1[i], x2[i]);
+                box[1] = Math.min(y1[i], y2[i]);
+                box[2] = Math.max(x1[i], x2[i]);
+                box[3] = Math.max(y1[i], y2[i]);
+            }
+            
+            @Override
+            public void forEachCell(SpatialGrid grid, int i, CellVisitor visit) {
+                grid.forEachCellOnSegment(x1[i], y1[i], x2[i], y2[i], visit);
+            }
+        });
+    }
+    
+    /**
+     * Busca los ítems que pueden tocar el rectángulo; puede incluir alguno
+     * que no lo toca (comparten celda), nunca deja afuera uno que sí.
+     *
+     * @return cuántos hay; se leen con get(0..n-1) hasta la próxima consulta
+     */
+    int query(int minX, int minY, int maxX, int maxY) {
+        foundCount = 0;
+        if (++epoch == 0) {
+            Arrays.fill(seen, 0);
+            epoch = 1;
+        }
+        forEachCellInRect(minX, minY, maxX, maxY, c -> {
+            for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                int item = items[k];
+                if (seen[item] != epoch) {
+                    seen[item] = epoch;
+                    addFound(item);
+                }
+            }
+        });
+        for (int o = 0; o < overflowCount; o++) {
+            int b = 4 * o;
+            if (overflowBoxes[b] <= maxX && overflowBoxes[b + 2] >= minX
+                    && overflowBoxes[b + 1] <= maxY && overflowBoxes[b + 3] >= minY) {
+                addFound(overflow[o]);
+            }
+        }
+        return foundCount;
+    }
+    
+    private void addFound(int item) {
+        if (foundCount == found.length) {
+            found = Arrays.copyOf(found, foundCount * 2);
+        }
+        found[foundCount++] = item;
+    }
+    
+    int get(int i) {
+        return found[i];
+    }
+    
+    // Fuera de la grilla se recorta al borde: las celdas de la orilla cubren el resto
+    private int column(int x) {
+        return Math.min(cols - 1, Math.max(0, x / cellSize));
+    }
+    
+    private int row(int y) {
+        return Math.min(rows - 1, Math.max(0, y / cellSize));
+    }
+    
+    private void forEachCellInRect(int minX, int minY, int maxX, int maxY, CellVisitor visit) {
+        int c0 = column(minX), c1 = column(maxX);
+        int r0 = row(minY), r1 = row(maxY);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                visit.cell(r * cols + c);
+            }
+        }
+    }
+    
+    // Recorrido de celdas a lo largo del segmento (Amanatides-Woo): avanza
+    // siempre por el eje cuyo próximo borde de celda está más cerca
+    private void forEachCellOnSegment(int x1, int y1, int x2, int y2, CellVisitor visit) {
+        int c = column(x1), r = row(y1);
+        int endC = column(x2), endR = row(y2);
+        int stepC = Integer.signum(endC - c);
+        int stepR = Integer.signum(endR - r);
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double deltaX = stepC != 0 ? cellSize / Math.abs(dx) : Double.POSITIVE_INFINITY;
+        double deltaY = stepR != 0 ? cellSize / Math.abs(dy) : Double.POSITIVE_INFINITY;
+        double nextX = stepC > 0 ? ((c + 1) * cellSize - x1) / dx
+                     : stepC < 0 ? (c * cellSize - x1) / dx : Double.POSITIVE_INFINITY;
+        double nextY = stepR > 0 ? ((r + 1) * cellSize - y1) / dy
+                     : stepR < 0 ? (r * cellSize - y1) / dy : Double.POSITIVE_INFINITY;
+        
+        visit.cell(r * cols + c);
+        // Exactamente un paso por cada columna o fila de diferencia, aunque haya redondeo
+        while (c != endC || r != endR) {
+            if (r == endR || (c != endC && nextX < nextY)) {
+                c += stepC;
+                nextX += deltaX;
+            } else {
+                r += stepR;
+                nextY += deltaY;
+            }
+            visit.cell(r * cols + c);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package controller;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import model.Record;
+import model.Transaction;
+
+/**
+ * Ayudas para las pruebas de recuperación: una carga de operaciones
+ * reproducible y una descripción textual del estado del controlador, para
+ * comparar el original con el recuperado.
+ *
+ * @author calbe
+ */
+final class ControllerState {
+    private ControllerState() {}
+    
+    static DeadlockController newController() {
+        DeadlockController controller = new DeadlockController();
+        controller.setLogEnabled(false);
+        return controller;
+    }
+    
+    /**
+     * Agrega transacciones first..first+count-1 en grupos de diez que se
+     * intercalan: tres accesos al azar sobre pocos registros y el end.
+     */
+    static void load(DeadlockController controller, Random random, int first, int count) {
+        for (int group = first; group < first + count; group += 10) {
+            for (int step = 0; step < 4; step++) {
+                for (int t = group; t < group + 10; t++) {
+                    if (step == 3) {
+                        controller.addOperation("end(T" + t + ")");
+                    } else {
+                        String access = random.nextBoolean() ? "read" : "write";
+                        controller.addOperation(access + "(T" + t + ",R" + random.nextInt(20) + ")");
+                    }
+                }
+            }
+        }
+    }
+    
+    static void process(DeadlockController controller, int operations) {
+        for (int i = 0; i < operations && controller.hasOperations(); i++) {
+            controller.processNextOperation();
+        }
+    }
+    
+    // Transacciones, registros con dueños y esperas, cola, aristas y contadores
+    static String describe(DeadlockController controller) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Transaction> entry : new TreeMap<>(controller.getGraph().getTransactions()).entrySet()) {
+            Transaction transaction = entry.getValue();
+            sb.append(entry.getKey()).append(':').append(transaction.getCurrentStep())
+              .append(transaction.isSuspended() ? "s " : " ");
+        }
+        sb.append('\n');
+        for (Map.Entry<String, Record> entry : new TreeMap<>(controller.getGraph().getRecords()).entrySet()) {
+            Record record = entry.getValue();
+            List<String> holders = new ArrayList<>();
+            for (Transaction holder : record.getHolders()) {
+                holders.add(holder.getId());
+            }
+            Collections.sort(holders);
+            List<String> waiters = new ArrayList<>();
+            for (Record.Waiter waiter : record.getWaiters()) {
+                waiters.add(waiter.getTransaction().getId() + waiter.getMode());
+            }
+            sb.append(entry.getKey()).append(holders).append(record.getMode()).append(waiters).append(' ');
+        }
+        sb.append('\n').append(controller.getOperationQueue());
+        sb.append('\n').append(controller.getGraph().getEdgeCount())
+          .append(" commits ").append(controller.getCommitCount())
+          .append(" aborts ").append(controller.getAbortCount());
+        return sb.toString();
+    }
+}
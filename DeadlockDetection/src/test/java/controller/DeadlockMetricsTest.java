@@ -0,0 +1,50 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Métricas de detección del DeadlockController: el histograma de largos
+ * cuenta transacciones distintas, igual con SINGLE_CYCLE que con
+ * ALL_COMPONENTS.
+ *
+ * @author calbe
+ */
+public class DeadlockMetricsTest {
+    // T1 y T2 se esperan mutuamente: un ciclo de dos transacciones
+    private DeadlockMetrics runTwoCycle(DeadlockController.DetectionMode mode) {
+        DeadlockController controller = ControllerState.newController();
+        controller.setDetectionMode(mode);
+        controller.addMultipleOperations("write(T1,R1), write(T2,R2), write(T1,R2), write(T2,R1)");
+        controller.processAllOperations();
+        return controller.getMetrics();
+    }
+    
+    private void assertRecordsTwo(DeadlockMetrics metrics) {
+        assertEquals(1, metrics.getDeadlocksFound());
+        assertEquals(1, metrics.getCycleLengths().getCount());
+        assertEquals(2, metrics.getCycleLengthMax());
+        assertEquals(2.0, metrics.getCycleLengthMean());
+        // Límites 1, 2, 3...: el 2 cae en el segundo intervalo
+        long[] counts = metrics.getCycleLengthCounts();
+        long[] expected = new long[counts.length];
+        expected[1] = 1;
+        assertArrayEquals(expected, counts);
+    }
+    
+    @Test
+    public void singleCycleRecordsDistinctTransactions() {
+        assertRecordsTwo(runTwoCycle(DeadlockController.DetectionMode.SINGLE_CYCLE));
+    }
+    
+    @Test
+    public void allComponentsRecordsDistinctTransactions() {
+        assertRecordsTwo(runTwoCycle(DeadlockController.DetectionMode.ALL_COMPONENTS));
+    }
+}
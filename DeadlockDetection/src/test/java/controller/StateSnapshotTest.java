@@ -0,0 +1,159 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package controller;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+import model.PreventionPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ida y vuelta de los snapshots: restore deja el mismo estado que había en
+ * el checkpoint, con cada política, y recover con el snapshot y el log
+ * llega al estado final. Un snapshot dañado se rechaza sin dejar estado a
+ * medias.
+ *
+ * @author calbe
+ */
+public class StateSnapshotTest {
+    private Path dir;
+    private Path snapshotFile;
+    private Path logFile;
+    
+    @BeforeEach
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("snapshot-test");
+        snapshotFile = dir.resolve("deadlock.snap");
+        logFile = dir.resolve("deadlock.log");
+    }
+    
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+    
+    private interface Setup {
+        void apply(DeadlockController controller);
+    }
+    
+    // Checkpoint a mitad de la carga: restore lo reproduce y ambos siguen igual
+    private void assertRoundTrip(Setup setup) throws IOException {
+        DeadlockController controller = ControllerState.newController();
+        setup.apply(controller);
+        ControllerState.load(controller, new Random(7), 0, 1000);
+        ControllerState.process(controller, 2000);
+        controller.checkpoint(snapshotFile);
+        String atCheckpoint = ControllerState.describe(controller);
+        
+        DeadlockController restored = ControllerState.newController();
+        setup.apply(restored);
+        assertEquals(controller.getGraph().getTransactions().size(), restored.restore(snapshotFile));
+        assertEquals(atCheckpoint, ControllerState.describe(restored));
+        assertEquals(controller.getGraph().getTopologicalOrder(), restored.getGraph().getTopologicalOrder());
+        assertEquals(controller.getGraph().isDeadlocked(), restored.getGraph().isDeadlocked());
+        
+        ControllerState.process(controller, 1000);
+        ControllerState.process(restored, 1000);
+        assertEquals(ControllerState.describe(controller), ControllerState.describe(restored));
+    }
+    
+    @Test
+    public void roundTripSingleCycle() throws IOException {
+        assertRoundTrip(controller -> {});
+    }
+    
+    @Test
+    public void roundTripAllComponents() throws IOException {
+        assertRoundTrip(controller -> controller.setDetectionMode(DeadlockController.DetectionMode.ALL_COMPONENTS));
+    }
+    
+    @Test
+    public void roundTripWaitDie() throws IOException {
+        assertRoundTrip(controller -> controller.setPreventionPolicy(PreventionPolicy.WAIT_DIE));
+    }
+    
+    // Sin detección quedan ciclos abiertos y transacciones esperando en el snapshot
+    @Test
+    public void roundTripWithOpenCycles() throws IOException {
+        assertRoundTrip(controller -> {
+            controller.setDetectionMode(DeadlockController.DetectionMode.TIMEOUT_ONLY);
+            controller.setWaitTimeoutMs(100000);
+        });
+    }
+    
+    @Test
+    public void emptyControllerRoundTrip() throws IOException {
+        DeadlockController controller = ControllerState.newController();
+        controller.checkpoint(snapshotFile);
+        
+        DeadlockController restored = ControllerState.newController();
+        assertEquals(0, restored.restore(snapshotFile));
+        assertEquals(ControllerState.describe(controller), ControllerState.describe(restored));
+        assertFalse(restored.hasOperations());
+    }
+    
+    @Test
+    public void recoverReplaysOnlyWhatFollowsTheSnapshot() throws IOException {
+        Random random = new Random(11);
+        DeadlockController controller = ControllerState.newController();
+        controller.recover(snapshotFile, logFile, 1);
+        ControllerState.load(controller, random, 0, 500);
+        ControllerState.process(controller, 1000);
+        controller.checkpoint(snapshotFile);
+        ControllerState.process(controller, 300);
+        controller.syncLog();
+        String last = ControllerState.describe(controller);
+        controller.closeLog();
+        
+        DeadlockController recovered = ControllerState.newController();
+        long replayed = recovered.recover(snapshotFile, logFile, 1);
+        assertEquals(last, ControllerState.describe(recovered));
+        // Cada operación procesada dejó al menos un registro, pero nada de antes del checkpoint
+        assertTrue(replayed >= 300 && replayed < 1300, "replayed " + replayed);
+        recovered.closeLog();
+    }
+    
+    @Test
+    public void truncatedSnapshotIsRejected() throws IOException {
+        DeadlockController controller = ControllerState.newController();
+        ControllerState.load(controller, new Random(3), 0, 200);
+        ControllerState.process(controller, 400);
+        controller.checkpoint(snapshotFile);
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() / 2);
+        }
+        
+        DeadlockController restored = ControllerState.newController();
+        ControllerState.load(restored, new Random(3), 0, 20);
+        assertThrows(IOException.class, () -> restored.restore(snapshotFile));
+        // No queda nada de lo anterior ni de lo que se alcanzó a leer
+        assertTrue(restored.getGraph().getTransactions().isEmpty());
+        assertFalse(restored.hasOperations());
+    }
+    
+    @Test
+    public void fileThatIsNotASnapshotIsRejected() throws IOException {
+        Files.write(snapshotFile, new byte[128]);
+        
+        assertThrows(IOException.class, () -> ControllerState.newController().restore(snapshotFile));
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compatibilidad de los modos compartido (S) y exclusivo (X), y la subida
+ * de S a X, tanto en Record como a través del LockManager con sus colas y
+ * aristas de espera.
+ *
+ * @author calbe
+ */
+public class LockModeTest {
+    private WaitForGraph graph;
+    private LockManager lockManager;
+    private Transaction t1, t2, t3;
+    
+    @BeforeEach
+    public void setUp() {
+        graph = new WaitForGraph();
+        lockManager = new LockManager(graph);
+        t1 = new Transaction("T1");
+        t2 = new Transaction("T2");
+        t3 = new Transaction("T3");
+        graph.addTransaction(t1);
+        graph.addTransaction(t2);
+        graph.addTransaction(t3);
+    }
+    
+    @Test
+    public void sharedLocksCoexist() {
+        Record record = new Record("R1");
+        assertTrue(record.lock(t1, Record.LockMode.SHARED));
+        assertTrue(record.lock(t2, Record.LockMode.SHARED));
+        
+        assertEquals(Record.LockMode.SHARED, record.getMode());
+        assertEquals(2, record.getHolders().size());
+        assertFalse(record.lock(t3, Record.LockMode.EXCLUSIVE));
+    }
+    
+    @Test
+    public void exclusiveExcludesEveryoneElse() {
+        Record record = new Record("R1");
+        assertTrue(record.lock(t1, Record.LockMode.EXCLUSIVE));
+        
+        assertFalse(record.lock(t2, Record.LockMode.SHARED));
+        assertFalse(record.lock(t2, Record.LockMode.EXCLUSIVE));
+        // El dueño exclusivo ya cubre una lectura
+        assertTrue(record.holdsLock(t1, Record.LockMode.SHARED));
+        assertTrue(record.lock(t1, Record.LockMode.SHARED));
+        assertEquals(Record.LockMode.EXCLUSIVE, record.getMode());
+    }
+    
+    @Test
+    public void soleSharedHolderUpgrades() {
+        Record record = new Record("R1");
+        assertTrue(record.lock(t1, Record.LockMode.SHARED));
+        assertTrue(record.lock(t1, Record.LockMode.EXCLUSIVE));
+        
+        assertEquals(Record.LockMode.EXCLUSIVE, record.getMode());
+        assertEquals(Collections.singleton(t1), record.getHolders());
+    }
+    
+    @Test
+    public void upgradeWaitsForOtherSharedHolders() {
+        Record record = new Record("R1");
+        record.lock(t1, Record.LockMode.SHARED);
+        record.lock(t2, Record.LockMode.SHARED);
+        
+        assertFalse(record.lock(t1, Record.LockMode.EXCLUSIVE));
+        record.unlock(t2);
+        assertTrue(record.lock(t1, Record.LockMode.EXCLUSIVE));
+    }
+    
+    @Test
+    public void unlockFreesTheRecord() {
+        Record record = new Record("R1");
+        record.lock(t1, Record.LockMode.EXCLUSIVE);
+        record.unlock(t1);
+        
+        assertFalse(record.isLocked());
+        assertNull(record.getMode());
+        assertTrue(record.lock(t2, Record.LockMode.EXCLUSIVE));
+    }
+    
+    @Test
+    public void exclusiveRequestWaitsForEverySharedHolder() {
+        assertEquals(LockManager.Status.GRANTED,
+                     lockManager.acquire(t1, "R1", Record.LockMode.SHARED).getStatus());
+        assertEquals(LockManager.Status.GRANTED,
+                     lockManager.acquire(t2, "R1", Record.LockMode.SHARED).getStatus());
+        
+        LockManager.LockResult result = lockManager.acquire(t3, "R1", Record.LockMode.EXCLUSIVE);
+        assertEquals(LockManager.Status.WAITING, result.getStatus());
+        assertEquals(Arrays.asList("T1", "T2"), result.getBlockers());
+        assertNull(result.getCycle());
+        assertEquals(2, graph.getEdgeCount());
+        assertSame(graph.getOrCreateRecord("R1"), t3.getWaitingFor());
+    }
+    
+    @Test
+    public void sharedRequestQueuesBehindAWaitingWriter() {
+        lockManager.acquire(t1, "R1", Record.LockMode.SHARED);
+        lockManager.acquire(t2, "R1", Record.LockMode.EXCLUSIVE);
+        
+        // Compatible con T1, pero no se adelanta a la escritura que espera
+        LockManager.LockResult result = lockManager.acquire(t3, "R1", Record.LockMode.SHARED);
+        assertEquals(LockManager.Status.WAITING, result.getStatus());
+        assertEquals(Collections.singletonList("T2"), result.getBlockers());
+    }
+    
+    @Test
+    public void upgradeThroughTheLockManager() {
+        lockManager.acquire(t1, "R1", Record.LockMode.SHARED);
+        assertEquals(LockManager.Status.ALREADY_HELD,
+                     lockManager.acquire(t1, "R1", Record.LockMode.SHARED).getStatus());
+        assertEquals(LockManager.Status.UPGRADED,
+                     lockManager.acquire(t1, "R1", Record.LockMode.EXCLUSIVE).getStatus());
+        assertEquals(LockManager.Status.ALREADY_HELD,
+                     lockManager.acquire(t1, "R1", Record.LockMode.SHARED).getStatus());
+    }
+    
+    @Test
+    public void blockedUpgradeIsGrantedWhenTheOtherReaderLeaves() {
+        lockManager.acquire(t1, "R1", Record.LockMode.SHARED);
+        lockManager.acquire(t2, "R1", Record.LockMode.SHARED);
+        LockManager.LockResult result = lockManager.acquire(t1, "R1", Record.LockMode.EXCLUSIVE);
+        assertEquals(LockManager.Status.WAITING, result.getStatus());
+        assertEquals(Collections.singletonList("T2"), result.getBlockers());
+        
+        List<Record.Waiter> granted = lockManager.release("T2");
+        assertEquals(1, granted.size());
+        assertSame(t1, granted.get(0).getTransaction());
+        Record record = graph.getOrCreateRecord("R1");
+        assertEquals(Record.LockMode.EXCLUSIVE, record.getMode());
+        assertEquals(Collections.singleton(t1), record.getHolders());
+        assertNull(t1.getWaitingFor());
+        assertEquals(0, graph.getEdgeCount());
+    }
+    
+    @Test
+    public void twoReadersUpgradingDeadlock() {
+        lockManager.acquire(t1, "R1", Record.LockMode.SHARED);
+        lockManager.acquire(t2, "R1", Record.LockMode.SHARED);
+        
+        assertNull(lockManager.acquire(t1, "R1", Record.LockMode.EXCLUSIVE).getCycle());
+        LockManager.LockResult result = lockManager.acquire(t2, "R1", Record.LockMode.EXCLUSIVE);
+        assertEquals(LockManager.Status.WAITING, result.getStatus());
+        assertNotNull(result.getCycle());
+        assertTrue(graph.isDeadlocked());
+    }
+}
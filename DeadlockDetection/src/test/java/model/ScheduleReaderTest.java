@@ -0,0 +1,101 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package model;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lectura del schedule por bloques desde un canal: la separación de las
+ * operaciones y la espera, sin girar, de un canal no bloqueante.
+ *
+ * @author calbe
+ */
+public class ScheduleReaderTest {
+    // Cuenta las llamadas a read del canal que envuelve
+    private static final class CountingChannel implements ReadableByteChannel {
+        final ReadableByteChannel channel;
+        final AtomicInteger reads = new AtomicInteger();
+        
+        CountingChannel(ReadableByteChannel channel) {
+            this.channel = channel;
+        }
+        
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            reads.incrementAndGet();
+            return channel.read(dst);
+        }
+        
+        @Override public boolean isOpen() { return channel.isOpen(); }
+        @Override public void close() throws IOException { channel.close(); }
+    }
+    
+    private static ReadableByteChannel channelOf(String text) {
+        return Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+    
+    @Test
+    public void splitsOnCommasOutsideParenthesesAndNewlines() throws IOException {
+        try (ScheduleReader reader = new ScheduleReader(channelOf(" read(T1,R1), write(T2,R1)\nend(T1)\r\n"))) {
+            assertEquals("read(T1,R1)", reader.next());
+            assertEquals("write(T2,R1)", reader.nextSequence().toString());
+            assertEquals("end(T1)", reader.next());
+            assertNull(reader.next());
+            assertTrue(reader.isFinished());
+            assertEquals(3, reader.getOperationsRead());
+        }
+    }
+    
+    @Test
+    public void nonBlockingChannelWaitsWithoutSpinning() throws Exception {
+        Pipe pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+        CountingChannel source = new CountingChannel(pipe.source());
+        Thread writer = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+                pipe.sink().write(ByteBuffer.wrap("read(T1,R1)\n".getBytes(StandardCharsets.US_ASCII)));
+                pipe.sink().close();
+            } catch (IOException | InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        writer.start();
+        try (ScheduleReader reader = new ScheduleReader(source)) {
+            assertEquals("read(T1,R1)", reader.next());
+            assertNull(reader.next());
+        }
+        writer.join();
+        // Con pausas de hasta 10 ms son unas pocas decenas de lecturas, no millones
+        assertTrue(source.reads.get() < 100, "reads " + source.reads.get());
+    }
+    
+    @Test
+    public void interruptStopsTheWait() throws IOException {
+        Pipe pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+        try (ScheduleReader reader = new ScheduleReader(pipe.source())) {
+            Thread.currentThread().interrupt();
+            assertThrows(InterruptedIOException.class, reader::next);
+            assertTrue(Thread.interrupted());
+        } finally {
+            pipe.sink().close();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vencimiento de plazos en la TimingWheel: ninguno sale antes de su tick ni
+ * después del advance que lo alcanza, en todos los niveles y en el desborde,
+ * y los cancelados no salen nunca. Con ticks de 1 ns y origen 0 el plazo en
+ * nanosegundos es directamente el tick.
+ *
+ * @author calbe
+ */
+public class TimingWheelTest {
+    private TimingWheel<String> wheel;
+    private List<String> expired;
+    
+    @BeforeEach
+    public void setUp() {
+        wheel = new TimingWheel<>(1, 0);
+        expired = new ArrayList<>();
+    }
+    
+    private List<String> advance(long now) {
+        expired.clear();
+        wheel.advance(now, expired);
+        Collections.sort(expired);
+        return expired;
+    }
+    
+    @Test
+    public void rejectsNonPositiveTick() {
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel<String>(0, 0));
+    }
+    
+    @Test
+    public void expiresOnItsTickAndNotBefore() {
+        TimingWheel.Timeout<String> timeout = wheel.schedule("a", 10);
+        
+        assertTrue(advance(9).isEmpty());
+        assertTrue(timeout.isPending());
+        assertEquals(Collections.singletonList("a"), advance(10));
+        assertFalse(timeout.isPending());
+        assertEquals(0, wheel.size());
+    }
+    
+    @Test
+    public void deadlineBetweenTicksRoundsUp() {
+        TimingWheel<String> coarse = new TimingWheel<>(100, 1000);
+        coarse.schedule("a", 1150);
+        
+        coarse.advance(1199, expired);
+        assertTrue(expired.isEmpty());
+        coarse.advance(1200, expired);
+        assertEquals(Collections.singletonList("a"), expired);
+    }
+    
+    @Test
+    public void pastDeadlineExpiresOnNextAdvance() {
+        advance(50);
+        wheel.schedule("late", 20);
+        
+        assertEquals(Collections.singletonList("late"), advance(51));
+    }
+    
+    @Test
+    public void cancelledTimeoutNeverExpires() {
+        TimingWheel.Timeout<String> a = wheel.schedule("a", 5);
+        wheel.schedule("b", 5);
+        wheel.cancel(a);
+        
+        assertFalse(a.isPending());
+        assertEquals(1, wheel.size());
+        assertEquals(Collections.singletonList("b"), advance(5));
+        // Cancelar uno ya vencido no cambia nada
+        wheel.cancel(a);
+        assertEquals(0, wheel.size());
+    }
+    
+    @Test
+    public void deadlinesOnEveryLevelExpireExactly() {
+        // Nivel 0, 1, 2, 3 y el desborde más allá de 2^24 ticks
+        long[] deadlines = {63, 64, 4095, 4096, 262143, 262144, 1L << 24, (1L << 24) + 4097};
+        Map<String, TimingWheel.Timeout<String>> timeouts = new HashMap<>();
+        for (long deadline : deadlines) {
+            timeouts.put("d" + deadline, wheel.schedule("d" + deadline, deadline));
+        }
+        for (long deadline : deadlines) {
+            assertTrue(advance(deadline - 1).isEmpty(), "before " + deadline);
+            assertEquals(Collections.singletonList("d" + deadline), advance(deadline));
+            assertFalse(timeouts.get("d" + deadline).isPending());
+        }
+        assertEquals(0, wheel.size());
+    }
+    
+    @Test
+    public void sameTickExpiresTogether() {
+        wheel.schedule("a", 300);
+        wheel.schedule("b", 300);
+        wheel.schedule("c", 301);
+        
+        assertEquals(Arrays.asList("a", "b"), advance(300));
+        assertEquals(Collections.singletonList("c"), advance(1000));
+    }
+    
+    @Test
+    public void clearDropsEverything() {
+        TimingWheel.Timeout<String> a = wheel.schedule("a", 3);
+        wheel.schedule("b", 1L << 30);
+        wheel.clear();
+        
+        assertEquals(0, wheel.size());
+        assertFalse(a.isPending());
+        assertTrue(advance(10).isEmpty());
+    }
+    
+    // Plazos, cancelaciones y avances al azar contra una lista de referencia
+    @Test
+    public void randomScheduleMatchesReference() {
+        Random random = new Random(7);
+        Map<String, Long> pending = new HashMap<>();
+        Map<String, TimingWheel.Timeout<String>> timeouts = new HashMap<>();
+        long now = 0;
+        for (int step = 0; step < 5000; step++) {
+            int action = random.nextInt(10);
+            if (action < 5) {
+                String value = "v" + step;
+                // Mezcla de plazos cortos y largos para pasar por todos los niveles
+                long delay = random.nextBoolean() ? random.nextInt(200) : random.nextInt(1 << 20);
+                long deadline = now + delay;
+                timeouts.put(value, wheel.schedule(value, deadline));
+                pending.put(value, Math.max(deadline, now + 1));
+            } else if (action < 7 && !pending.isEmpty()) {
+                String value = pending.keySet().iterator().next();
+                wheel.cancel(timeouts.get(value));
+                pending.remove(value);
+            } else {
+                now += random.nextBoolean() ? random.nextInt(50) : random.nextInt(100000);
+                List<String> reference = new ArrayList<>();
+                for (Map.Entry<String, Long> entry : pending.entrySet()) {
+                    if (entry.getValue() <= now) {
+                        reference.add(entry.getKey());
+                    }
+                }
+                Collections.sort(reference);
+                assertEquals(reference, advance(now), "step " + step);
+                pending.keySet().removeAll(reference);
+            }
+            assertEquals(pending.size(), wheel.size());
+        }
+    }
+}
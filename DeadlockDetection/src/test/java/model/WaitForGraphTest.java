@@ -0,0 +1,186 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uni.aed.tda.graphTDA.IntGraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Orden topológico en línea (Pearce-Kelly) y detección de ciclos del
+ * WaitForGraph: aristas que ya respetan el orden, aristas que obligan a
+ * reordenar, aristas que cierran un ciclo y eliminaciones que lo rompen.
+ *
+ * @author calbe
+ */
+public class WaitForGraphTest {
+    private WaitForGraph graph;
+    
+    @BeforeEach
+    public void setUp() {
+        graph = new WaitForGraph();
+    }
+    
+    private void addTransactions(String... ids) {
+        for (String id : ids) {
+            graph.addTransaction(new Transaction(id));
+        }
+    }
+    
+    // Cada arista del grafo va hacia adelante en el orden
+    private void assertTopological() {
+        List<String> order = graph.getTopologicalOrder();
+        IntGraph<String> intGraph = graph.getIntGraph();
+        assertEquals(intGraph.vertexCount(), order.size());
+        for (int v = 0; v < intGraph.idBound(); v++) {
+            if (!intGraph.containsVertex(v)) continue;
+            for (int i = 0; i < intGraph.outDegree(v); i++) {
+                String from = intGraph.valueOf(v);
+                String to = intGraph.valueOf(intGraph.neighbor(v, i));
+                assertTrue(order.indexOf(from) < order.indexOf(to),
+                           from + " -> " + to + " breaks " + order);
+            }
+        }
+    }
+    
+    @Test
+    public void edgesAlreadyInOrderLeaveTheOrderAlone() {
+        addTransactions("T1", "T2", "T3", "T4");
+        assertNull(graph.addEdge("T1", "T2"));
+        assertNull(graph.addEdge("T2", "T3"));
+        assertNull(graph.addEdge("T1", "T4"));
+        
+        assertEquals(Arrays.asList("T1", "T2", "T3", "T4"), graph.getTopologicalOrder());
+        assertFalse(graph.isDeadlocked());
+    }
+    
+    @Test
+    public void edgeAgainstTheOrderMovesOnlyWhatItReaches() {
+        addTransactions("T1", "T2", "T3", "T4", "T5");
+        assertNull(graph.addEdge("T4", "T2"));
+        assertNull(graph.addEdge("T5", "T4"));
+        
+        assertTopological();
+        assertFalse(graph.isDeadlocked());
+        // T1 y T3 no están en ninguna de las dos búsquedas: conservan su orden relativo
+        List<String> order = graph.getTopologicalOrder();
+        assertTrue(order.indexOf("T1") < order.indexOf("T3"));
+    }
+    
+    @Test
+    public void chainInsertedBackwardsEndsReversed() {
+        addTransactions("T1", "T2", "T3", "T4", "T5");
+        for (int i = 5; i > 1; i--) {
+            assertNull(graph.addEdge("T" + i, "T" + (i - 1)));
+        }
+        
+        assertEquals(Arrays.asList("T5", "T4", "T3", "T2", "T1"), graph.getTopologicalOrder());
+    }
+    
+    @Test
+    public void edgeClosingACycleReturnsIt() {
+        addTransactions("T1", "T2", "T3");
+        assertNull(graph.addEdge("T1", "T2"));
+        assertNull(graph.addEdge("T2", "T3"));
+        List<String> cycle = graph.addEdge("T3", "T1");
+        
+        assertEquals(Arrays.asList("T3", "T1", "T2", "T3"), cycle);
+        assertTrue(graph.isDeadlocked());
+        assertTrue(graph.hasCycle());
+        assertTrue(graph.isCycle(cycle));
+        assertNotNull(graph.findCycle());
+    }
+    
+    @Test
+    public void removingAMemberBreaksTheCycle() {
+        addTransactions("T1", "T2", "T3", "T4");
+        graph.addEdge("T1", "T2");
+        graph.addEdge("T2", "T3");
+        graph.addEdge("T3", "T4");
+        List<String> cycle = graph.addEdge("T3", "T1");
+        assertNotNull(cycle);
+        
+        graph.removeTransaction("T2");
+        assertFalse(graph.isDeadlocked());
+        assertFalse(graph.isCycle(cycle));
+        assertNull(graph.findCycle());
+        // La arista cíclica T3 -> T1 volvió a entrar al orden
+        assertTopological();
+    }
+    
+    @Test
+    public void removingTheClosingEdgeBreaksTheCycle() {
+        addTransactions("T1", "T2");
+        graph.addEdge("T1", "T2");
+        assertNotNull(graph.addEdge("T2", "T1"));
+        
+        graph.removeEdge("T1", "T2");
+        assertFalse(graph.isDeadlocked());
+        assertTopological();
+    }
+    
+    @Test
+    public void independentCyclesAreSeparateComponents() {
+        addTransactions("T1", "T2", "T3", "T4", "T5");
+        graph.addEdge("T1", "T2");
+        graph.addEdge("T2", "T1");
+        graph.addEdge("T3", "T4");
+        graph.addEdge("T4", "T3");
+        graph.addEdge("T5", "T1");
+        
+        List<List<String>> components = graph.findDeadlockedComponents();
+        assertEquals(2, components.size());
+        for (List<String> component : components) {
+            assertEquals(2, component.size());
+            assertFalse(component.contains("T5"));
+        }
+    }
+    
+    // Altas y bajas al azar: el orden siempre vale sin ciclos y isDeadlocked
+    // coincide con una búsqueda completa
+    @Test
+    public void randomChangesKeepOrderAndCycleFlagConsistent() {
+        int n = 40;
+        Random random = new Random(42);
+        for (int i = 0; i < n; i++) {
+            graph.addTransaction(new Transaction("T" + i));
+        }
+        List<String> removed = new ArrayList<>();
+        for (int step = 0; step < 2000; step++) {
+            String from = "T" + random.nextInt(n);
+            String to = "T" + random.nextInt(n);
+            int action = random.nextInt(10);
+            if (action < 3) {
+                if (!from.equals(to)) {
+                    graph.addEdge(from, to);
+                }
+            } else if (action < 9) {
+                graph.removeEdge(from, to);
+            } else if (graph.getTransaction(from) != null) {
+                graph.removeTransaction(from);
+                removed.add(from);
+            } else {
+                graph.addTransaction(new Transaction(from));
+            }
+            
+            boolean deadlocked = graph.isDeadlocked();
+            assertEquals(graph.hasCycle(), deadlocked, "step " + step);
+            if (!deadlocked) {
+                assertTopological();
+            }
+        }
+        assertFalse(removed.isEmpty());
+    }
+}